@@ -0,0 +1,143 @@
+package com.example.viewinspector;
+
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+// 实时无障碍节点；内部复用一个 Rect，只能在单个线程上使用
+public class AccessibilityNodeSource implements NodeSource<AccessibilityNodeInfo> {
+
+    // API 33 起可为每次获取指定预取策略：按遍历顺序深度优先预取后代，后续的 getChild 大多直接命中本地节点缓存。
+    // 不加 FLAG_PREFETCH_UNINTERRUPTIBLE：它让目标应用的主线程一次做完整个预取，会拖慢目标应用；
+    // 可中断的预取在目标应用忙时提前返回，代价是后续多几次跨进程调用。
+    // 使用该值的重载只在 API 33 起存在，调用处需各自检查 SDK_INT
+    public static final int PREFETCH_STRATEGY = AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_DEPTH_FIRST;
+
+    // 系统没有公开节点缓存的统计。命中本地缓存的 getChild 不经过 binder，通常远快于该值，
+    // 因此按耗时粗略区分；这只是推测，线程被抢占时跨进程调用之外的 getChild 也可能超过该值
+    static final long FAST_FETCH_NANOS = 100000L;
+
+    private final Rect boundsRect = new Rect();
+    private long childFetches;
+    private long fastFetches;
+    private long propertyReads;
+
+    @Override
+    public int getChildCount(AccessibilityNodeInfo node) {
+        return node.getChildCount();
+    }
+
+    @Override
+    public AccessibilityNodeInfo getChild(AccessibilityNodeInfo node, int index) {
+        long start = System.nanoTime();
+        AccessibilityNodeInfo child = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU ?
+                node.getChild(index, PREFETCH_STRATEGY) : node.getChild(index);
+        if (isFastFetch(System.nanoTime() - start)) {
+            fastFetches++;
+        }
+        childFetches++;
+        return child;
+    }
+
+    static boolean isFastFetch(long nanos) {
+        return nanos < FAST_FETCH_NANOS;
+    }
+
+    public long getChildFetches() {
+        return childFetches;
+    }
+
+    // 耗时低于 FAST_FETCH_NANOS 的 getChild 次数，按耗时推测为命中本地缓存，并非实测
+    public long getFastFetches() {
+        return fastFetches;
+    }
+
+    // 通过本对象读取的节点属性数，标志按 getFlags 实际读取的 4 个分别计数
+    public long getPropertyReads() {
+        return propertyReads;
+    }
+
+    public void resetStats() {
+        childFetches = 0;
+        fastFetches = 0;
+        propertyReads = 0;
+    }
+
+    @Override
+    public void release(AccessibilityNodeInfo node) {
+        node.recycle();
+    }
+
+    @Override
+    public String getClassName(AccessibilityNodeInfo node) {
+        propertyReads++;
+        return node.getClassName() != null ? node.getClassName().toString() : "Unknown";
+    }
+
+    @Override
+    public String getText(AccessibilityNodeInfo node) {
+        propertyReads++;
+        return node.getText() != null ? node.getText().toString() : null;
+    }
+
+    @Override
+    public String getContentDescription(AccessibilityNodeInfo node) {
+        propertyReads++;
+        return node.getContentDescription() != null ? node.getContentDescription().toString() : null;
+    }
+
+    @Override
+    public String getViewId(AccessibilityNodeInfo node) {
+        propertyReads++;
+        return node.getViewIdResourceName();
+    }
+
+    @Override
+    public int getFlags(AccessibilityNodeInfo node) {
+        int flags = 0;
+        flags |= node.isClickable() ? 1 << ViewSnapshot.FLAG_CLICKABLE : 0;
+        flags |= node.isEnabled() ? 1 << ViewSnapshot.FLAG_ENABLED : 0;
+        flags |= node.isFocusable() ? 1 << ViewSnapshot.FLAG_FOCUSABLE : 0;
+        flags |= node.isFocused() ? 1 << ViewSnapshot.FLAG_FOCUSED : 0;
+        propertyReads += ViewSnapshot.FLAG_COUNT;
+        return flags;
+    }
+
+    @Override
+    public void getBounds(AccessibilityNodeInfo node, int[] out) {
+        propertyReads++;
+        node.getBoundsInScreen(boundsRect);
+        out[0] = boundsRect.left;
+        out[1] = boundsRect.top;
+        out[2] = boundsRect.right;
+        out[3] = boundsRect.bottom;
+    }
+
+    @Override
+    public int getWindowId(AccessibilityNodeInfo node) {
+        propertyReads++;
+        return node.getWindowId();
+    }
+
+    @Override
+    public boolean isVisibleToUser(AccessibilityNodeInfo node) {
+        propertyReads++;
+        return node.isVisibleToUser();
+    }
+
+    // 除点击和聚焦外，长按、滚动、勾选、编辑以及带标签的操作（自定义操作必须有标签）都算交互
+    @Override
+    public boolean hasActions(AccessibilityNodeInfo node) {
+        propertyReads++;
+        if (node.isClickable() || node.isLongClickable() || node.isFocusable() || node.isScrollable() ||
+                node.isCheckable() || node.isEditable()) {
+            return true;
+        }
+        for (AccessibilityNodeInfo.AccessibilityAction action : node.getActionList()) {
+            if (action.getLabel() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
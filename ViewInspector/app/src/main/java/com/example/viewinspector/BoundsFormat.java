@@ -0,0 +1,17 @@
+package com.example.viewinspector;
+
+// 边界以四个 int 保存，只在真正显示或导出时才格式化为 "[l,t][r,b]"
+public final class BoundsFormat {
+
+    private BoundsFormat() {
+    }
+
+    public static StringBuilder append(StringBuilder sb, int left, int top, int right, int bottom) {
+        return sb.append('[').append(left).append(',').append(top)
+                 .append("][").append(right).append(',').append(bottom).append(']');
+    }
+
+    public static String format(int left, int top, int right, int bottom) {
+        return append(new StringBuilder(24), left, top, right, bottom).toString();
+    }
+}
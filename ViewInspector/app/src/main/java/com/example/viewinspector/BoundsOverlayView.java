@@ -0,0 +1,133 @@
+package com.example.viewinspector;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.MotionEvent;
+import android.view.View;
+
+// 在全屏悬浮层上绘制快照中所有节点的边界，点击时列出包含该点的节点。
+// 所有边框在 setSnapshot 时预先展开成线段数组，onDraw 只调用一次 drawLines，不创建对象
+public class BoundsOverlayView extends View {
+
+    public interface OnNodesTappedListener {
+        // nodes 中前 count 个为包含点击位置的节点，按先序排列，祖先在前
+        void onNodesTapped(ViewSnapshot snapshot, int[] nodes, int count, long queryNanos);
+    }
+
+    private final Paint boundsPaint = new Paint();
+    private final Paint highlightFillPaint = new Paint();
+    private final Paint highlightStrokePaint = new Paint();
+    private final int[] screenLocation = new int[2];
+
+    private ViewSnapshot snapshot = ViewSnapshot.empty();
+    // 每个节点 4 条线段，每条 4 个 float
+    private float[] lines = new float[0];
+    private int lineFloats;
+    private int[] hits = new int[0];
+    private int highlighted = -1;
+    private OnNodesTappedListener listener;
+
+    public BoundsOverlayView(Context context) {
+        super(context);
+        float density = context.getResources().getDisplayMetrics().density;
+        boundsPaint.setColor(0xAA2196F3);
+        boundsPaint.setStrokeWidth(density);
+        highlightFillPaint.setColor(0x44FF9800);
+        highlightFillPaint.setStyle(Paint.Style.FILL);
+        highlightStrokePaint.setColor(Color.rgb(0xFF, 0x98, 0x00));
+        highlightStrokePaint.setStyle(Paint.Style.STROKE);
+        highlightStrokePaint.setStrokeWidth(density * 2);
+    }
+
+    public void setOnNodesTappedListener(OnNodesTappedListener listener) {
+        this.listener = listener;
+    }
+
+    public ViewSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(ViewSnapshot snapshot) {
+        this.snapshot = snapshot;
+        int size = snapshot.size();
+        if (lines.length < size * 16) {
+            lines = new float[size * 16];
+        }
+        if (hits.length < size) {
+            hits = new int[size];
+        }
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            float left = snapshot.getLeft(i);
+            float top = snapshot.getTop(i);
+            float right = snapshot.getRight(i);
+            float bottom = snapshot.getBottom(i);
+            if (left >= right || top >= bottom) {
+                continue;
+            }
+            position = putLine(position, left, top, right, top);
+            position = putLine(position, right, top, right, bottom);
+            position = putLine(position, right, bottom, left, bottom);
+            position = putLine(position, left, bottom, left, top);
+        }
+        lineFloats = position;
+        highlighted = -1;
+        invalidate();
+    }
+
+    private int putLine(int position, float startX, float startY, float stopX, float stopY) {
+        lines[position++] = startX;
+        lines[position++] = startY;
+        lines[position++] = stopX;
+        lines[position++] = stopY;
+        return position;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        // 节点边界是屏幕坐标，绘制时减去本视图在屏幕上的偏移
+        getLocationOnScreen(screenLocation);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        canvas.save();
+        canvas.translate(-screenLocation[0], -screenLocation[1]);
+        if (lineFloats > 0) {
+            canvas.drawLines(lines, 0, lineFloats, boundsPaint);
+        }
+        if (highlighted >= 0) {
+            float left = snapshot.getLeft(highlighted);
+            float top = snapshot.getTop(highlighted);
+            float right = snapshot.getRight(highlighted);
+            float bottom = snapshot.getBottom(highlighted);
+            canvas.drawRect(left, top, right, bottom, highlightFillPaint);
+            canvas.drawRect(left, top, right, bottom, highlightStrokePaint);
+        }
+        canvas.restore();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (event.getAction() == MotionEvent.ACTION_UP) {
+            identify((int) event.getRawX(), (int) event.getRawY());
+        }
+        return true;
+    }
+
+    private void identify(int x, int y) {
+        SnapshotBoundsIndex index = snapshot.getBoundsIndex();
+        long start = System.nanoTime();
+        int count = index.nodesAt(x, y, hits);
+        long queryNanos = System.nanoTime() - start;
+        highlighted = index.deepest(hits, count);
+        invalidate();
+        if (listener != null) {
+            listener.onNodesTapped(snapshot, hits, count, queryNanos);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.viewinspector;
+
+// 只暴露屏幕边界与目标区域相交的子节点，其余子节点当作已消失，NodeTraverser 因而不会进入这些子树
+public class BoundsPrunedSource<N> implements NodeSource<N> {
+
+    private final NodeSource<N> source;
+    private final int left;
+    private final int top;
+    private final int right;
+    private final int bottom;
+    private final int[] scratchBounds = new int[4];
+    private long prunedCount;
+
+    // 点选时传入 (x, y, x + 1, y + 1)
+    public BoundsPrunedSource(NodeSource<N> source, int left, int top, int right, int bottom) {
+        this.source = source;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public boolean intersects(N node) {
+        source.getBounds(node, scratchBounds);
+        return scratchBounds[0] < right && left < scratchBounds[2] &&
+                scratchBounds[1] < bottom && top < scratchBounds[3];
+    }
+
+    // 被剪掉的子树根节点数
+    public long getPrunedCount() {
+        return prunedCount;
+    }
+
+    @Override
+    public int getChildCount(N node) {
+        return source.getChildCount(node);
+    }
+
+    @Override
+    public N getChild(N node, int index) {
+        N child = source.getChild(node, index);
+        if (child != null && !intersects(child)) {
+            source.release(child);
+            prunedCount++;
+            return null;
+        }
+        return child;
+    }
+
+    @Override
+    public void release(N node) {
+        source.release(node);
+    }
+
+    @Override
+    public String getClassName(N node) {
+        return source.getClassName(node);
+    }
+
+    @Override
+    public String getText(N node) {
+        return source.getText(node);
+    }
+
+    @Override
+    public String getContentDescription(N node) {
+        return source.getContentDescription(node);
+    }
+
+    @Override
+    public String getViewId(N node) {
+        return source.getViewId(node);
+    }
+
+    @Override
+    public int getFlags(N node) {
+        return source.getFlags(node);
+    }
+
+    @Override
+    public void getBounds(N node, int[] out) {
+        source.getBounds(node, out);
+    }
+
+    @Override
+    public int getWindowId(N node) {
+        return source.getWindowId(node);
+    }
+
+    @Override
+    public boolean isVisibleToUser(N node) {
+        return source.isVisibleToUser(node);
+    }
+
+    @Override
+    public boolean hasActions(N node) {
+        return source.hasActions(node);
+    }
+}
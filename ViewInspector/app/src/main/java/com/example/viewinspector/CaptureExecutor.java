@@ -0,0 +1,95 @@
+package com.example.viewinspector;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+// 在后台线程执行捕获，新的请求会取消尚未完成的旧请求，结果只在完整时投递到主线程
+public class CaptureExecutor {
+
+    private static final String TAG = "CaptureExecutor";
+
+    public interface Callback {
+        void onCaptured(ViewSnapshot snapshot);
+    }
+
+    // 所有捕获和镜像维护都在同一个工作线程上串行执行，主线程不会因等待锁而卡住
+    // 支持延迟任务，供 CaptureScheduler 在同一线程上安排合并后的捕获
+    private static ScheduledExecutorService worker;
+
+    // 结果投递到的线程，默认为主线程
+    private final Executor callbackExecutor;
+    private long generation;
+    private Future<?> pending;
+
+    public CaptureExecutor() {
+        this(new Handler(Looper.getMainLooper())::post);
+    }
+
+    CaptureExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    static synchronized ScheduledExecutorService worker() {
+        if (worker == null) {
+            worker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "view-capture");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return worker;
+    }
+
+    public static void execute(Runnable task) {
+        worker().execute(task);
+    }
+
+    public synchronized Future<?> submit(final Callable<ViewSnapshot> capture, final Callback callback) {
+        final long requestGeneration = ++generation;
+        if (pending != null) {
+            pending.cancel(true);
+        }
+        pending = worker().submit(() -> {
+            ViewSnapshot snapshot;
+            try {
+                snapshot = capture.call();
+            } catch (Exception e) {
+                Log.w(TAG, "捕获失败", e);
+                return;
+            }
+            if (snapshot == null || snapshot.truncation == NodeTraverser.Truncation.CANCELLED || !isCurrent(requestGeneration)) {
+                // 已有更新的请求，丢弃这次结果
+                return;
+            }
+            callbackExecutor.execute(() -> {
+                if (isCurrent(requestGeneration)) {
+                    callback.onCaptured(snapshot);
+                }
+            });
+        });
+        return pending;
+    }
+
+    public synchronized boolean isPending() {
+        return pending != null && !pending.isDone();
+    }
+
+    public synchronized void cancel() {
+        generation++;
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    private synchronized boolean isCurrent(long requestGeneration) {
+        return requestGeneration == generation;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.viewinspector;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+// 进程内的捕获统计：记录每次捕获的节点数、节点访问次数和各阶段耗时，并汇总为直方图
+public class CaptureMetrics {
+
+    public static final int PHASE_TRAVERSAL = 0;
+    public static final int PHASE_CONVERSION = 1;
+    public static final int PHASE_FILTER = 2;
+    public static final int PHASE_RENDER = 3;
+    public static final int PHASE_TOTAL = 4;
+    private static final int PHASE_COUNT = 5;
+    private static final String[] PHASE_NAMES = {"traversal", "conversion", "filter", "render", "total"};
+
+    // 一次捕获的记录
+    public static class Capture {
+        public long startNanos;
+        public int nodeCount;
+        public long childCalls;
+        // 实际的 getChild 次数及其中耗时低于 AccessibilityNodeSource.FAST_FETCH_NANOS 的次数。
+        // 后者是按耗时推测的缓存命中，不是系统统计
+        public long childFetches;
+        public long fastFetches;
+        // 精简选项跳过的子树数和折叠的包装节点数，见 NodeTraverser.Result
+        public long culledSubtrees;
+        public long collapsedNodes;
+        // AccessibilityNodeSource 实际读取的节点属性数
+        public long propertyReads;
+        public long traversalNanos;
+        public long conversionNanos;
+        public long totalNanos;
+        // 按快照各列长度估算的内存占用，不是实测的分配量
+        public long estimatedSnapshotBytes;
+        // 镜像仍然有效，没有重新遍历
+        public boolean reusedMirror;
+        public NodeTraverser.Truncation truncation = NodeTraverser.Truncation.NONE;
+    }
+
+    private static final CaptureMetrics instance = new CaptureMetrics();
+
+    // 耗时以微秒记录
+    private final MetricsHistogram[] phases = new MetricsHistogram[PHASE_COUNT];
+    private final MetricsHistogram nodeCounts = new MetricsHistogram();
+    private final MetricsHistogram childCalls = new MetricsHistogram();
+    private final MetricsHistogram estimatedSnapshotBytes = new MetricsHistogram();
+    private long captureCount;
+    private long reusedCount;
+    private long totalChildFetches;
+    private long totalFastFetches;
+    private Capture lastCapture;
+
+    CaptureMetrics() {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            phases[i] = new MetricsHistogram();
+        }
+    }
+
+    public static CaptureMetrics getInstance() {
+        return instance;
+    }
+
+    public static Capture begin() {
+        Capture capture = new Capture();
+        capture.startNanos = System.nanoTime();
+        return capture;
+    }
+
+    // 填好各字段后调用，totalNanos 为 0 时按开始时间计算
+    public synchronized void record(Capture capture) {
+        if (capture.totalNanos == 0) {
+            capture.totalNanos = System.nanoTime() - capture.startNanos;
+        }
+        captureCount++;
+        if (capture.reusedMirror) {
+            reusedCount++;
+        } else {
+            phases[PHASE_TRAVERSAL].record(capture.traversalNanos / 1000);
+            childCalls.record(capture.childCalls);
+            totalChildFetches += capture.childFetches;
+            totalFastFetches += capture.fastFetches;
+        }
+        phases[PHASE_CONVERSION].record(capture.conversionNanos / 1000);
+        phases[PHASE_TOTAL].record(capture.totalNanos / 1000);
+        nodeCounts.record(capture.nodeCount);
+        estimatedSnapshotBytes.record(capture.estimatedSnapshotBytes);
+        lastCapture = capture;
+    }
+
+    // 记录筛选、渲染等捕获之外的阶段
+    public void recordPhase(int phase, long nanos) {
+        phases[phase].record(nanos / 1000);
+    }
+
+    public synchronized Capture getLastCapture() {
+        return lastCapture;
+    }
+
+    public synchronized long getCaptureCount() {
+        return captureCount;
+    }
+
+    // 所有遍历累计的快速获取比例（推测的缓存命中率），没有获取过子节点时为 0
+    public synchronized double getFastFetchRate() {
+        return totalChildFetches == 0 ? 0 : (double) totalFastFetches / totalChildFetches;
+    }
+
+    public MetricsHistogram getPhase(int phase) {
+        return phases[phase];
+    }
+
+    public synchronized void reset() {
+        for (MetricsHistogram histogram : phases) {
+            histogram.reset();
+        }
+        nodeCounts.reset();
+        childCalls.reset();
+        estimatedSnapshotBytes.reset();
+        captureCount = 0;
+        reusedCount = 0;
+        totalChildFetches = 0;
+        totalFastFetches = 0;
+        lastCapture = null;
+    }
+
+    // 输出到 adb shell dumpsys activity service com.example.viewinspector/.ViewInspectorAccessibilityService
+    public synchronized void dump(PrintWriter writer) {
+        writer.println("Capture metrics");
+        writer.printf(Locale.ROOT, "  captures: %d (mirror reused: %d)%n", captureCount, reusedCount);
+        writer.printf(Locale.ROOT, "  fast child fetches: %d/%d under %dus (%.1f%%, heuristic for node cache hits)%n",
+                totalFastFetches, totalChildFetches, AccessibilityNodeSource.FAST_FETCH_NANOS / 1000,
+                getFastFetchRate() * 100);
+        if (lastCapture != null) {
+            writer.printf(Locale.ROOT,
+                    "  last: nodes=%d childCalls=%d fastFetches=%d/%d propertyReads=%d traversal=%.1fms conversion=%.1fms"
+                            + " total=%.1fms estimatedBytes~%d reused=%b truncation=%s culled=%d collapsed=%d%n",
+                    lastCapture.nodeCount, lastCapture.childCalls, lastCapture.fastFetches, lastCapture.childFetches,
+                    lastCapture.propertyReads,
+                    lastCapture.traversalNanos / 1e6, lastCapture.conversionNanos / 1e6,
+                    lastCapture.totalNanos / 1e6, lastCapture.estimatedSnapshotBytes, lastCapture.reusedMirror,
+                    lastCapture.truncation, lastCapture.culledSubtrees, lastCapture.collapsedNodes);
+        }
+        writer.printf(Locale.ROOT, "  %-14s %8s %10s %10s %10s %10s%n", "phase(ms)", "count", "p50", "p90", "p99", "max");
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            dumpHistogram(writer, PHASE_NAMES[i], phases[i], 1000.0);
+        }
+        writer.printf(Locale.ROOT, "  %-14s %8s %10s %10s %10s %10s%n", "per capture", "count", "p50", "p90", "p99", "max");
+        dumpHistogram(writer, "nodes", nodeCounts, 1);
+        dumpHistogram(writer, "childCalls", childCalls, 1);
+        dumpHistogram(writer, "estimatedBytes", estimatedSnapshotBytes, 1);
+    }
+
+    private static void dumpHistogram(PrintWriter writer, String name, MetricsHistogram histogram, double divisor) {
+        writer.printf(Locale.ROOT, "  %-14s %8d %10.1f %10.1f %10.1f %10.1f%n", name, histogram.getCount(),
+                histogram.percentile(0.5) / divisor, histogram.percentile(0.9) / divisor,
+                histogram.percentile(0.99) / divisor, histogram.getMax() / divisor);
+    }
+}
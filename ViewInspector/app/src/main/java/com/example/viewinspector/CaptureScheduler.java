@@ -0,0 +1,160 @@
+package com.example.viewinspector;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 合并连续的窗口变化事件后再触发捕获：
+ * - 事件停止 quietMillis 后触发，连续不断的事件最迟在第一个事件 maxLatencyMillis 后触发
+ * - 根据实测的捕获耗时自适应：耗时越长，等待的安静期越长，两次捕获之间的间隔也越大，
+ *   使捕获占用的时间不超过 MAX_DUTY_CYCLE，避免拖慢被检查的应用
+ */
+public class CaptureScheduler {
+
+    public interface Task {
+        // 在 executor 上执行，windowIds 为这段时间内发生变化的窗口
+        void run(int[] windowIds);
+    }
+
+    public static final long DEFAULT_QUIET_MILLIS = 100;
+    public static final long DEFAULT_MAX_LATENCY_MILLIS = 500;
+
+    // 捕获最多占用的时间比例
+    static final double MAX_DUTY_CYCLE = 0.25;
+    // 因耗时而退避的最大间隔
+    static final long MAX_BACKOFF_MILLIS = 5000;
+    // 耗时的指数移动平均权重
+    private static final double COST_WEIGHT = 0.3;
+
+    private final ScheduledExecutorService executor;
+    private final long quietMillis;
+    private final long maxLatencyMillis;
+    private final Task task;
+
+    private int[] pendingWindows = new int[4];
+    private int pendingCount;
+    private long firstEventTime = -1;
+    private long lastEventTime;
+    private long lastCaptureEnd;
+    private double averageCostMillis;
+    private ScheduledFuture<?> scheduled;
+    private boolean running;
+    private boolean stopped;
+
+    private long eventCount;
+    private long captureCount;
+
+    public CaptureScheduler(ScheduledExecutorService executor, long quietMillis, long maxLatencyMillis, Task task) {
+        this.executor = executor;
+        this.quietMillis = quietMillis;
+        this.maxLatencyMillis = Math.max(quietMillis, maxLatencyMillis);
+        this.task = task;
+    }
+
+    // 可在任意线程调用，只记录事件；定时器在触发时才重新计算触发时间，避免每个事件都重新安排
+    public synchronized void onEvent(int windowId) {
+        if (stopped) {
+            return;
+        }
+        eventCount++;
+        long now = now();
+        if (firstEventTime < 0) {
+            firstEventTime = now;
+        }
+        lastEventTime = now;
+        addWindow(windowId);
+        if (scheduled == null && !running) {
+            schedule(now);
+        }
+    }
+
+    public synchronized void stop() {
+        stopped = true;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        pendingCount = 0;
+        firstEventTime = -1;
+    }
+
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    public synchronized long getCaptureCount() {
+        return captureCount;
+    }
+
+    public synchronized double getAverageCostMillis() {
+        return averageCostMillis;
+    }
+
+    // 下一次捕获的时间：安静期或最大延迟先到者，但不早于按耗时退避的最小间隔
+    synchronized long nextFireTime() {
+        long quiet = Math.max(quietMillis, (long) averageCostMillis);
+        long fireAt = Math.min(lastEventTime + quiet, firstEventTime + maxLatencyMillis);
+        long gap = Math.min((long) (averageCostMillis * (1 / MAX_DUTY_CYCLE - 1)), MAX_BACKOFF_MILLIS);
+        return Math.max(fireAt, lastCaptureEnd + gap);
+    }
+
+    private void schedule(long now) {
+        scheduled = executor.schedule(this::fire, Math.max(0, nextFireTime() - now), TimeUnit.MILLISECONDS);
+    }
+
+    private void fire() {
+        int[] windows;
+        synchronized (this) {
+            scheduled = null;
+            if (stopped || firstEventTime < 0) {
+                return;
+            }
+            long now = now();
+            if (now < nextFireTime()) {
+                // 期间又有新事件，继续等待
+                schedule(now);
+                return;
+            }
+            windows = Arrays.copyOf(pendingWindows, pendingCount);
+            pendingCount = 0;
+            firstEventTime = -1;
+            running = true;
+        }
+
+        long start = now();
+        try {
+            task.run(windows);
+        } finally {
+            synchronized (this) {
+                long end = now();
+                long cost = end - start;
+                averageCostMillis = captureCount == 0 ? cost :
+                        averageCostMillis * (1 - COST_WEIGHT) + cost * COST_WEIGHT;
+                captureCount++;
+                lastCaptureEnd = end;
+                running = false;
+                if (!stopped && firstEventTime >= 0 && scheduled == null) {
+                    schedule(end);
+                }
+            }
+        }
+    }
+
+    private void addWindow(int windowId) {
+        for (int i = 0; i < pendingCount; i++) {
+            if (pendingWindows[i] == windowId) {
+                return;
+            }
+        }
+        if (pendingCount == pendingWindows.length) {
+            pendingWindows = Arrays.copyOf(pendingWindows, pendingCount * 2);
+        }
+        pendingWindows[pendingCount++] = windowId;
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000L;
+    }
+}
@@ -0,0 +1,541 @@
+package com.example.viewinspector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/*
+ * 只监听本机回环地址的检查服务器，可通过 adb forward tcp:38300 tcp:38300 从电脑访问。
+ *
+ * 请求为一行文本，以 '\n' 结束：
+ *   PING
+ *   SNAPSHOT [json|ndjson|binary]   当前快照，默认 json；binary 为 SnapshotFile 格式
+ *   QUERY <选择器>                  {"count":n,"matches":[节点下标...]}
+ *   DIFF                            与本服务器上一次捕获相比的差异
+ * 响应为一行 "OK <字节数>\n" 或 "ERR <字节数>\n"，随后是对应长度的内容（ERR 的内容为错误信息）。
+ *
+ * 所有连接由一个线程通过 Selector 处理；捕获和编码在 captureExecutor 上执行。
+ * 多个客户端同时请求时共用同一次捕获，编码结果按快照缓存，每个连接只写出缓冲区的副本视图，不复制数据。
+ */
+public class InspectionServer {
+
+    public static final int DEFAULT_PORT = 38300;
+
+    // 捕获结果在这段时间内直接复用，避免高频轮询的客户端触发重复遍历
+    static final long FRESH_MILLIS = 50;
+    private static final int MAX_REQUEST_LINE = 4096;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int FORMAT_JSON = 0;
+    private static final int FORMAT_NDJSON = 1;
+    private static final int FORMAT_BINARY = 2;
+
+    public interface SnapshotProvider {
+        // 在 captureExecutor 上调用，可以阻塞
+        ViewSnapshot capture() throws Exception;
+    }
+
+    private interface SnapshotCallback {
+        void onSnapshot(ViewSnapshot snapshot, ViewSnapshot previous, Exception error);
+    }
+
+    private static class Connection {
+        final SocketChannel channel;
+        final ByteBuffer readBuffer = ByteBuffer.allocate(MAX_REQUEST_LINE);
+        final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+        // 正在处理一个请求，同一连接上的后续请求按顺序等待
+        boolean busy;
+        // 过长的请求行已回复 ERR，丢弃其余内容直到下一个 '\n'
+        boolean discarding;
+        boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final int requestedPort;
+    private final SnapshotProvider provider;
+    private final Executor captureExecutor;
+    private final File cacheDir;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    private volatile boolean running;
+    // 其他线程交给选择器线程执行的任务
+    private final ConcurrentLinkedQueue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+
+    // 以下字段由 captureLock 保护
+    private final Object captureLock = new Object();
+    private boolean capturing;
+    private final List<SnapshotCallback> waiting = new ArrayList<>();
+    private ViewSnapshot latest;
+    private ViewSnapshot previous;
+    private long latestTime;
+    // 按快照缓存的编码结果（只读），快照更换时失效。编码本身在锁外进行，只在发布结果时加锁
+    private ViewSnapshot encodedSnapshot;
+    private final ByteBuffer[] encoded = new ByteBuffer[3];
+
+    // cacheDir 为 null 时不支持 binary 格式
+    public InspectionServer(int port, SnapshotProvider provider, Executor captureExecutor, File cacheDir) {
+        this.requestedPort = port;
+        this.provider = provider;
+        this.captureExecutor = captureExecutor;
+        this.cacheDir = cacheDir;
+    }
+
+    // 返回实际监听的端口，port 为 0 时由系统分配
+    public synchronized int start() throws IOException {
+        if (running) {
+            return getPort();
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), requestedPort));
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread = new Thread(this::loop, "inspection-server");
+        thread.setDaemon(true);
+        thread.start();
+        return getPort();
+    }
+
+    public synchronized int getPort() {
+        return serverChannel != null ? serverChannel.socket().getLocalPort() : -1;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loop() {
+        try {
+            while (running) {
+                selector.select();
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                read(connection);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(connection);
+                                updateInterest(connection);
+                            }
+                        } catch (IOException e) {
+                            close(connection);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            running = false;
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    close((Connection) key.attachment());
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    private void read(Connection connection) throws IOException {
+        int count = connection.channel.read(connection.readBuffer);
+        if (count < 0) {
+            close(connection);
+            return;
+        }
+        processRequests(connection);
+        if (!connection.closed && !connection.busy && !connection.readBuffer.hasRemaining()) {
+            // 请求行超过上限
+            connection.readBuffer.clear();
+            connection.discarding = true;
+            respond(connection, false, ByteBuffer.wrap("请求过长".getBytes(UTF_8)));
+        }
+        updateInterest(connection);
+    }
+
+    // 从读缓冲区取出完整的请求行并依次处理；处理中的请求完成前不读取下一行
+    private void processRequests(Connection connection) {
+        ByteBuffer buffer = connection.readBuffer;
+        while (!connection.busy && !connection.closed) {
+            int end = -1;
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    end = i;
+                    break;
+                }
+            }
+            if (connection.discarding) {
+                if (end < 0) {
+                    buffer.clear();
+                    return;
+                }
+                // 丢弃过长请求行的剩余部分，之后的内容按新请求解析
+                buffer.flip();
+                buffer.position(end + 1);
+                buffer.compact();
+                connection.discarding = false;
+                continue;
+            }
+            if (end < 0) {
+                return;
+            }
+            byte[] line = new byte[end];
+            buffer.flip();
+            buffer.get(line);
+            buffer.get();
+            buffer.compact();
+            connection.busy = true;
+            handle(connection, new String(line, UTF_8).trim());
+        }
+    }
+
+    private void handle(final Connection connection, String line) {
+        String command = line;
+        String argument = "";
+        int space = line.indexOf(' ');
+        if (space >= 0) {
+            command = line.substring(0, space);
+            argument = line.substring(space + 1).trim();
+        }
+
+        switch (command.toUpperCase(Locale.ROOT)) {
+            case "PING":
+                respond(connection, true, ByteBuffer.wrap("pong".getBytes(UTF_8)));
+                break;
+            case "SNAPSHOT": {
+                final int format = parseFormat(argument);
+                if (format < 0 || (format == FORMAT_BINARY && cacheDir == null)) {
+                    respond(connection, false, ByteBuffer.wrap(("不支持的格式: " + argument).getBytes(UTF_8)));
+                    break;
+                }
+                obtainSnapshot((snapshot, previousSnapshot, error) -> {
+                    if (error != null) {
+                        respondLater(connection, false, errorBody(error));
+                        return;
+                    }
+                    try {
+                        respondLater(connection, true, encode(snapshot, format));
+                    } catch (IOException e) {
+                        respondLater(connection, false, errorBody(e));
+                    }
+                });
+                break;
+            }
+            case "QUERY": {
+                final SelectorQuery query;
+                try {
+                    query = SelectorQuery.compile(argument);
+                } catch (IllegalArgumentException e) {
+                    respond(connection, false, errorBody(e));
+                    break;
+                }
+                obtainSnapshot((snapshot, previousSnapshot, error) -> {
+                    if (error != null) {
+                        respondLater(connection, false, errorBody(error));
+                        return;
+                    }
+                    int[] matches = query.evaluate(snapshot);
+                    StringBuilder sb = new StringBuilder(16 + matches.length * 6);
+                    sb.append("{\"count\":").append(matches.length).append(",\"matches\":");
+                    appendArray(sb, matches);
+                    sb.append('}');
+                    respondLater(connection, true, ByteBuffer.wrap(sb.toString().getBytes(UTF_8)));
+                });
+                break;
+            }
+            case "DIFF":
+                obtainSnapshot((snapshot, previousSnapshot, error) -> {
+                    if (error != null) {
+                        respondLater(connection, false, errorBody(error));
+                        return;
+                    }
+                    respondLater(connection, true, ByteBuffer.wrap(encodeDiff(snapshot, previousSnapshot).getBytes(UTF_8)));
+                });
+                break;
+            default:
+                respond(connection, false, ByteBuffer.wrap(("未知命令: " + command).getBytes(UTF_8)));
+                break;
+        }
+    }
+
+    private static int parseFormat(String argument) {
+        if (argument.isEmpty() || argument.equalsIgnoreCase("json")) {
+            return FORMAT_JSON;
+        } else if (argument.equalsIgnoreCase("ndjson")) {
+            return FORMAT_NDJSON;
+        } else if (argument.equalsIgnoreCase("binary")) {
+            return FORMAT_BINARY;
+        }
+        return -1;
+    }
+
+    // 取得足够新的快照：正在捕获时加入等待列表，与其他请求共用同一次捕获
+    private void obtainSnapshot(SnapshotCallback callback) {
+        synchronized (captureLock) {
+            if (latest != null && System.currentTimeMillis() - latestTime < FRESH_MILLIS) {
+                final ViewSnapshot snapshot = latest;
+                final ViewSnapshot previousSnapshot = previous;
+                captureExecutor.execute(() -> callback.onSnapshot(snapshot, previousSnapshot, null));
+                return;
+            }
+            waiting.add(callback);
+            if (capturing) {
+                return;
+            }
+            capturing = true;
+        }
+        captureExecutor.execute(() -> {
+            ViewSnapshot snapshot = null;
+            Exception error = null;
+            try {
+                snapshot = provider.capture();
+            } catch (Exception e) {
+                error = e;
+            }
+            List<SnapshotCallback> callbacks;
+            ViewSnapshot previousSnapshot;
+            synchronized (captureLock) {
+                capturing = false;
+                if (snapshot != null && snapshot != latest) {
+                    previous = latest;
+                    latest = snapshot;
+                }
+                if (snapshot != null) {
+                    latestTime = System.currentTimeMillis();
+                }
+                previousSnapshot = previous;
+                callbacks = new ArrayList<>(waiting);
+                waiting.clear();
+            }
+            for (SnapshotCallback waitingCallback : callbacks) {
+                waitingCallback.onSnapshot(snapshot, previousSnapshot,
+                        snapshot == null && error == null ? new IOException("没有可用的快照") : error);
+            }
+        });
+    }
+
+    // 每个快照每种格式只编码一次，返回只读缓冲区的独立视图。
+    // 编码在捕获线程上、锁外进行，选择器线程在 obtainSnapshot 中不会等待编码
+    private ByteBuffer encode(ViewSnapshot snapshot, int format) throws IOException {
+        synchronized (captureLock) {
+            if (encodedSnapshot == snapshot && encoded[format] != null) {
+                return encoded[format].duplicate();
+            }
+        }
+        ByteBuffer buffer = format == FORMAT_BINARY ? encodeBinary(snapshot) : encodeJson(snapshot, format);
+        synchronized (captureLock) {
+            // 只有缓存仍是同一快照，或该快照是最新快照时才发布，较旧快照的编码结果只用于本次响应
+            if (encodedSnapshot != snapshot && (snapshot == latest || encodedSnapshot == null)) {
+                encodedSnapshot = snapshot;
+                Arrays.fill(encoded, null);
+            }
+            if (encodedSnapshot == snapshot) {
+                if (encoded[format] != null) {
+                    // 其他线程已先完成同一编码
+                    return encoded[format].duplicate();
+                }
+                encoded[format] = buffer;
+            }
+        }
+        return buffer.duplicate();
+    }
+
+    private static ByteBuffer encodeJson(ViewSnapshot snapshot, int format) throws IOException {
+        BufferOutputStream out = new BufferOutputStream(Math.max(snapshot.size() * 160, 64));
+        JsonSnapshotExporter.export(snapshot, out,
+                format == FORMAT_NDJSON ? JsonSnapshotExporter.Format.NDJSON : JsonSnapshotExporter.Format.JSON, null);
+        return out.toByteBuffer();
+    }
+
+    // 直接包装内部数组，编码结果不再复制
+    private static class BufferOutputStream extends ByteArrayOutputStream {
+        BufferOutputStream(int size) {
+            super(size);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count).asReadOnlyBuffer();
+        }
+    }
+
+    // 二进制格式写入缓存文件后映射到内存，发送时直接使用映射区。
+    // 映射建立后立即删除文件，映射区在缓冲区被回收前一直有效
+    private ByteBuffer encodeBinary(ViewSnapshot snapshot) throws IOException {
+        File binaryFile = File.createTempFile("inspection", ".vis", cacheDir);
+        try {
+            SnapshotFileWriter.write(snapshot, binaryFile);
+            try (RandomAccessFile file = new RandomAccessFile(binaryFile, "r")) {
+                FileChannel channel = file.getChannel();
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } finally {
+            binaryFile.delete();
+        }
+    }
+
+    static String encodeDiff(ViewSnapshot snapshot, ViewSnapshot previousSnapshot) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"nodeCount\":").append(snapshot.size());
+        if (previousSnapshot == null) {
+            return sb.append(",\"baseline\":false}").toString();
+        }
+        SnapshotDiff diff = snapshot.diffFrom(previousSnapshot);
+        sb.append(",\"baseline\":true,\"added\":");
+        appendArray(sb, diff.getAdded());
+        sb.append(",\"removed\":");
+        appendArray(sb, diff.getRemoved());
+        sb.append(",\"moved\":");
+        appendArray(sb, diff.getMoved());
+        sb.append(",\"changed\":");
+        appendArray(sb, diff.getChanged());
+        return sb.append('}').toString();
+    }
+
+    private static void appendArray(StringBuilder sb, int[] values) {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        sb.append(']');
+    }
+
+    private static ByteBuffer errorBody(Exception error) {
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        return ByteBuffer.wrap(message.getBytes(UTF_8));
+    }
+
+    // 由其他线程调用：交给选择器线程写出，然后继续处理同一连接上已到达的请求
+    private void respondLater(final Connection connection, final boolean ok, final ByteBuffer body) {
+        selectorTasks.add(() -> {
+            respond(connection, ok, body);
+            processRequests(connection);
+            updateInterest(connection);
+        });
+        selector.wakeup();
+    }
+
+    // 在选择器线程上调用：排入响应头和内容并尽量立即写出
+    private void respond(Connection connection, boolean ok, ByteBuffer body) {
+        if (connection.closed) {
+            return;
+        }
+        String header = (ok ? "OK " : "ERR ") + body.remaining() + "\n";
+        connection.writeQueue.add(ByteBuffer.wrap(header.getBytes(UTF_8)));
+        connection.writeQueue.add(body);
+        connection.busy = false;
+        try {
+            write(connection);
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    // 聚集写出队列中的缓冲区，套接字缓冲区已满时留待可写时继续
+    private void write(Connection connection) throws IOException {
+        while (!connection.writeQueue.isEmpty()) {
+            ByteBuffer[] buffers = connection.writeQueue.toArray(new ByteBuffer[0]);
+            long written = connection.channel.write(buffers);
+            while (!connection.writeQueue.isEmpty() && !connection.writeQueue.peek().hasRemaining()) {
+                connection.writeQueue.poll();
+            }
+            if (written == 0) {
+                return;
+            }
+        }
+    }
+
+    // 处理请求期间不再读取，避免请求堆积；有待写数据时关注可写事件
+    private void updateInterest(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        SelectionKey key = connection.channel.keyFor(selector);
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        int ops = connection.busy ? 0 : SelectionKey.OP_READ;
+        if (!connection.writeQueue.isEmpty()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    private void close(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        connection.writeQueue.clear();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
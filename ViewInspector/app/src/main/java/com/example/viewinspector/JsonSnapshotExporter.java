@@ -0,0 +1,316 @@
+package com.example.viewinspector;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+// 以流的方式输出 JSON / NDJSON：节点到达即写出，内存占用只与树的深度有关
+public class JsonSnapshotExporter implements NodeSink {
+
+    public enum Format {
+        // {"nodes":[...],"windows":[...],"nodeCount":n,"truncation":"..."}
+        JSON,
+        // 每行一个节点对象，最后一行为 {"summary":{...}}
+        NDJSON
+    }
+
+    // 可选输出的字段，名称即 JSON 中的键
+    public enum Field {
+        INDEX("index"),
+        DEPTH("depth"),
+        PARENT("parent"),
+        WINDOW_ID("windowId"),
+        CLASS_NAME("className"),
+        TEXT("text"),
+        CONTENT_DESCRIPTION("contentDescription"),
+        VIEW_ID("viewId"),
+        FLAGS("flags"),
+        BOUNDS("bounds");
+
+        public final String key;
+
+        Field(String key) {
+            this.key = key;
+        }
+
+        // 解析逗号分隔的字段名（与 key 相同，不区分大小写），为空时返回全部字段
+        public static EnumSet<Field> parse(String fields) {
+            EnumSet<Field> result = EnumSet.noneOf(Field.class);
+            if (fields == null || fields.trim().isEmpty()) {
+                return EnumSet.allOf(Field.class);
+            }
+            for (String name : fields.split(",")) {
+                String trimmed = name.trim().toLowerCase(Locale.ROOT);
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                Field match = null;
+                for (Field field : values()) {
+                    if (field.key.toLowerCase(Locale.ROOT).equals(trimmed)) {
+                        match = field;
+                        break;
+                    }
+                }
+                if (match == null) {
+                    throw new IllegalArgumentException("未知字段: " + name.trim());
+                }
+                result.add(match);
+            }
+            return result;
+        }
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    private final Format format;
+    private final Set<Field> fields;
+    // 整数转字符的暂存区，避免每个数字创建 String
+    private final char[] digits = new char[11];
+    // 当前路径上的节点下标，openPath[d] 为深度 d 的最近节点
+    private int[] openPath = new int[32];
+    private int nodeCount;
+    private boolean nodesClosed;
+    private boolean windowsOpen;
+    private boolean finished;
+
+    public JsonSnapshotExporter(OutputStream stream, Format format, Set<Field> fields) {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, UTF_8), 8192);
+        this.format = format;
+        // 空集合表示不输出任何可选字段；EnumSet.copyOf 不接受空的非 EnumSet 集合
+        if (fields == null) {
+            this.fields = EnumSet.allOf(Field.class);
+        } else {
+            this.fields = fields.isEmpty() ? EnumSet.noneOf(Field.class) : EnumSet.copyOf(fields);
+        }
+    }
+
+    public static void export(ViewSnapshot snapshot, OutputStream stream, Format format, Set<Field> fields)
+            throws IOException {
+        snapshot.writeTo(new JsonSnapshotExporter(stream, format, fields));
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int writeNode(int depth, int windowId, String className, String text, String contentDescription,
+                         String viewId, int flags, int left, int top, int right, int bottom) throws IOException {
+        if (nodesClosed || finished) {
+            throw new IllegalStateException("节点必须在窗口之前写出");
+        }
+        int index = nodeCount++;
+        if (depth >= openPath.length) {
+            openPath = Arrays.copyOf(openPath, Math.max(depth + 1, openPath.length * 2));
+        }
+        openPath[depth] = index;
+        int parent = depth > 0 ? openPath[depth - 1] : ViewSnapshot.NO_PARENT;
+
+        if (format == Format.JSON) {
+            out.write(index == 0 ? "{\"nodes\":[" : ",");
+        }
+        out.write('{');
+        boolean first = true;
+        if (fields.contains(Field.INDEX)) {
+            first = writeIntField(Field.INDEX.key, index, first);
+        }
+        if (fields.contains(Field.DEPTH)) {
+            first = writeIntField(Field.DEPTH.key, depth, first);
+        }
+        if (fields.contains(Field.PARENT)) {
+            first = writeIntField(Field.PARENT.key, parent, first);
+        }
+        if (fields.contains(Field.WINDOW_ID)) {
+            first = writeIntField(Field.WINDOW_ID.key, windowId, first);
+        }
+        if (fields.contains(Field.CLASS_NAME)) {
+            first = writeStringField(Field.CLASS_NAME.key, className, first);
+        }
+        if (fields.contains(Field.TEXT) && text != null) {
+            first = writeStringField(Field.TEXT.key, text, first);
+        }
+        if (fields.contains(Field.CONTENT_DESCRIPTION) && contentDescription != null) {
+            first = writeStringField(Field.CONTENT_DESCRIPTION.key, contentDescription, first);
+        }
+        if (fields.contains(Field.VIEW_ID) && viewId != null) {
+            first = writeStringField(Field.VIEW_ID.key, viewId, first);
+        }
+        if (fields.contains(Field.FLAGS)) {
+            first = writeKey(Field.FLAGS.key, first);
+            out.write("{\"clickable\":");
+            out.write(bit(flags, ViewSnapshot.FLAG_CLICKABLE));
+            out.write(",\"enabled\":");
+            out.write(bit(flags, ViewSnapshot.FLAG_ENABLED));
+            out.write(",\"focusable\":");
+            out.write(bit(flags, ViewSnapshot.FLAG_FOCUSABLE));
+            out.write(",\"focused\":");
+            out.write(bit(flags, ViewSnapshot.FLAG_FOCUSED));
+            out.write('}');
+        }
+        if (fields.contains(Field.BOUNDS)) {
+            writeKey(Field.BOUNDS.key, first);
+            out.write('[');
+            writeInt(left);
+            out.write(',');
+            writeInt(top);
+            out.write(',');
+            writeInt(right);
+            out.write(',');
+            writeInt(bottom);
+            out.write(']');
+        }
+        out.write('}');
+        if (format == Format.NDJSON) {
+            out.write('\n');
+        }
+        return index;
+    }
+
+    // JSON 格式下窗口写在节点数组之后，因此必须在所有节点之后添加；NDJSON 格式下每个窗口单独一行
+    @Override
+    public void addWindow(ViewSnapshot.WindowEntry window) throws IOException {
+        if (format == Format.JSON) {
+            closeNodes();
+            out.write(windowsOpen ? "," : ",\"windows\":[");
+            windowsOpen = true;
+            writeWindow(window);
+        } else {
+            out.write("{\"window\":");
+            writeWindow(window);
+            out.write("}\n");
+        }
+    }
+
+    @Override
+    public void finish(NodeTraverser.Truncation truncation) throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (format == Format.JSON) {
+            closeNodes();
+            if (windowsOpen) {
+                out.write(']');
+            }
+            out.write(",\"nodeCount\":");
+            writeInt(nodeCount);
+            out.write(",\"truncation\":\"");
+            out.write(truncation.name());
+            out.write("\"}");
+        } else {
+            out.write("{\"summary\":{\"nodeCount\":");
+            writeInt(nodeCount);
+            out.write(",\"truncation\":\"");
+            out.write(truncation.name());
+            out.write("\"}}\n");
+        }
+        out.flush();
+    }
+
+    private void closeNodes() throws IOException {
+        if (nodesClosed) {
+            return;
+        }
+        nodesClosed = true;
+        out.write(nodeCount == 0 ? "{\"nodes\":[]" : "]");
+    }
+
+    private void writeWindow(ViewSnapshot.WindowEntry window) throws IOException {
+        out.write('{');
+        boolean first = writeIntField("windowId", window.windowId, true);
+        first = writeIntField("type", window.type, first);
+        first = writeIntField("layer", window.layer, first);
+        first = writeIntField("nodeCount", window.nodeCount, first);
+        if (window.title != null) {
+            writeStringField("title", window.title, first);
+        }
+        out.write('}');
+    }
+
+    private boolean writeKey(String key, boolean first) throws IOException {
+        if (!first) {
+            out.write(',');
+        }
+        out.write('"');
+        out.write(key);
+        out.write("\":");
+        return false;
+    }
+
+    private boolean writeIntField(String key, int value, boolean first) throws IOException {
+        writeKey(key, first);
+        writeInt(value);
+        return false;
+    }
+
+    private boolean writeStringField(String key, String value, boolean first) throws IOException {
+        writeKey(key, first);
+        writeString(value);
+        return false;
+    }
+
+    private static String bit(int flags, int flag) {
+        return (flags & (1 << flag)) != 0 ? "true" : "false";
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            out.write(Integer.toString(value));
+            return;
+        }
+        int position = digits.length;
+        boolean negative = value < 0;
+        int remaining = negative ? -value : value;
+        do {
+            digits[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (negative) {
+            digits[--position] = '-';
+        }
+        out.write(digits, position, digits.length - position);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+            out.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    out.write("\\u");
+                    out.write(HEX[(c >> 12) & 0xF]);
+                    out.write(HEX[(c >> 8) & 0xF]);
+                    out.write(HEX[(c >> 4) & 0xF]);
+                    out.write(HEX[c & 0xF]);
+                    break;
+            }
+        }
+        out.write(value, start, length - start);
+        out.write('"');
+    }
+}
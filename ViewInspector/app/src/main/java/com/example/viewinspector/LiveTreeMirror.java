@@ -0,0 +1,156 @@
+package com.example.viewinspector;
+
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LiveTreeMirror {
+
+    // 向上查找已镜像祖先节点的最大层数，超过则放弃增量更新
+    private static final int MAX_ANCESTOR_LOOKUP = 32;
+
+    // 只影响节点自身属性、不影响子树结构的变化类型
+    private static final int ATTRIBUTE_ONLY_CHANGES =
+            AccessibilityEvent.CONTENT_CHANGE_TYPE_TEXT |
+            AccessibilityEvent.CONTENT_CHANGE_TYPE_CONTENT_DESCRIPTION |
+            AccessibilityEvent.CONTENT_CHANGE_TYPE_STATE_DESCRIPTION;
+
+    // 所有访问都在同步方法内，可安全复用
+    private final AccessibilityNodeSource nodeSource = new AccessibilityNodeSource();
+    // 节点及其属性按槽位存放在并行数组中，不为每个节点创建 ViewInfo 或子节点列表
+    private final MirrorTree<AccessibilityNodeInfo> tree = new MirrorTree<>(nodeSource);
+    // 以下两个字段可在不持有锁的情况下读写，主线程不会因为正在进行的遍历而阻塞。
+    // invalidate 只递增计数，镜像仅在 validAt 等于当前计数时有效，
+    // 因此重建期间到达的失效不会被重建结束时的状态覆盖
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile int rootWindowId = -1;
+    private long validAt = -1;
+    private TraversalOptions options = TraversalOptions.defaults();
+    private NodeTraverser.Truncation truncation = NodeTraverser.Truncation.NONE;
+
+    // 统计信息，便于观察增量更新的效果
+    private int fullRebuildCount;
+    private int patchCount;
+
+    public synchronized boolean isValidFor(AccessibilityNodeInfo rootNode) {
+        AccessibilityNodeInfo root = tree.getRoot();
+        return !isDirty() && root != null && rootNode != null && root.equals(rootNode);
+    }
+
+    public int getWindowId() {
+        return rootWindowId;
+    }
+
+    public void invalidate() {
+        invalidations.incrementAndGet();
+    }
+
+    // 完整重建镜像，接管 rootNode 的所有权，返回本次遍历的结果
+    public synchronized NodeTraverser.Result rebuild(AccessibilityNodeInfo rootNode, TraversalOptions options) {
+        clear();
+        this.options = options;
+        nodeSource.resetStats();
+        // 遍历前就设置窗口 ID，遍历期间该窗口的内容变化事件照常排队，重建后再修补
+        rootWindowId = rootNode.getWindowId();
+        long startedAt = invalidations.get();
+        NodeTraverser.Result result = tree.build(newTraverser(), rootNode);
+        truncation = result.truncation;
+        // 超时或被取消的截断是暂时的，下次读取时重新完整遍历
+        if (truncation != NodeTraverser.Truncation.DEADLINE &&
+                truncation != NodeTraverser.Truncation.CANCELLED) {
+            validAt = startedAt;
+        }
+        fullRebuildCount++;
+        return result;
+    }
+
+    public synchronized void onContentChanged(AccessibilityNodeInfo source, int changeTypes) {
+        AccessibilityNodeInfo root = tree.getRoot();
+        if (isDirty() || root == null || source == null) {
+            return;
+        }
+        if (source.getWindowId() != root.getWindowId()) {
+            // 镜像只跟踪活动窗口
+            return;
+        }
+
+        int target = tree.find(source);
+        if (target != MirrorTree.NONE) {
+            if (changeTypes != AccessibilityEvent.CONTENT_CHANGE_TYPE_UNDEFINED &&
+                    (changeTypes & ~ATTRIBUTE_ONLY_CHANGES) == 0) {
+                // 仅属性变化，只刷新该节点本身
+                tree.updateAttributes(target, source);
+            } else {
+                refetchSubtree(target, AccessibilityNodeInfo.obtain(source));
+            }
+            patchCount++;
+            return;
+        }
+
+        // 事件源尚未镜像（新插入的节点），找到最近的已镜像祖先并重新获取其子树
+        AccessibilityNodeInfo current = source.getParent();
+        for (int i = 0; current != null && i < MAX_ANCESTOR_LOOKUP; i++) {
+            int ancestor = tree.find(current);
+            if (ancestor != MirrorTree.NONE) {
+                refetchSubtree(ancestor, current);
+                patchCount++;
+                return;
+            }
+            AccessibilityNodeInfo parent = current.getParent();
+            current.recycle();
+            current = parent;
+        }
+        if (current != null) {
+            current.recycle();
+        }
+        invalidate();
+    }
+
+    public synchronized ViewSnapshot toSnapshot() {
+        return tree.toSnapshot(truncation);
+    }
+
+    // 最近一次完整重建以来的子节点获取和属性读取统计
+    public synchronized long getChildFetches() {
+        return nodeSource.getChildFetches();
+    }
+
+    public synchronized long getFastFetches() {
+        return nodeSource.getFastFetches();
+    }
+
+    public synchronized long getPropertyReads() {
+        return nodeSource.getPropertyReads();
+    }
+
+    public synchronized int getFullRebuildCount() {
+        return fullRebuildCount;
+    }
+
+    public synchronized int getPatchCount() {
+        return patchCount;
+    }
+
+    public synchronized void clear() {
+        tree.clear();
+        rootWindowId = -1;
+        validAt = -1;
+    }
+
+    private boolean isDirty() {
+        return validAt != invalidations.get();
+    }
+
+    // 用新获取的节点替换 target 及其整棵子树，保持其在父节点中的位置
+    private void refetchSubtree(int target, AccessibilityNodeInfo freshNode) {
+        NodeTraverser.Result result = tree.replace(newTraverser(), target, freshNode);
+        if (result.isTruncated()) {
+            truncation = result.truncation;
+        }
+    }
+
+    private NodeTraverser<AccessibilityNodeInfo> newTraverser() {
+        return NodeTraverser.forAccessibility(nodeSource, options, true);
+    }
+}
@@ -1,10 +1,7 @@
 package com.example.viewinspector;
 
 import android.annotation.SuppressLint;
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.net.Uri;
@@ -18,35 +15,44 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.EditText;
-import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import com.example.viewinspector.ViewInfo;
+import com.example.viewinspector.ViewSnapshot;
 import com.example.viewinspector.ViewInspectorAccessibilityService;
 import com.example.viewinspector.R;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class MainActivity extends AppCompatActivity {
     
     private static final int OVERLAY_PERMISSION_REQUEST_CODE = 1001;
     
-    private ScrollView scrollView;
-    private TextView infoTextView;
+    private View treeContainer;
+    private TextView summaryTextView;
+    private RecyclerView viewTreeList;
+    private ViewTreeAdapter viewTreeAdapter;
     private TextView emptyView;
     private EditText textFilterEditText;
     private CheckBox clickableFilterCheckBox;
+    private CheckBox allWindowsCheckBox;
+    private CheckBox autoRefreshCheckBox;
+    private CheckBox compactCaptureCheckBox;
+    private CheckBox selectorModeCheckBox;
+    private android.widget.SeekBar recordingSeekBar;
     private Button refreshButton;
     private Button startFloatingButton;
     private androidx.appcompat.widget.Toolbar toolbar;
     
-    private List<ViewInfo> allViewInfos = new ArrayList<>();
+    private ViewSnapshot currentSnapshot = ViewSnapshot.empty();
+    private SnapshotDiff currentDiff;
+    private SnapshotTimeline recordedTimeline;
+    private final CaptureExecutor captureExecutor = new CaptureExecutor();
+    private final SnapshotFilter snapshotFilter = new SnapshotFilter(this::onFiltered);
     private String currentLanguage = "zh"; // 默认中文
     
     private final ActivityResultLauncher<Intent> accessibilitySettingsLauncher = 
@@ -54,14 +60,24 @@ public class MainActivity extends AppCompatActivity {
             checkAccessibilityService();
         });
 
-    private static MainActivity instance;
-    private BroadcastReceiver refreshReceiver;
+    // 当前监听的共享快照缓存，服务重新连接后会换成新的实例
+    private SnapshotCache observedCache;
+    private final SnapshotCache.Listener snapshotListener = this::onSnapshotPublished;
+    
+    // 服务尚未连接时挂起的刷新，连接后立即执行
+    private final ServiceReadiness.Callback<ViewInspectorAccessibilityService> refreshWhenReady = this::requestCapture;
+    private final ServiceReadiness.Callback<ViewInspectorAccessibilityService> observeWhenReady = this::observeSnapshots;
+    private android.view.accessibility.AccessibilityManager accessibilityManager;
+    // 系统无障碍开关或已启用服务列表变化时只标记状态未知，需要时再读取一次设置
+    private final android.view.accessibility.AccessibilityManager.AccessibilityStateChangeListener accessibilityStateListener =
+            enabled -> ViewInspectorAccessibilityService.getReadiness().setEnabled(enabled ? null : Boolean.FALSE);
+    // AccessibilityServicesStateChangeListener 在 API 33 才有，低版本上以 Object 保存
+    private Object servicesStateListener;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        instance = this;
-        
+
         // 加载语言设置
         loadLanguageSetting();
         
@@ -71,25 +87,14 @@ public class MainActivity extends AppCompatActivity {
         setupListeners();
         checkPermissions();
         
-        // 注册全局广播接收器
-        refreshReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                if ("com.example.viewinspector.REFRESH_VIEW_INFO".equals(intent.getAction())) {
-                    if (instance != null) {
-                        instance.runOnUiThread(() -> {
-                            refreshViewInfo();
-                        });
-                    }
-                }
-            }
-        };
-
-        IntentFilter filter = new IntentFilter("com.example.viewinspector.REFRESH_VIEW_INFO");
+        ViewInspectorAccessibilityService.getReadiness().whenReady(observeWhenReady);
+        accessibilityManager = (android.view.accessibility.AccessibilityManager) getSystemService(ACCESSIBILITY_SERVICE);
+        accessibilityManager.addAccessibilityStateChangeListener(accessibilityStateListener);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-            registerReceiver(refreshReceiver, filter, Context.RECEIVER_EXPORTED);
-        } else {
-            registerReceiver(refreshReceiver, filter);
+            android.view.accessibility.AccessibilityManager.AccessibilityServicesStateChangeListener listener =
+                    manager -> ViewInspectorAccessibilityService.getReadiness().setEnabled(null);
+            accessibilityManager.addAccessibilityServicesStateChangeListener(getMainExecutor(), listener);
+            servicesStateListener = listener;
         }
     }
     
@@ -111,6 +116,26 @@ public class MainActivity extends AppCompatActivity {
             return true;
         }
         
+        if (id == R.id.action_record) {
+            toggleRecording(item);
+            return true;
+        }
+        
+        if (id == R.id.action_inspection_server) {
+            toggleInspectionServer(item);
+            return true;
+        }
+        
+        if (id == R.id.action_save_snapshot) {
+            saveSnapshot(false);
+            return true;
+        }
+        
+        if (id == R.id.action_export_json) {
+            saveSnapshot(true);
+            return true;
+        }
+        
         return super.onOptionsItemSelected(item);
     }
     
@@ -164,16 +189,27 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void initViews() {
-        scrollView = findViewById(R.id.scroll_view);
-        infoTextView = findViewById(R.id.info_text_view);
+        treeContainer = findViewById(R.id.tree_container);
+        summaryTextView = findViewById(R.id.summary_text);
+        viewTreeList = findViewById(R.id.view_tree);
         emptyView = findViewById(R.id.empty_view);
         textFilterEditText = findViewById(R.id.text_filter);
         clickableFilterCheckBox = findViewById(R.id.clickable_filter);
+        allWindowsCheckBox = findViewById(R.id.all_windows_capture);
+        autoRefreshCheckBox = findViewById(R.id.auto_refresh);
+        compactCaptureCheckBox = findViewById(R.id.compact_capture);
+        selectorModeCheckBox = findViewById(R.id.selector_mode);
+        recordingSeekBar = findViewById(R.id.recording_seek);
         refreshButton = findViewById(R.id.refresh_button);
         startFloatingButton = findViewById(R.id.start_floating_button);
         toolbar = findViewById(R.id.toolbar);
         
         setSupportActionBar(toolbar);
+        
+        viewTreeAdapter = new ViewTreeAdapter(this);
+        viewTreeList.setLayoutManager(new LinearLayoutManager(this));
+        viewTreeList.setItemAnimator(null);
+        viewTreeList.setAdapter(viewTreeAdapter);
     }
     
     private void setupListeners() {
@@ -187,7 +223,7 @@ public class MainActivity extends AppCompatActivity {
             
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                applyFilters();
+                applyFilters(true);
             }
             
             @Override
@@ -195,7 +231,58 @@ public class MainActivity extends AppCompatActivity {
         });
         
         clickableFilterCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            applyFilters();
+            applyFilters(false);
+        });
+        
+        selectorModeCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            textFilterEditText.setHint(isChecked ? R.string.filter_selector_hint : R.string.filter_text_hint);
+            applyFilters(false);
+        });
+        
+        allWindowsCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            refreshViewInfo();
+        });
+        
+        autoRefreshCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            ViewInspectorAccessibilityService service = ViewInspectorAccessibilityService.getInstance();
+            if (service == null) {
+                if (isChecked) {
+                    Toast.makeText(this, R.string.accessibility_service_not_running, Toast.LENGTH_SHORT).show();
+                    buttonView.setChecked(false);
+                }
+                return;
+            }
+            // 自动刷新的快照发布到共享缓存，由 onSnapshotPublished 显示
+            observeSnapshots(service);
+            service.setAutoRefreshEnabled(isChecked);
+        });
+        
+        compactCaptureCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            ViewInspectorAccessibilityService service = ViewInspectorAccessibilityService.getInstance();
+            if (service == null) {
+                if (isChecked) {
+                    Toast.makeText(this, R.string.accessibility_service_not_running, Toast.LENGTH_SHORT).show();
+                    buttonView.setChecked(false);
+                }
+                return;
+            }
+            service.setCompactCapture(isChecked);
+            refreshViewInfo();
+        });
+        
+        recordingSeekBar.setOnSeekBarChangeListener(new android.widget.SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(android.widget.SeekBar seekBar, int progress, boolean fromUser) {
+                if (fromUser) {
+                    showRecordedFrame(progress);
+                }
+            }
+            
+            @Override
+            public void onStartTrackingTouch(android.widget.SeekBar seekBar) {}
+            
+            @Override
+            public void onStopTrackingTouch(android.widget.SeekBar seekBar) {}
         });
     }
     
@@ -205,7 +292,8 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void checkAccessibilityService() {
-        if (!ViewInspectorAccessibilityService.isServiceEnabled(this)) {
+        ViewInspectorAccessibilityService.getReadiness().setEnabled(null);
+        if (!isAccessibilityServiceEnabled()) {
             Toast.makeText(this, R.string.accessibility_service_required, Toast.LENGTH_LONG).show();
             Intent intent = new Intent(Settings.ACTION_ACCESSIBILITY_SETTINGS);
             accessibilitySettingsLauncher.launch(intent);
@@ -215,13 +303,42 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // 已连接时无需查询；否则读取一次系统设置并缓存，直到系统通知状态变化
+    private boolean isAccessibilityServiceEnabled() {
+        ServiceReadiness<ViewInspectorAccessibilityService> readiness = ViewInspectorAccessibilityService.getReadiness();
+        if (readiness.isReady()) {
+            return true;
+        }
+        Boolean enabled = readiness.getEnabled();
+        if (enabled == null) {
+            enabled = ViewInspectorAccessibilityService.isEnabledInSettings(this);
+            readiness.setEnabled(enabled);
+        }
+        return enabled;
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (refreshReceiver != null) {
-            unregisterReceiver(refreshReceiver);
+        ServiceReadiness<ViewInspectorAccessibilityService> readiness = ViewInspectorAccessibilityService.getReadiness();
+        readiness.cancel(refreshWhenReady);
+        readiness.cancel(observeWhenReady);
+        accessibilityManager.removeAccessibilityStateChangeListener(accessibilityStateListener);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU && servicesStateListener != null) {
+            accessibilityManager.removeAccessibilityServicesStateChangeListener(
+                    (android.view.accessibility.AccessibilityManager.AccessibilityServicesStateChangeListener) servicesStateListener);
+        }
+        if (observedCache != null) {
+            observedCache.removeListener(snapshotListener);
+            observedCache.setAllWindowsWanted(this, false);
+            observedCache = null;
         }
-        instance = null;
+        ViewInspectorAccessibilityService service = ViewInspectorAccessibilityService.getInstance();
+        if (service != null) {
+            service.setAutoRefreshEnabled(false);
+        }
+        captureExecutor.cancel();
+        snapshotFilter.shutdown();
     }
     
     private void checkOverlayPermission() {
@@ -234,135 +351,232 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void refreshViewInfo() {
-        if (!ViewInspectorAccessibilityService.isServiceEnabled(this)) {
+        ViewInspectorAccessibilityService service = ViewInspectorAccessibilityService.getInstance();
+        if (service != null) {
+            requestCapture(service);
+            return;
+        }
+        if (!isAccessibilityServiceEnabled()) {
             Toast.makeText(this, R.string.accessibility_service_not_running, Toast.LENGTH_SHORT).show();
-            scrollView.setVisibility(View.GONE);
+            treeContainer.setVisibility(View.GONE);
             emptyView.setVisibility(View.VISIBLE);
             emptyView.setText(R.string.empty_message);
             return;
         }
-        
-        ViewInspectorAccessibilityService service = ViewInspectorAccessibilityService.getInstance();
-        if (service != null) {
-            allViewInfos = service.getCurrentWindowViewInfos();
-            applyFilters();
-            
-            if (allViewInfos.isEmpty()) {
-                scrollView.setVisibility(View.GONE);
-                emptyView.setVisibility(View.VISIBLE);
-                emptyView.setText(R.string.no_control_info_try_again);
-            } else {
-                emptyView.setVisibility(View.GONE);
-                scrollView.setVisibility(View.VISIBLE);
+        // 服务已启用但尚未连接，连接后立即刷新
+        summaryTextView.setText(R.string.accessibility_service_connecting);
+        ViewInspectorAccessibilityService.getReadiness().whenReady(refreshWhenReady);
+    }
+    
+    // 在捕获线程上遍历，完成后才回到主线程更新界面；重复点击刷新会丢弃旧的捕获
+    private void requestCapture(ViewInspectorAccessibilityService service) {
+        final boolean allWindows = allWindowsCheckBox.isChecked();
+        recordingSeekBar.setVisibility(View.GONE);
+        if (!captureExecutor.isPending()) {
+            summaryTextView.setText(R.string.getting_control_info);
+        }
+        observeSnapshots(service);
+        submitCapture(() -> service.captureAndPublish(allWindows, this));
+    }
+    
+    private void observeSnapshots(ViewInspectorAccessibilityService service) {
+        SnapshotCache cache = service.getSnapshotCache();
+        if (cache != observedCache) {
+            if (observedCache != null) {
+                observedCache.removeListener(snapshotListener);
+                observedCache.setAllWindowsWanted(this, false);
             }
-        } else {
-            // 服务可能刚启动，稍等一下再试
-            new android.os.Handler().postDelayed(() -> {
-                ViewInspectorAccessibilityService delayedService = ViewInspectorAccessibilityService.getInstance();
-                if (delayedService != null) {
-                    allViewInfos = delayedService.getCurrentWindowViewInfos();
-                    applyFilters();
-                    
-                    if (allViewInfos.isEmpty()) {
-                        scrollView.setVisibility(View.GONE);
-                        emptyView.setVisibility(View.VISIBLE);
-                        emptyView.setText(R.string.no_control_info_try_again);
-                    } else {
-                        emptyView.setVisibility(View.GONE);
-                        scrollView.setVisibility(View.VISIBLE);
-                    }
-                } else {
-                    Toast.makeText(this, R.string.accessibility_service_connecting, Toast.LENGTH_SHORT).show();
+            observedCache = cache;
+            cache.addListener(snapshotListener);
+        }
+        cache.setAllWindowsWanted(this, allWindowsCheckBox.isChecked());
+    }
+    
+    // 悬浮窗刷新或自动刷新发布的快照直接显示，不再重新遍历；自己发起的捕获由 onSnapshotCaptured 处理
+    private void onSnapshotPublished(SnapshotCache.Entry entry) {
+        if (entry.requester == this || entry.snapshot == currentSnapshot) {
+            return;
+        }
+        if (entry.allWindows != allWindowsCheckBox.isChecked()) {
+            // 勾选所有窗口时服务对任何刷新都捕获所有窗口，范围不一致只出现在切换范围的瞬间，不再重新捕获
+            return;
+        }
+        recordingSeekBar.setVisibility(View.GONE);
+        submitCapture(() -> entry.snapshot);
+    }
+    
+    private void submitCapture(final java.util.concurrent.Callable<ViewSnapshot> source) {
+        final ViewSnapshot previous = currentSnapshot;
+        captureExecutor.submit(
+            () -> {
+                ViewSnapshot snapshot = source.call();
+                // 在捕获线程上预先构建检索索引和选择器索引
+                snapshot.getSearchIndex();
+                snapshot.getQueryIndex();
+                // 与上一次快照的差异也在捕获线程上计算
+                if (!previous.isEmpty()) {
+                    snapshot.diffFrom(previous);
                 }
-            }, 1000);
+                return snapshot;
+            },
+            this::onSnapshotCaptured);
+    }
+    
+    private void toggleRecording(MenuItem item) {
+        ViewInspectorAccessibilityService service = ViewInspectorAccessibilityService.getInstance();
+        if (service == null) {
+            Toast.makeText(this, R.string.accessibility_service_not_running, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (service.isRecording()) {
+            recordedTimeline = service.stopRecording();
+            item.setTitle(R.string.action_start_recording);
+            showRecording();
+        } else {
+            service.startRecording(ViewInspectorAccessibilityService.DEFAULT_RECORDING_INTERVAL_MILLIS, new SnapshotTimeline());
+            item.setTitle(R.string.action_stop_recording);
+            recordingSeekBar.setVisibility(View.GONE);
+            Toast.makeText(this, R.string.recording_started, Toast.LENGTH_SHORT).show();
         }
     }
     
-    private void applyFilters() {
-        String textFilter = textFilterEditText.getText().toString().toLowerCase();
-        boolean clickableOnly = clickableFilterCheckBox.isChecked();
-        
-        List<ViewInfo> filteredList = new ArrayList<>();
-        
-        for (ViewInfo info : allViewInfos) {
-            boolean matchesText = textFilter.isEmpty() || 
-                                (info.text != null && info.text.toLowerCase().contains(textFilter)) ||
-                                (info.contentDescription != null && info.contentDescription.toLowerCase().contains(textFilter));
-            
-            boolean matchesClickable = !clickableOnly || info.isClickable;
-            
-            if (matchesText && matchesClickable) {
-                filteredList.add(info);
+    private void toggleInspectionServer(MenuItem item) {
+        ViewInspectorAccessibilityService service = ViewInspectorAccessibilityService.getInstance();
+        if (service == null) {
+            Toast.makeText(this, R.string.accessibility_service_not_running, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (service.isInspectionServerRunning()) {
+            service.stopInspectionServer();
+            item.setTitle(R.string.action_start_server);
+            Toast.makeText(this, R.string.inspection_server_stopped, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        try {
+            int port = service.startInspectionServer(InspectionServer.DEFAULT_PORT);
+            item.setTitle(R.string.action_stop_server);
+            Toast.makeText(this, getString(R.string.inspection_server_started, port), Toast.LENGTH_LONG).show();
+        } catch (java.io.IOException e) {
+            Log.e("MainActivity", "检查服务器启动失败", e);
+            Toast.makeText(this, getString(R.string.inspection_server_failed, e.getMessage()), Toast.LENGTH_LONG).show();
+        }
+    }
+    
+    // 录制结束后显示进度条，拖动时在捕获线程上还原对应的帧
+    private void showRecording() {
+        int frameCount = recordedTimeline != null ? recordedTimeline.getFrameCount() : 0;
+        Toast.makeText(this, getString(R.string.recording_stopped, frameCount), Toast.LENGTH_SHORT).show();
+        if (frameCount == 0) {
+            return;
+        }
+        recordingSeekBar.setMax(frameCount - 1);
+        recordingSeekBar.setProgress(frameCount - 1);
+        recordingSeekBar.setVisibility(View.VISIBLE);
+        showRecordedFrame(frameCount - 1);
+    }
+    
+    private void showRecordedFrame(final int frame) {
+        final SnapshotTimeline timeline = recordedTimeline;
+        if (timeline != null && frame < timeline.getFrameCount()) {
+            submitCapture(() -> timeline.getFrame(frame));
+        }
+    }
+    
+    private void onSnapshotCaptured(ViewSnapshot snapshot) {
+        ViewSnapshot previous = currentSnapshot;
+        currentSnapshot = snapshot;
+        currentDiff = previous.isEmpty() ? null : snapshot.diffFrom(previous);
+        viewTreeAdapter.setDiff(currentDiff);
+        if (snapshot.isTruncated()) {
+            Toast.makeText(this, getString(R.string.snapshot_truncated, snapshot.size()), Toast.LENGTH_SHORT).show();
+        } else if (compactCaptureCheckBox.isChecked()) {
+            String summary = ViewInspectorFloatingService.formatCompactSummary(this, snapshot);
+            if (summary != null) {
+                Toast.makeText(this, summary, Toast.LENGTH_SHORT).show();
             }
         }
+        applyFilters(false);
         
-        displayViewInfos(filteredList);
+        if (currentSnapshot.isEmpty()) {
+            treeContainer.setVisibility(View.GONE);
+            emptyView.setVisibility(View.VISIBLE);
+            emptyView.setText(R.string.no_control_info_try_again);
+        } else {
+            emptyView.setVisibility(View.GONE);
+            treeContainer.setVisibility(View.VISIBLE);
+        }
+    }
+    
+    // 筛选在后台线程上基于快照的检索索引执行，输入时会等待停顿后再筛选
+    private void applyFilters(boolean debounce) {
+        String textFilter = textFilterEditText.getText().toString();
+        boolean clickableOnly = clickableFilterCheckBox.isChecked();
+        snapshotFilter.request(currentSnapshot, textFilter, selectorModeCheckBox.isChecked(), clickableOnly, debounce);
+    }
+    
+    private void onFiltered(ViewSnapshot snapshot, int[] rows, int count, String error) {
+        if (error != null) {
+            // 选择器语法错误时保留当前列表，只提示错误
+            summaryTextView.setText(getString(R.string.selector_error, error));
+            return;
+        }
+        displayViewInfos(snapshot, rows, count);
     }
     
-    private void displayViewInfos(List<ViewInfo> viewInfos) {
-        if (viewInfos.isEmpty()) {
-            scrollView.setVisibility(View.GONE);
+    private void displayViewInfos(ViewSnapshot snapshot, int[] rows, int count) {
+        if (count == 0) {
+            treeContainer.setVisibility(View.GONE);
             emptyView.setVisibility(View.VISIBLE);
             emptyView.setText(R.string.no_control_info_try_again);
             return;
         }
         
-        scrollView.setVisibility(View.VISIBLE);
+        treeContainer.setVisibility(View.VISIBLE);
         emptyView.setVisibility(View.GONE);
         
-        StringBuilder sb = new StringBuilder();
-        sb.append("<b>").append(getString(R.string.total_controls, viewInfos.size())).append("</b><br><br>");
-        
-        for (ViewInfo info : viewInfos) {
-            // 构建树形结构缩进，使用HTML的非断空格
-            String indent = "";
-            for (int i = 0; i < info.depth; i++) {
-                indent += "&nbsp;&nbsp;&nbsp;&nbsp;"; // 每个层级4个非断空格
-            }
-            
-            // 添加树形连接线
-            if (info.depth > 0) {
-                sb.append(indent).append("└─ ");
-            } else {
-                sb.append(indent);
-            }
-            
-            // 类名（黑色）
-            sb.append("<font color='#000000'><b>").append(info.className).append("</b></font>");
-            
-            // 文本（蓝色）
-            if (info.text != null && !info.text.isEmpty()) {
-                sb.append(" <font color='#1976D2'>\"").append(info.text).append("\"</font>");
-            }
-            
-            // 描述（紫色）
-            if (info.contentDescription != null && !info.contentDescription.isEmpty()) {
-                sb.append(" <font color='#7B1FA2'>[").append(info.contentDescription).append("]</font>");
-            }
-            
-            // ID（橙色）
-            if (info.viewId != null) {
-                sb.append(" <font color='#FF6F00'>#").append(info.viewId).append("</font>");
-            }
-            
-            // 属性状态（绿色/红色）
-            sb.append(" <font color='").append(info.isClickable ? "#4CAF50" : "#F44336").append("'>")
-              .append(getString(R.string.clickable)).append(":").append(info.isClickable ? getString(R.string.yes) : getString(R.string.no))
-              .append("</font>");
-            sb.append(" <font color='").append(info.isEnabled ? "#4CAF50" : "#F44336").append("'>")
-              .append(getString(R.string.enabled)).append(":").append(info.isEnabled ? getString(R.string.yes) : getString(R.string.no))
-              .append("</font>");
-            sb.append(" <font color='").append(info.isFocusable ? "#4CAF50" : "#F44336").append("'>")
-              .append(getString(R.string.focusable)).append(":").append(info.isFocusable ? getString(R.string.yes) : getString(R.string.no))
-              .append("</font>");
-            
-            // 位置（青色）
-            sb.append(" <font color='#0097A7'>").append(info.bounds).append("</font>");
-            
-            sb.append("<br>");
+        String summary = getString(R.string.total_controls, count);
+        if (currentDiff != null && currentDiff.getNewSnapshot() == snapshot && !currentDiff.isEmpty()) {
+            summary += "  " + getString(R.string.diff_summary, currentDiff.getAdded().length,
+                    currentDiff.getRemoved().length, currentDiff.getChanged().length, currentDiff.getMoved().length);
         }
-        
-        infoTextView.setText(android.text.Html.fromHtml(sb.toString()));
+        summaryTextView.setText(summary);
+        long renderStart = System.nanoTime();
+        viewTreeAdapter.submit(snapshot, rows, count);
+        CaptureMetrics.getInstance().recordPhase(CaptureMetrics.PHASE_RENDER, System.nanoTime() - renderStart);
+    }
+    
+    // 在捕获线程上把当前显示的快照写入应用私有目录，json 为 true 时导出 NDJSON，否则为二进制快照文件。
+    // 主页面打开时活动窗口是检查器自身，因此不重新遍历；边遍历边写入见悬浮窗的“存档”
+    private void saveSnapshot(final boolean json) {
+        final ViewSnapshot snapshot = currentSnapshot;
+        if (snapshot.isEmpty()) {
+            Toast.makeText(this, R.string.no_control_info_try_again, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        final java.io.File directory = new java.io.File(getExternalFilesDir(null), "snapshots");
+        CaptureExecutor.execute(() -> {
+            java.io.File target = new java.io.File(directory,
+                    "snapshot-" + System.currentTimeMillis() + (json ? ".ndjson" : ".vis"));
+            String message;
+            try {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new java.io.IOException(directory.getPath());
+                }
+                if (json) {
+                    try (java.io.OutputStream stream = new java.io.FileOutputStream(target)) {
+                        JsonSnapshotExporter.export(snapshot, stream, JsonSnapshotExporter.Format.NDJSON, null);
+                    }
+                } else {
+                    SnapshotFileWriter.write(snapshot, target);
+                }
+                message = getString(R.string.snapshot_saved, target.getPath());
+            } catch (java.io.IOException e) {
+                Log.e("MainActivity", "保存快照失败", e);
+                message = getString(R.string.snapshot_save_failed, e.getMessage());
+            }
+            final String toast = message;
+            runOnUiThread(() -> Toast.makeText(this, toast, Toast.LENGTH_LONG).show());
+        });
     }
     
     private void startFloatingService() {
@@ -372,7 +586,7 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
         
-        if (!ViewInspectorAccessibilityService.isServiceEnabled(this)) {
+        if (!isAccessibilityServiceEnabled()) {
             Toast.makeText(this, R.string.please_enable_accessibility_first, Toast.LENGTH_SHORT).show();
             return;
         }
@@ -0,0 +1,68 @@
+package com.example.viewinspector;
+
+import java.util.Arrays;
+
+// 以 2 的幂为桶边界的直方图，记录非负整数，占用固定内存
+public class MetricsHistogram {
+
+    private static final int BUCKET_COUNT = 64;
+
+    // 桶 0 记录 0，桶 k（k >= 1）记录 [2^(k-1), 2^k)
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private long max;
+
+    public synchronized void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets[bucketOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    // 返回所在桶的上界（不超过最大值），精度为 2 倍以内
+    public synchronized long percentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * Math.min(Math.max(fraction, 0), 1));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= Math.max(target, 1)) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    static int bucketOf(long value) {
+        return value == 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
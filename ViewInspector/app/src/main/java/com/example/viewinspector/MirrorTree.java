@@ -0,0 +1,303 @@
+package com.example.viewinspector;
+
+import java.util.Arrays;
+
+/*
+ * 跨多次捕获保留的节点树，按槽位存放在并行数组中，不为每个节点创建对象：
+ * - nodes[slot] 为持有的节点，同时作为增量更新时的身份键
+ * - 子节点以 firstChild / nextSibling 链表保存，先序展开时不需要栈
+ * - 释放的槽位进入空闲列表，增量更新时复用
+ * - 节点到槽位的索引是线性探测的开放寻址表，重建时复用，不为每个节点分配条目
+ * 不是线程安全的，由 LiveTreeMirror 加锁访问
+ */
+class MirrorTree<N> {
+
+    static final int NONE = -1;
+
+    private final NodeSource<N> source;
+    private N[] nodes;
+    private int[] parents = new int[0];
+    private int[] depths = new int[0];
+    private int[] firstChild = new int[0];
+    private int[] lastChild = new int[0];
+    private int[] nextSibling = new int[0];
+    private int[] flags = new int[0];
+    private int[] windowIds = new int[0];
+    private int[] bounds = new int[0]; // 每个槽位 4 个 int
+    // 类名和资源 ID 来自共享字符串池，多个槽位引用同一个实例
+    private String[] classNames = new String[0];
+    private String[] viewIds = new String[0];
+    private String[] texts = new String[0];
+    private String[] descriptions = new String[0];
+    private int slotCount;
+    // 每个槽位的父节点标记只装箱一次，重建时复用
+    private Integer[] tokens = new Integer[0];
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+    private int rootSlot = NONE;
+
+    // 索引表：keys[i] 为节点，keySlots[i] 为其槽位；长度为 2 的幂，装载率不超过一半
+    private Object[] keys = new Object[64];
+    private int[] keySlots = new int[64];
+    private int keyCount;
+    private final int[] scratchBounds = new int[4];
+
+    @SuppressWarnings("unchecked")
+    MirrorTree(NodeSource<N> source) {
+        this.source = source;
+        this.nodes = (N[]) new Object[0];
+    }
+
+    int size() {
+        return keyCount;
+    }
+
+    N getRoot() {
+        return rootSlot != NONE ? nodes[rootSlot] : null;
+    }
+
+    // 返回节点所在槽位，未镜像时返回 NONE
+    int find(N node) {
+        int i = indexOf(node);
+        return keys[i] != null ? keySlots[i] : NONE;
+    }
+
+    // 清空后以 root 为根重新获取整棵树并接管 root；traverser 必须保留节点（retainNodes）
+    NodeTraverser.Result build(NodeTraverser<N> traverser, N root) {
+        clear();
+        return fetchSubtree(traverser, root, NONE, 0, NONE);
+    }
+
+    // 用新获取的节点替换 slot 及其整棵子树并接管 freshNode。新子树的根沿用该槽位，因此在父节点中的位置不变
+    NodeTraverser.Result replace(NodeTraverser<N> traverser, int slot, N freshNode) {
+        releaseChildren(slot);
+        removeKey(nodes[slot]);
+        source.release(nodes[slot]);
+        nodes[slot] = null;
+        return fetchSubtree(traverser, freshNode, parents[slot], depths[slot], slot);
+    }
+
+    // 只刷新槽位自身的属性，node 仍由调用方持有
+    void updateAttributes(int slot, N node) {
+        StringPool pool = StringPool.getInstance();
+        classNames[slot] = pool.intern(source.getClassName(node));
+        viewIds[slot] = pool.intern(source.getViewId(node));
+        texts[slot] = source.getText(node);
+        descriptions[slot] = source.getContentDescription(node);
+        flags[slot] = source.getFlags(node);
+        windowIds[slot] = source.getWindowId(node);
+        source.getBounds(node, scratchBounds);
+        System.arraycopy(scratchBounds, 0, bounds, slot * 4, 4);
+    }
+
+    // 按先序写入列式快照，沿 firstChild / nextSibling / parents 前进
+    ViewSnapshot toSnapshot(NodeTraverser.Truncation truncation) {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(Math.max(keyCount, 1));
+        int slot = rootSlot;
+        while (slot != NONE) {
+            writeTo(builder, slot);
+            if (firstChild[slot] != NONE) {
+                slot = firstChild[slot];
+                continue;
+            }
+            while (slot != rootSlot && nextSibling[slot] == NONE) {
+                slot = parents[slot];
+            }
+            slot = slot == rootSlot ? NONE : nextSibling[slot];
+        }
+        return builder.build(truncation);
+    }
+
+    void clear() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (nodes[slot] != null) {
+                source.release(nodes[slot]);
+            }
+        }
+        Arrays.fill(keys, null);
+        keyCount = 0;
+        Arrays.fill(nodes, 0, slotCount, null);
+        Arrays.fill(classNames, 0, slotCount, null);
+        Arrays.fill(viewIds, 0, slotCount, null);
+        Arrays.fill(texts, 0, slotCount, null);
+        Arrays.fill(descriptions, 0, slotCount, null);
+        slotCount = 0;
+        freeCount = 0;
+        rootSlot = NONE;
+    }
+
+    private void writeTo(ViewSnapshot.Builder builder, int slot) {
+        int row = builder.add(depths[slot]);
+        builder.setStrings(row, classNames[slot], texts[slot], descriptions[slot], viewIds[slot]);
+        for (int flag = 0; flag < ViewSnapshot.FLAG_COUNT; flag++) {
+            builder.setFlag(row, flag, (flags[slot] & (1 << flag)) != 0);
+        }
+        int offset = slot * 4;
+        builder.setBounds(row, bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3]);
+        builder.setWindowId(row, windowIds[slot]);
+    }
+
+    // reuseSlot 不为 NONE 时子树根写入该槽位，否则分配新槽位
+    private NodeTraverser.Result fetchSubtree(NodeTraverser<N> traverser, N node, int parent, int depth,
+                                              final int reuseSlot) {
+        final boolean[] rootVisited = new boolean[1];
+        Integer parentToken = parent != NONE ? parent : null;
+        return traverser.traverse(node, depth, parentToken, (child, childDepth, childParent) -> {
+            int slot;
+            if (!rootVisited[0]) {
+                rootVisited[0] = true;
+                slot = reuseSlot != NONE ? reuseSlot : allocateSlot();
+                if (reuseSlot == NONE) {
+                    parents[slot] = NONE;
+                    nextSibling[slot] = NONE;
+                    rootSlot = slot;
+                }
+            } else {
+                slot = allocateSlot();
+                parents[slot] = childParent;
+                appendChild(childParent, slot);
+            }
+            firstChild[slot] = NONE;
+            lastChild[slot] = NONE;
+            nodes[slot] = child;
+            depths[slot] = childDepth;
+            updateAttributes(slot, child);
+            Integer token = tokens[slot];
+            if (token == null) {
+                token = slot;
+                tokens[slot] = token;
+            }
+            putKey(child, slot);
+            return token;
+        });
+    }
+
+    private void appendChild(int parent, int child) {
+        nextSibling[child] = NONE;
+        if (lastChild[parent] == NONE) {
+            firstChild[parent] = child;
+        } else {
+            nextSibling[lastChild[parent]] = child;
+        }
+        lastChild[parent] = child;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == nodes.length) {
+            grow(Math.max(64, slotCount * 2));
+        }
+        return slotCount++;
+    }
+
+    private void grow(int capacity) {
+        nodes = Arrays.copyOf(nodes, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        depths = Arrays.copyOf(depths, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        lastChild = Arrays.copyOf(lastChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        windowIds = Arrays.copyOf(windowIds, capacity);
+        bounds = Arrays.copyOf(bounds, capacity * 4);
+        classNames = Arrays.copyOf(classNames, capacity);
+        viewIds = Arrays.copyOf(viewIds, capacity);
+        texts = Arrays.copyOf(texts, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        tokens = Arrays.copyOf(tokens, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+
+    // 释放 slot 的所有后代：释放节点并把槽位放回空闲列表，slot 本身保留。
+    // 按先序遍历而不递归；释放期间不分配槽位，已释放槽位的链接仍可用于前进
+    private void releaseChildren(int slot) {
+        int current = firstChild[slot];
+        while (current != NONE) {
+            int next = firstChild[current];
+            if (next == NONE) {
+                next = current;
+                while (next != slot && nextSibling[next] == NONE) {
+                    next = parents[next];
+                }
+                next = next == slot ? NONE : nextSibling[next];
+            }
+            removeKey(nodes[current]);
+            source.release(nodes[current]);
+            nodes[current] = null;
+            classNames[current] = null;
+            viewIds[current] = null;
+            texts[current] = null;
+            descriptions[current] = null;
+            freeSlots[freeCount++] = current;
+            current = next;
+        }
+        firstChild[slot] = NONE;
+        lastChild[slot] = NONE;
+    }
+
+    // node 所在的表项，不存在时为应插入的空表项
+    private int indexOf(Object node) {
+        int mask = keys.length - 1;
+        int i = hash(node) & mask;
+        while (keys[i] != null && !keys[i].equals(node)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void putKey(N node, int slot) {
+        if ((keyCount + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int i = indexOf(node);
+        if (keys[i] == null) {
+            keys[i] = node;
+            keyCount++;
+        }
+        keySlots[i] = slot;
+    }
+
+    // 删除后把同一探测序列中靠后的表项前移，保证查找不会提前遇到空表项
+    private void removeKey(Object node) {
+        int i = indexOf(node);
+        if (keys[i] == null) {
+            return;
+        }
+        int mask = keys.length - 1;
+        keys[i] = null;
+        keyCount--;
+        int next = (i + 1) & mask;
+        while (keys[next] != null) {
+            int home = hash(keys[next]) & mask;
+            // home 不在 (i, next] 区间内时，该表项可以移到空出的 i
+            if (((next - home) & mask) >= ((next - i) & mask)) {
+                keys[i] = keys[next];
+                keySlots[i] = keySlots[next];
+                keys[next] = null;
+                i = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldSlots = keySlots;
+        keys = new Object[capacity];
+        keySlots = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int j = indexOf(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                keySlots[j] = oldSlots[i];
+            }
+        }
+    }
+
+    private static int hash(Object node) {
+        int h = node.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
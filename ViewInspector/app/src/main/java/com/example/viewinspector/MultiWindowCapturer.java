@@ -0,0 +1,187 @@
+package com.example.viewinspector;
+
+import android.os.Build;
+import android.util.Log;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityWindowInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MultiWindowCapturer {
+
+    private static final String TAG = "MultiWindowCapturer";
+    private static final int MAX_THREADS = 4;
+    // 等待单个窗口结果时在遍历时间预算之外额外允许的时间
+    private static final long RESULT_GRACE_MILLIS = 500;
+
+    private static class WindowCapture {
+        ViewSnapshot snapshot;
+        NodeTraverser.Truncation truncation = NodeTraverser.Truncation.NONE;
+        long childFetches;
+        long fastFetches;
+        long propertyReads;
+        long culledSubtrees;
+        long collapsedNodes;
+    }
+
+    private final ExecutorService executor;
+    // 最近一次 capture 所有窗口合计的子节点获取和属性读取统计
+    private volatile long lastChildFetches;
+    private volatile long lastFastFetches;
+    private volatile long lastPropertyReads;
+    private volatile long lastCulledSubtrees;
+    private volatile long lastCollapsedNodes;
+
+    public MultiWindowCapturer() {
+        int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "window-capture-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // 并行遍历所有窗口，结果按 getWindows() 的顺序合并；调用方负责回收 windows。
+    // 超时后 capture 直接返回，调用方随即回收 windows，而仍在运行的任务可能还没调用 getRoot，
+    // 因此每个任务使用在这里复制的窗口并自行回收。被取消而未开始的任务的副本交给 GC
+    public ViewSnapshot capture(List<AccessibilityWindowInfo> windows, final TraversalOptions options) {
+        List<Future<WindowCapture>> futures = new ArrayList<>(windows.size());
+        for (AccessibilityWindowInfo window : windows) {
+            final AccessibilityWindowInfo copy = AccessibilityWindowInfo.obtain(window);
+            futures.add(executor.submit(() -> {
+                try {
+                    return captureWindow(copy, options);
+                } finally {
+                    copy.recycle();
+                }
+            }));
+        }
+
+        ViewSnapshot.Builder merged = new ViewSnapshot.Builder();
+        NodeTraverser.Truncation truncation = NodeTraverser.Truncation.NONE;
+        long childFetches = 0;
+        long fastFetches = 0;
+        long propertyReads = 0;
+        long culledSubtrees = 0;
+        long collapsedNodes = 0;
+        // 各窗口并行遍历，共用同一个等待截止时间
+        long deadline = options.timeoutMillis > 0 ?
+                System.currentTimeMillis() + options.timeoutMillis + RESULT_GRACE_MILLIS : Long.MAX_VALUE;
+
+        for (int i = 0; i < windows.size(); i++) {
+            AccessibilityWindowInfo window = windows.get(i);
+            WindowCapture windowCapture;
+            try {
+                long waitMillis = deadline == Long.MAX_VALUE ?
+                        Long.MAX_VALUE : Math.max(0, deadline - System.currentTimeMillis());
+                windowCapture = futures.get(i).get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                futures.get(i).cancel(true);
+                truncation = NodeTraverser.Truncation.DEADLINE;
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<WindowCapture> future : futures) {
+                    future.cancel(true);
+                }
+                truncation = NodeTraverser.Truncation.CANCELLED;
+                break;
+            } catch (ExecutionException e) {
+                Log.w(TAG, "窗口遍历失败: " + window.getId(), e.getCause());
+                continue;
+            }
+
+            ViewSnapshot.WindowEntry entry = new ViewSnapshot.WindowEntry();
+            entry.windowId = window.getId();
+            entry.type = window.getType();
+            entry.layer = window.getLayer();
+            entry.title = window.getTitle() != null ? window.getTitle().toString() : null;
+            entry.nodeCount = windowCapture.snapshot.size();
+            merged.addWindow(entry);
+            merged.appendAll(windowCapture.snapshot);
+            if (truncation == NodeTraverser.Truncation.NONE) {
+                truncation = windowCapture.truncation;
+            }
+            childFetches += windowCapture.childFetches;
+            fastFetches += windowCapture.fastFetches;
+            propertyReads += windowCapture.propertyReads;
+            culledSubtrees += windowCapture.culledSubtrees;
+            collapsedNodes += windowCapture.collapsedNodes;
+        }
+
+        lastChildFetches = childFetches;
+        lastFastFetches = fastFetches;
+        lastPropertyReads = propertyReads;
+        lastCulledSubtrees = culledSubtrees;
+        lastCollapsedNodes = collapsedNodes;
+        return merged.build(truncation);
+    }
+
+    public long getLastChildFetches() {
+        return lastChildFetches;
+    }
+
+    public long getLastFastFetches() {
+        return lastFastFetches;
+    }
+
+    public long getLastPropertyReads() {
+        return lastPropertyReads;
+    }
+
+    public long getLastCulledSubtrees() {
+        return lastCulledSubtrees;
+    }
+
+    public long getLastCollapsedNodes() {
+        return lastCollapsedNodes;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static WindowCapture captureWindow(AccessibilityWindowInfo window, TraversalOptions options) {
+        WindowCapture windowCapture = new WindowCapture();
+        AccessibilityNodeInfo root = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU ?
+                window.getRoot(AccessibilityNodeSource.PREFETCH_STRATEGY) : window.getRoot();
+        if (root == null) {
+            windowCapture.snapshot = ViewSnapshot.empty();
+            return windowCapture;
+        }
+
+        final AccessibilityNodeSource source = new AccessibilityNodeSource();
+        final NodeTraverser<AccessibilityNodeInfo> traverser = NodeTraverser.forAccessibility(source, options, false);
+        final ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        NodeTraverser.Result result;
+        try {
+            result = traverser.traverse(root, 0, null, (node, depth, parent) -> {
+                builder.add(source, node, depth);
+                return null;
+            });
+        } finally {
+            root.recycle();
+        }
+        windowCapture.truncation = result.truncation;
+        windowCapture.childFetches = source.getChildFetches();
+        windowCapture.fastFetches = source.getFastFetches();
+        windowCapture.propertyReads = source.getPropertyReads();
+        windowCapture.culledSubtrees = result.culledSubtrees;
+        windowCapture.collapsedNodes = result.collapsedNodes;
+        windowCapture.snapshot = builder.build(result.truncation);
+        return windowCapture;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.viewinspector;
+
+import java.io.IOException;
+
+// 按先序逐个接收节点的输出目标，用于遍历时直接写出而不在内存中构建快照
+public interface NodeSink {
+
+    // depth 不能比上一个节点深超过一层；flags 的第 n 位对应 ViewSnapshot.FLAG_* 中的 n
+    int writeNode(int depth, int windowId, String className, String text, String contentDescription,
+                  String viewId, int flags, int left, int top, int right, int bottom) throws IOException;
+
+    // bounds 为调用方复用的长度为 4 的数组
+    default <N> int writeNode(NodeSource<N> source, N node, int depth, int[] bounds) throws IOException {
+        source.getBounds(node, bounds);
+        return writeNode(depth, source.getWindowId(node), source.getClassName(node), source.getText(node),
+                source.getContentDescription(node), source.getViewId(node), source.getFlags(node),
+                bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+
+    void addWindow(ViewSnapshot.WindowEntry window) throws IOException;
+
+    void finish(NodeTraverser.Truncation truncation) throws IOException;
+}
@@ -0,0 +1,39 @@
+package com.example.viewinspector;
+
+// 遍历和捕获所需的节点访问接口，使同一套遍历代码可以运行在实时节点、录制的快照或合成的树上
+public interface NodeSource<N> {
+
+    int getChildCount(N node);
+
+    // 可能返回 null（子节点已消失）
+    N getChild(N node, int index);
+
+    // 遍历不再需要该节点时调用
+    void release(N node);
+
+    String getClassName(N node);
+
+    String getText(N node);
+
+    String getContentDescription(N node);
+
+    String getViewId(N node);
+
+    // 第 n 位对应 ViewSnapshot.FLAG_* 中的 n
+    int getFlags(N node);
+
+    // 依次写入 left, top, right, bottom
+    void getBounds(N node, int[] out);
+
+    int getWindowId(N node);
+
+    // 录制的快照等没有可见性信息的来源一律视为可见
+    default boolean isVisibleToUser(N node) {
+        return true;
+    }
+
+    // 节点是否带有交互操作，折叠包装节点时保留这类节点；默认只依据可点击和可聚焦标志
+    default boolean hasActions(N node) {
+        return (getFlags(node) & ((1 << ViewSnapshot.FLAG_CLICKABLE) | (1 << ViewSnapshot.FLAG_FOCUSABLE))) != 0;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.viewinspector;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+// 通过 NodeSource 按先序遍历任意节点树，受 TraversalOptions 的深度、数量和时间预算限制
+public class NodeTraverser<N> {
+
+    public enum Truncation {
+        NONE,
+        MAX_DEPTH,
+        MAX_NODES,
+        DEADLINE,
+        STOPPED,
+        CANCELLED
+    }
+
+    public interface Visitor<N, T> {
+        // 返回代表该节点的对象，作为其子节点的 parent 传入
+        T visit(N node, int depth, T parent);
+    }
+
+    public static class Result {
+        public int nodeCount;
+        public Truncation truncation = Truncation.NONE;
+        public long elapsedNanos;
+        // getChild / getChildCount 调用次数，可能产生跨进程调用
+        public long childCalls;
+        // 因不可见或在裁剪区域外而跳过的子树数，以及被折叠的包装节点数；
+        // 跳过的子树没有遍历，精简前的节点数至少为 nodeCount + culledSubtrees + collapsedNodes
+        public long culledSubtrees;
+        public long collapsedNodes;
+
+        public boolean isTruncated() {
+            return truncation != Truncation.NONE;
+        }
+    }
+
+    // 显式栈中的一帧，缓存子节点数量以避免每次循环都跨进程调用 getChildCount()
+    private static class Frame<N, T> {
+        N node;
+        int depth;
+        T token;
+        int childCount;
+        int nextChild;
+    }
+
+    private final NodeSource<N> source;
+    private final TraversalOptions options;
+    private final Predicate<? super N> skipChildren;
+    private final Predicate<? super N> stopAfter;
+    // retainNodes 为 true 时由 visitor 接管节点，否则遍历结束后释放
+    private final boolean retainNodes;
+    private final int[] scratchBounds = new int[4];
+
+    // options 中的 skipChildren / stopAfter 只适用于无障碍节点，其他节点类型单独传入
+    public NodeTraverser(NodeSource<N> source, TraversalOptions options, Predicate<? super N> skipChildren,
+                         Predicate<? super N> stopAfter, boolean retainNodes) {
+        this.source = source;
+        this.options = options != null ? options : TraversalOptions.defaults();
+        this.skipChildren = skipChildren;
+        this.stopAfter = stopAfter;
+        this.retainNodes = retainNodes;
+    }
+
+    public static NodeTraverser<AccessibilityNodeInfo> forAccessibility(TraversalOptions options, boolean retainNodes) {
+        return forAccessibility(new AccessibilityNodeSource(), options, retainNodes);
+    }
+
+    public static NodeTraverser<AccessibilityNodeInfo> forAccessibility(AccessibilityNodeSource source,
+                                                                        TraversalOptions options, boolean retainNodes) {
+        TraversalOptions resolved = options != null ? options : TraversalOptions.defaults();
+        return new NodeTraverser<>(source, resolved, resolved.skipChildren, resolved.stopAfter, retainNodes);
+    }
+
+    public NodeSource<N> getSource() {
+        return source;
+    }
+
+    // 根节点由调用方持有，不会被释放。rootDepth 是根节点在整棵树中的深度，maxDepth 按该绝对深度计算，
+    // 因此从中间节点开始的子树遍历不会超出完整遍历的深度上限
+    public <T> Result traverse(N root, int rootDepth, T rootParent, Visitor<N, T> visitor) {
+        Result result = new Result();
+        if (root == null) {
+            return result;
+        }
+
+        long start = System.nanoTime();
+        long deadline = options.timeoutMillis > 0 ? start + options.timeoutMillis * 1000000L : Long.MAX_VALUE;
+        List<Frame<N, T>> stack = new ArrayList<>();
+        boolean depthLimited = false;
+
+        T rootToken = visitor.visit(root, rootDepth, rootParent);
+        result.nodeCount++;
+        if (stopAfter != null && stopAfter.test(root)) {
+            result.truncation = Truncation.STOPPED;
+        } else {
+            depthLimited = push(stack, root, rootDepth, rootToken, result);
+        }
+
+        while (!stack.isEmpty()) {
+            Frame<N, T> top = stack.get(stack.size() - 1);
+            if (top.nextChild >= top.childCount) {
+                stack.remove(stack.size() - 1);
+                release(top.node, root);
+                continue;
+            }
+
+            if (result.nodeCount >= options.maxNodes) {
+                result.truncation = Truncation.MAX_NODES;
+                break;
+            }
+            if (System.nanoTime() > deadline) {
+                result.truncation = Truncation.DEADLINE;
+                break;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                // 捕获请求已被取消
+                result.truncation = Truncation.CANCELLED;
+                break;
+            }
+
+            N child = source.getChild(top.node, top.nextChild++);
+            result.childCalls++;
+            if (child != null) {
+                child = cull(child, result);
+            }
+            if (child == null) {
+                continue;
+            }
+
+            int depth = top.depth + 1;
+            T token = visitor.visit(child, depth, top.token);
+            result.nodeCount++;
+            if (stopAfter != null && stopAfter.test(child)) {
+                result.truncation = Truncation.STOPPED;
+                release(child, root);
+                break;
+            }
+            depthLimited |= push(stack, child, depth, token, result);
+        }
+
+        // 提前结束时释放栈中剩余节点
+        for (Frame<N, T> frame : stack) {
+            release(frame.node, root);
+        }
+
+        if (result.truncation == Truncation.NONE && depthLimited) {
+            result.truncation = Truncation.MAX_DEPTH;
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // 返回 true 表示该节点的子树因深度限制被丢弃
+    private <T> boolean push(List<Frame<N, T>> stack, N node, int depth, T token, Result result) {
+        Frame<N, T> frame = new Frame<>();
+        frame.node = node;
+        frame.depth = depth;
+        frame.token = token;
+        stack.add(frame);
+
+        if (skipChildren != null && skipChildren.test(node)) {
+            return false;
+        }
+        int childCount = source.getChildCount(node);
+        result.childCalls++;
+        if (childCount > 0 && depth >= options.maxDepth) {
+            return true;
+        }
+        frame.childCount = childCount;
+        return false;
+    }
+
+    // 返回 null 表示该子树被剔除；可折叠的包装节点替换为它唯一的子节点。
+    // 被剔除或折叠的节点不会交给 visitor，因此无论 retainNodes 如何都在这里释放
+    private N cull(N child, Result result) {
+        while (true) {
+            if ((options.visibleOnly && !source.isVisibleToUser(child)) ||
+                    (options.clipBounds != null && !intersectsClip(child))) {
+                source.release(child);
+                result.culledSubtrees++;
+                return null;
+            }
+            if (!options.collapseWrappers || !isWrapper(child, result)) {
+                return child;
+            }
+            N only = source.getChild(child, 0);
+            result.childCalls++;
+            source.release(child);
+            if (only == null) {
+                return null;
+            }
+            result.collapsedNodes++;
+            child = only;
+        }
+    }
+
+    private boolean intersectsClip(N node) {
+        source.getBounds(node, scratchBounds);
+        int[] clip = options.clipBounds;
+        return scratchBounds[0] < scratchBounds[2] && scratchBounds[1] < scratchBounds[3] &&
+                scratchBounds[0] < clip[2] && clip[0] < scratchBounds[2] &&
+                scratchBounds[1] < clip[3] && clip[1] < scratchBounds[3];
+    }
+
+    private boolean isWrapper(N node, Result result) {
+        if (source.getText(node) != null || source.getContentDescription(node) != null ||
+                source.getViewId(node) != null) {
+            return false;
+        }
+        if (source.hasActions(node)) {
+            return false;
+        }
+        result.childCalls++;
+        return source.getChildCount(node) == 1;
+    }
+
+    private void release(N node, N root) {
+        if (node != root && !retainNodes) {
+            source.release(node);
+        }
+    }
+}
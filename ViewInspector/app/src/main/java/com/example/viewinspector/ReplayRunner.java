@@ -0,0 +1,169 @@
+package com.example.viewinspector;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 离线重放录制的快照文件（.vis），在多个线程上并行运行分析；不依赖 Android 框架，可在工作站上运行
+public class ReplayRunner {
+
+    public interface Analysis<R> {
+        R analyze(File file, ViewSnapshot snapshot) throws Exception;
+    }
+
+    public static class Outcome<R> {
+        public final File file;
+        public final R result;
+        // 读取或分析失败时不为 null，此时 result 为 null
+        public final Exception error;
+
+        Outcome(File file, R result, Exception error) {
+            this.file = file;
+            this.result = result;
+            this.error = error;
+        }
+    }
+
+    private final int parallelism;
+
+    public ReplayRunner(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("并行度必须大于 0");
+        }
+        this.parallelism = parallelism;
+    }
+
+    // 结果顺序与 files 一致；单个文件失败不会中断其他文件
+    public <R> List<Outcome<R>> run(List<File> files, final Analysis<R> analysis) throws InterruptedException {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, files.size())), r -> {
+            Thread thread = new Thread(r, "snapshot-replay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Outcome<R>>> futures = new ArrayList<>(files.size());
+            for (final File file : files) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        return new Outcome<>(file, analysis.analyze(file, load(file)), null);
+                    } catch (Exception e) {
+                        return new Outcome<R>(file, null, e);
+                    }
+                }));
+            }
+            List<Outcome<R>> outcomes = new ArrayList<>(files.size());
+            for (Future<Outcome<R>> future : futures) {
+                try {
+                    outcomes.add(future.get());
+                } catch (ExecutionException e) {
+                    // analyze 的异常已在任务内捕获，这里只会是 Error
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static ViewSnapshot load(File file) throws IOException {
+        try (SnapshotFileReader reader = SnapshotFileReader.open(file)) {
+            return reader.toSnapshot();
+        }
+    }
+
+    // 用与实时捕获相同的遍历代码重新遍历录制的树，使深度、数量限制等选项对离线数据同样生效
+    public static ViewSnapshot retraverse(ViewSnapshot recorded, TraversalOptions options) {
+        final SnapshotNodeSource source = new SnapshotNodeSource(recorded);
+        NodeTraverser<Integer> traverser = new NodeTraverser<>(source, options, null, null, false);
+        final ViewSnapshot.Builder builder = new ViewSnapshot.Builder(recorded.size());
+        NodeTraverser.Truncation truncation = NodeTraverser.Truncation.NONE;
+        for (Integer root : source.getRoots()) {
+            NodeTraverser.Result result = traverser.traverse(root, 0, null, (node, depth, parent) -> {
+                builder.add(source, node, depth);
+                return null;
+            });
+            if (truncation == NodeTraverser.Truncation.NONE) {
+                truncation = result.truncation;
+            }
+        }
+        for (ViewSnapshot.WindowEntry window : recorded.windows) {
+            builder.addWindow(window);
+        }
+        return builder.build(truncation);
+    }
+
+    // 展开目录，只保留 .vis 文件，按路径排序以便结果可复现
+    public static List<File> collectFiles(List<File> roots) {
+        List<File> files = new ArrayList<>();
+        List<File> pending = new ArrayList<>(roots);
+        while (!pending.isEmpty()) {
+            File file = pending.remove(pending.size() - 1);
+            if (file.isDirectory()) {
+                File[] entries = file.listFiles();
+                if (entries != null) {
+                    pending.addAll(Arrays.asList(entries));
+                }
+            } else if (file.getName().endsWith(".vis")) {
+                files.add(file);
+            }
+        }
+        files.sort((a, b) -> a.getPath().compareTo(b.getPath()));
+        return files;
+    }
+
+    // 用法：ReplayRunner <选择器或文本> <文件或目录>...
+    // 每个文件输出一行：路径、节点数、匹配数，以制表符分隔；最后输出总体吞吐量
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: ReplayRunner <selector|text> <file-or-dir>...");
+            System.exit(2);
+        }
+        final String query = args[0];
+        SelectorQuery parsed;
+        try {
+            parsed = SelectorQuery.compile(query);
+        } catch (IllegalArgumentException e) {
+            // 不是合法的选择器时按文本检索
+            parsed = null;
+        }
+        final SelectorQuery selector = parsed;
+        List<File> roots = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            roots.add(new File(args[i]));
+        }
+        List<File> files = collectFiles(roots);
+
+        long start = System.nanoTime();
+        List<Outcome<int[]>> outcomes = new ReplayRunner(Runtime.getRuntime().availableProcessors())
+                .run(files, (file, snapshot) -> {
+                    int[] rows = new int[snapshot.size()];
+                    return new int[] {snapshot.size(),
+                            SnapshotFilter.collectRows(snapshot, selector, query, false, rows)};
+                });
+        long elapsedNanos = System.nanoTime() - start;
+
+        long totalNodes = 0;
+        int failures = 0;
+        for (Outcome<int[]> outcome : outcomes) {
+            if (outcome.error != null) {
+                failures++;
+                System.err.println(outcome.file.getPath() + "\t" + outcome.error);
+                continue;
+            }
+            totalNodes += outcome.result[0];
+            System.out.println(outcome.file.getPath() + "\t" + outcome.result[0] + "\t" + outcome.result[1]);
+        }
+        System.err.println(String.format("%d files, %d failed, %d nodes in %.1f ms (%.0f nodes/s)",
+                files.size(), failures, totalNodes, elapsedNanos / 1e6,
+                elapsedNanos > 0 ? totalNodes * 1e9 / elapsedNanos : 0.0));
+    }
+}
@@ -0,0 +1,584 @@
+package com.example.viewinspector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/*
+ * 类似 CSS 的控件选择器，编译一次后可对任意快照反复执行。语法：
+ *
+ *   Button                      简单类名；含 '.' 时按完整类名匹配，'*' 匹配任意节点
+ *   #ok / #com.app:id/ok        资源 ID；不含 ':' 时按 ":id/" 之后的短 ID 匹配
+ *   [text="OK"]                 属性：text, desc, id, class；运算符 = != *= ^= $= ~=
+ *   [text~=/^确定$/i]            正则匹配（find 语义）
+ *   [left>=100] [width<50]      数值属性：left top right bottom width height depth window
+ *   :clickable :enabled :focusable :focused，以及 [clickable=false]
+ *   :contains(540,960)          边界包含该点；:within(l,t,r,b) / :intersects(l,t,r,b)
+ *   A B / A > B                 后代 / 直接子节点
+ *   A, B                        并集
+ */
+public class SelectorQuery {
+
+    interface NodePredicate {
+        boolean test(ViewSnapshot snapshot, int node);
+    }
+
+    private static final int DESCENDANT = 0;
+    private static final int CHILD = 1;
+
+    // 一个复合选择器，例如 Button#ok[text="OK"]:clickable
+    private static class Compound {
+        String className;
+        String viewId;
+        final List<NodePredicate> predicates = new ArrayList<>();
+
+        boolean matches(ViewSnapshot snapshot, int node, int[] classIds, int[] viewIdIds) {
+            if (classIds != null && !containsId(classIds, snapshot.getClassNameId(node))) {
+                return false;
+            }
+            if (viewIdIds != null && !containsId(viewIdIds, snapshot.getViewIdId(node))) {
+                return false;
+            }
+            for (NodePredicate predicate : predicates) {
+                if (!predicate.test(snapshot, node)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // 由组合符连接的复合选择器序列，combinators[i] 位于 steps[i] 与 steps[i + 1] 之间
+    private static class Chain {
+        final List<Compound> steps = new ArrayList<>();
+        final List<Integer> combinators = new ArrayList<>();
+    }
+
+    private final String source;
+    private final List<Chain> alternatives;
+
+    private SelectorQuery(String source, List<Chain> alternatives) {
+        this.source = source;
+        this.alternatives = alternatives;
+    }
+
+    public static SelectorQuery compile(String selector) {
+        return new Parser(selector).parse();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    // 把匹配的节点下标按升序写入 out（长度至少为快照大小），返回数量
+    public int evaluate(ViewSnapshot snapshot, int[] out) {
+        SnapshotQueryIndex index = snapshot.getQueryIndex();
+        if (alternatives.size() == 1) {
+            return evaluate(alternatives.get(0), snapshot, index, out, 0, null);
+        }
+        BitSet matched = new BitSet(snapshot.size());
+        int[] scratch = new int[snapshot.size()];
+        for (Chain chain : alternatives) {
+            evaluate(chain, snapshot, index, scratch, 0, matched);
+        }
+        int count = 0;
+        for (int node = matched.nextSetBit(0); node >= 0; node = matched.nextSetBit(node + 1)) {
+            out[count++] = node;
+        }
+        return count;
+    }
+
+    public int[] evaluate(ViewSnapshot snapshot) {
+        int[] out = new int[snapshot.size()];
+        int count = evaluate(snapshot, out);
+        return Arrays.copyOf(out, count);
+    }
+
+    // 返回第一个匹配节点，没有时返回 -1
+    public int findFirst(ViewSnapshot snapshot) {
+        int[] matches = evaluate(snapshot);
+        return matches.length > 0 ? matches[0] : -1;
+    }
+
+    private int evaluate(Chain chain, ViewSnapshot snapshot, SnapshotQueryIndex index, int[] out, int count, BitSet matched) {
+        int last = chain.steps.size() - 1;
+        Compound target = chain.steps.get(last);
+        int[][] classIds = new int[chain.steps.size()][];
+        int[][] viewIdIds = new int[chain.steps.size()][];
+        for (int i = 0; i <= last; i++) {
+            Compound step = chain.steps.get(i);
+            classIds[i] = step.className != null ? index.classNameIds(step.className) : null;
+            viewIdIds[i] = step.viewId != null ? index.viewIdIds(step.viewId) : null;
+        }
+
+        // 优先用哈希索引取候选节点，选择候选更少的那个索引；都没有时全量扫描
+        int[] candidates = null;
+        int candidateCount = snapshot.size();
+        int viewIdCount = viewIdIds[last] != null ? index.countViewIdRows(viewIdIds[last]) : Integer.MAX_VALUE;
+        int classCount = classIds[last] != null ? index.countClassRows(classIds[last]) : Integer.MAX_VALUE;
+        if (viewIdCount <= classCount && viewIdCount <= candidateCount) {
+            candidates = new int[viewIdCount];
+            candidateCount = index.viewIdRows(viewIdIds[last], candidates);
+        } else if (classCount <= candidateCount) {
+            candidates = new int[classCount];
+            candidateCount = index.classRows(classIds[last], candidates);
+        }
+
+        for (int i = 0; i < candidateCount; i++) {
+            int node = candidates != null ? candidates[i] : i;
+            if (target.matches(snapshot, node, classIds[last], viewIdIds[last]) &&
+                    matchesAncestors(chain, last, node, snapshot, classIds, viewIdIds)) {
+                if (matched != null) {
+                    matched.set(node);
+                } else {
+                    out[count++] = node;
+                }
+            }
+        }
+        return count;
+    }
+
+    // 从右向左验证祖先链
+    private static boolean matchesAncestors(Chain chain, int step, int node, ViewSnapshot snapshot,
+                                            int[][] classIds, int[][] viewIdIds) {
+        if (step == 0) {
+            return true;
+        }
+        Compound previous = chain.steps.get(step - 1);
+        int combinator = chain.combinators.get(step - 1);
+        for (int parent = snapshot.getParent(node); parent != ViewSnapshot.NO_PARENT; parent = snapshot.getParent(parent)) {
+            if (previous.matches(snapshot, parent, classIds[step - 1], viewIdIds[step - 1]) &&
+                    matchesAncestors(chain, step - 1, parent, snapshot, classIds, viewIdIds)) {
+                return true;
+            }
+            if (combinator == CHILD) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsId(int[] ids, int id) {
+        for (int candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Parser {
+        private final String input;
+        private int pos;
+
+        Parser(String input) {
+            if (input == null) {
+                throw new IllegalArgumentException("选择器为空");
+            }
+            this.input = input;
+        }
+
+        SelectorQuery parse() {
+            List<Chain> alternatives = new ArrayList<>();
+            do {
+                alternatives.add(parseChain());
+                skipWhitespace();
+            } while (consume(','));
+            if (pos < input.length()) {
+                throw error("无法解析的字符 '" + input.charAt(pos) + "'");
+            }
+            return new SelectorQuery(input.trim(), alternatives);
+        }
+
+        private Chain parseChain() {
+            Chain chain = new Chain();
+            skipWhitespace();
+            chain.steps.add(parseCompound());
+            while (true) {
+                boolean whitespace = skipWhitespace();
+                if (pos >= input.length() || peek() == ',') {
+                    return chain;
+                }
+                if (consume('>')) {
+                    skipWhitespace();
+                    chain.combinators.add(CHILD);
+                } else if (whitespace) {
+                    chain.combinators.add(DESCENDANT);
+                } else {
+                    throw error("缺少组合符");
+                }
+                chain.steps.add(parseCompound());
+            }
+        }
+
+        private Compound parseCompound() {
+            Compound compound = new Compound();
+            int start = pos;
+            if (consume('*')) {
+                // 任意节点
+            } else if (pos < input.length() && isNameChar(peek())) {
+                compound.className = readWhile("._$");
+            }
+            while (pos < input.length()) {
+                char c = peek();
+                if (c == '#') {
+                    pos++;
+                    compound.viewId = readWhile(".:/_$");
+                    if (compound.viewId.isEmpty()) {
+                        throw error("缺少资源 ID");
+                    }
+                } else if (c == '[') {
+                    pos++;
+                    compound.predicates.add(parseAttribute());
+                } else if (c == ':') {
+                    pos++;
+                    compound.predicates.add(parsePseudo());
+                } else {
+                    break;
+                }
+            }
+            if (pos == start) {
+                throw error("缺少选择器");
+            }
+            return compound;
+        }
+
+        private NodePredicate parseAttribute() {
+            skipWhitespace();
+            String name = readWhile("_");
+            skipWhitespace();
+            if (consume(']')) {
+                return flagPredicate(name, true);
+            }
+            String operator = readOperator();
+            skipWhitespace();
+            NodePredicate predicate;
+            if (operator.equals("~=")) {
+                predicate = stringPredicate(name, operator, null, readRegex());
+            } else if (isNumericAttribute(name)) {
+                predicate = numericPredicate(name, operator, readInt());
+            } else if (isFlag(name)) {
+                String value = readWhile("");
+                if (!operator.equals("=") && !operator.equals("!=")) {
+                    throw error("布尔属性只支持 = 和 !=");
+                }
+                if (!value.equals("true") && !value.equals("false")) {
+                    throw error("布尔属性 " + name + " 的值只能是 true 或 false: " + value);
+                }
+                predicate = flagPredicate(name, value.equals("true") == operator.equals("="));
+            } else {
+                predicate = stringPredicate(name, operator, readValue(), null);
+            }
+            skipWhitespace();
+            expect(']');
+            return predicate;
+        }
+
+        private NodePredicate parsePseudo() {
+            String name = readWhile("-");
+            if (!consume('(')) {
+                return flagPredicate(name, true);
+            }
+            List<Integer> args = new ArrayList<>();
+            do {
+                skipWhitespace();
+                args.add(readInt());
+                skipWhitespace();
+            } while (consume(','));
+            expect(')');
+
+            switch (name) {
+                case "contains":
+                    requireArgs(name, args, 2);
+                    final int x = args.get(0), y = args.get(1);
+                    return (s, n) -> s.getLeft(n) <= x && x < s.getRight(n) && s.getTop(n) <= y && y < s.getBottom(n);
+                case "within":
+                    requireArgs(name, args, 4);
+                    final int wl = args.get(0), wt = args.get(1), wr = args.get(2), wb = args.get(3);
+                    return (s, n) -> s.getLeft(n) >= wl && s.getTop(n) >= wt && s.getRight(n) <= wr && s.getBottom(n) <= wb;
+                case "intersects":
+                    requireArgs(name, args, 4);
+                    final int il = args.get(0), it = args.get(1), ir = args.get(2), ib = args.get(3);
+                    return (s, n) -> s.getLeft(n) < ir && il < s.getRight(n) && s.getTop(n) < ib && it < s.getBottom(n);
+                default:
+                    throw error("未知的伪类 :" + name);
+            }
+        }
+
+        private NodePredicate flagPredicate(String name, final boolean expected) {
+            final int flag;
+            switch (name) {
+                case "clickable":
+                    flag = ViewSnapshot.FLAG_CLICKABLE;
+                    break;
+                case "enabled":
+                    flag = ViewSnapshot.FLAG_ENABLED;
+                    break;
+                case "focusable":
+                    flag = ViewSnapshot.FLAG_FOCUSABLE;
+                    break;
+                case "focused":
+                    flag = ViewSnapshot.FLAG_FOCUSED;
+                    break;
+                default:
+                    throw error("未知的标志 " + name);
+            }
+            return (s, n) -> s.hasFlag(n, flag) == expected;
+        }
+
+        private NodePredicate numericPredicate(String name, final String operator, final int value) {
+            final int attribute;
+            switch (name) {
+                case "left": attribute = 0; break;
+                case "top": attribute = 1; break;
+                case "right": attribute = 2; break;
+                case "bottom": attribute = 3; break;
+                case "width": attribute = 4; break;
+                case "height": attribute = 5; break;
+                case "depth": attribute = 6; break;
+                default: attribute = 7; break; // window
+            }
+            switch (operator) {
+                case "=":
+                case "!=":
+                case "<":
+                case "<=":
+                case ">":
+                case ">=":
+                    break;
+                default:
+                    throw error("属性 " + name + " 不支持运算符 " + operator);
+            }
+            return (s, n) -> compare(numericValue(s, n, attribute), operator, value);
+        }
+
+        private NodePredicate stringPredicate(String name, final String operator, final String value, final Pattern pattern) {
+            final int attribute;
+            switch (name) {
+                case "text": attribute = 0; break;
+                case "desc":
+                case "description": attribute = 1; break;
+                case "id": attribute = 2; break;
+                case "class": attribute = 3; break;
+                default: throw error("未知的属性 " + name);
+            }
+            switch (operator) {
+                case "=": return (s, n) -> value.equals(stringValue(s, n, attribute));
+                case "!=": return (s, n) -> !value.equals(stringValue(s, n, attribute));
+                case "*=": return (s, n) -> {
+                    String actual = stringValue(s, n, attribute);
+                    return actual != null && actual.contains(value);
+                };
+                case "^=": return (s, n) -> {
+                    String actual = stringValue(s, n, attribute);
+                    return actual != null && actual.startsWith(value);
+                };
+                case "$=": return (s, n) -> {
+                    String actual = stringValue(s, n, attribute);
+                    return actual != null && actual.endsWith(value);
+                };
+                case "~=": return (s, n) -> {
+                    String actual = stringValue(s, n, attribute);
+                    return actual != null && pattern.matcher(actual).find();
+                };
+                default: throw error("属性 " + name + " 不支持运算符 " + operator);
+            }
+        }
+
+        private static String stringValue(ViewSnapshot s, int n, int attribute) {
+            switch (attribute) {
+                case 0: return s.getText(n);
+                case 1: return s.getContentDescription(n);
+                case 2: return s.getViewId(n);
+                default: return s.getClassName(n);
+            }
+        }
+
+        private static int numericValue(ViewSnapshot s, int n, int attribute) {
+            switch (attribute) {
+                case 0: return s.getLeft(n);
+                case 1: return s.getTop(n);
+                case 2: return s.getRight(n);
+                case 3: return s.getBottom(n);
+                case 4: return s.getRight(n) - s.getLeft(n);
+                case 5: return s.getBottom(n) - s.getTop(n);
+                case 6: return s.getDepth(n);
+                default: return s.getWindowId(n);
+            }
+        }
+
+        // operator 已由 numericPredicate 校验
+        private static boolean compare(int actual, String operator, int expected) {
+            switch (operator) {
+                case "=": return actual == expected;
+                case "!=": return actual != expected;
+                case "<": return actual < expected;
+                case "<=": return actual <= expected;
+                case ">": return actual > expected;
+                default: return actual >= expected;
+            }
+        }
+
+        private boolean isNumericAttribute(String name) {
+            switch (name) {
+                case "left":
+                case "top":
+                case "right":
+                case "bottom":
+                case "width":
+                case "height":
+                case "depth":
+                case "window":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private boolean isFlag(String name) {
+            return name.equals("clickable") || name.equals("enabled") ||
+                   name.equals("focusable") || name.equals("focused");
+        }
+
+        private String readOperator() {
+            String[] operators = {"!=", "*=", "^=", "$=", "~=", "<=", ">=", "=", "<", ">"};
+            for (String operator : operators) {
+                if (input.startsWith(operator, pos)) {
+                    pos += operator.length();
+                    return operator;
+                }
+            }
+            throw error("缺少运算符");
+        }
+
+        private String readValue() {
+            if (pos < input.length() && (peek() == '"' || peek() == '\'')) {
+                char quote = input.charAt(pos++);
+                StringBuilder sb = new StringBuilder();
+                while (pos < input.length() && peek() != quote) {
+                    char c = input.charAt(pos++);
+                    if (c == '\\' && pos < input.length()) {
+                        c = input.charAt(pos++);
+                    }
+                    sb.append(c);
+                }
+                expect(quote);
+                return sb.toString();
+            }
+            String value = readWhile(".:/_$-");
+            if (value.isEmpty()) {
+                throw error("缺少属性值");
+            }
+            return value;
+        }
+
+        private Pattern readRegex() {
+            String body;
+            int flags = 0;
+            if (consume('/')) {
+                StringBuilder sb = new StringBuilder();
+                while (pos < input.length() && peek() != '/') {
+                    char c = input.charAt(pos++);
+                    if (c == '\\' && pos < input.length() && peek() == '/') {
+                        c = input.charAt(pos++);
+                    } else if (c == '\\' && pos < input.length()) {
+                        sb.append(c);
+                        c = input.charAt(pos++);
+                    }
+                    sb.append(c);
+                }
+                expect('/');
+                body = sb.toString();
+                while (pos < input.length() && Character.isLetter(peek())) {
+                    char flag = input.charAt(pos++);
+                    if (flag == 'i') {
+                        flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                    } else if (flag == 's') {
+                        flags |= Pattern.DOTALL;
+                    } else {
+                        throw error("未知的正则标志 " + flag);
+                    }
+                }
+            } else {
+                body = readValue();
+            }
+            try {
+                return Pattern.compile(body, flags);
+            } catch (PatternSyntaxException e) {
+                throw error("正则表达式错误: " + e.getDescription());
+            }
+        }
+
+        private int readInt() {
+            int start = pos;
+            if (pos < input.length() && peek() == '-') {
+                pos++;
+            }
+            while (pos < input.length() && Character.isDigit(peek())) {
+                pos++;
+            }
+            try {
+                return Integer.parseInt(input.substring(start, pos));
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("缺少整数");
+            }
+        }
+
+        private void requireArgs(String name, List<Integer> args, int count) {
+            if (args.size() != count) {
+                throw error(":" + name + " 需要 " + count + " 个参数");
+            }
+        }
+
+        private String readWhile(String extra) {
+            int start = pos;
+            while (pos < input.length() && (isNameChar(peek()) || extra.indexOf(peek()) >= 0)) {
+                pos++;
+            }
+            return input.substring(start, pos);
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        private boolean skipWhitespace() {
+            int start = pos;
+            while (pos < input.length() && Character.isWhitespace(peek())) {
+                pos++;
+            }
+            return pos > start;
+        }
+
+        private char peek() {
+            return input.charAt(pos);
+        }
+
+        private boolean consume(char c) {
+            if (pos < input.length() && peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw error("缺少 '" + c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + "（位置 " + pos + "）: " + input);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.viewinspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// 跟踪服务是否已连接：由服务的生命周期回调直接通知，等待方在连接后立即收到回调，不需要轮询或固定延迟重试
+public class ServiceReadiness<S> {
+
+    public interface Callback<S> {
+        void onReady(S service);
+    }
+
+    private final Executor callbackExecutor;
+    private final List<Callback<S>> waiting = new ArrayList<>();
+    // 已交给 callbackExecutor 但尚未执行的回调，cancel 后不再执行
+    private final List<Callback<S>> delivering = new ArrayList<>();
+    private S service;
+    // 系统设置中是否启用了服务，由系统状态监听更新；未知时为 null
+    private Boolean enabled;
+
+    // callbackExecutor 决定 whenReady 的回调在哪个线程上执行
+    public ServiceReadiness(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public void onConnected(S connected) {
+        List<Callback<S>> callbacks;
+        synchronized (this) {
+            service = connected;
+            enabled = Boolean.TRUE;
+            callbacks = new ArrayList<>(waiting);
+            waiting.clear();
+            notifyAll();
+        }
+        for (Callback<S> callback : callbacks) {
+            deliver(callback);
+        }
+    }
+
+    public synchronized void onDisconnected(S disconnected) {
+        if (service == disconnected) {
+            service = null;
+            // 断开可能是用户在设置中关闭了服务，也可能是进程异常，下次需要时重新读取设置
+            enabled = null;
+        }
+    }
+
+    // 由系统无障碍状态监听调用，传入 null 表示状态已变化但尚未重新读取
+    public synchronized void setEnabled(Boolean value) {
+        enabled = value;
+    }
+
+    public synchronized Boolean getEnabled() {
+        return enabled;
+    }
+
+    public synchronized S get() {
+        return service;
+    }
+
+    public synchronized boolean isReady() {
+        return service != null;
+    }
+
+    // 已连接时立即回调，否则在下一次连接时回调一次
+    public void whenReady(Callback<S> callback) {
+        synchronized (this) {
+            if (service == null) {
+                if (!waiting.contains(callback)) {
+                    waiting.add(callback);
+                }
+                return;
+            }
+        }
+        deliver(callback);
+    }
+
+    public synchronized void cancel(Callback<S> callback) {
+        waiting.remove(callback);
+        delivering.remove(callback);
+    }
+
+    // 阻塞等待连接，超时返回 null；不能在回调所用的线程上调用
+    public synchronized S awaitReady(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1000000L;
+        while (service == null) {
+            long remainingMillis = (deadline - System.nanoTime()) / 1000000L;
+            if (remainingMillis <= 0) {
+                return null;
+            }
+            wait(remainingMillis);
+        }
+        return service;
+    }
+
+    private void deliver(final Callback<S> callback) {
+        synchronized (this) {
+            delivering.add(callback);
+        }
+        callbackExecutor.execute(() -> {
+            S current;
+            synchronized (this) {
+                if (!delivering.remove(callback)) {
+                    return;
+                }
+                current = service;
+                if (current == null) {
+                    // 回调执行前服务已断开，重新等待下一次连接
+                    if (!waiting.contains(callback)) {
+                        waiting.add(callback);
+                    }
+                    return;
+                }
+            }
+            callback.onReady(current);
+        });
+    }
+}
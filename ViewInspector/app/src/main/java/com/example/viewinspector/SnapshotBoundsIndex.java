@@ -0,0 +1,168 @@
+package com.example.viewinspector;
+
+// 快照节点边界的均匀网格索引，用于按坐标查找包含该点的节点。
+// 覆盖格子过多的大节点（通常是全屏容器）不放入网格，单独列出，查询时逐个检查
+public class SnapshotBoundsIndex {
+
+    public static final int DEFAULT_CELL_SIZE = 64;
+    // 超过该格子数的节点放入大节点列表，避免全屏容器在每个格子里各占一项
+    private static final int MAX_CELLS_PER_NODE = 64;
+    // 网格的最大行列数，屏幕外的坐标会落到边缘的格子里
+    private static final int MAX_GRID_SIZE = 256;
+
+    private final ViewSnapshot snapshot;
+    private final int cellSize;
+    private int originX;
+    private int originY;
+    private int columns;
+    private int rows;
+    // 格子 c 的节点为 cellNodes[cellStart[c], cellStart[c + 1])，下标递增
+    private int[] cellStart;
+    private int[] cellNodes;
+    private int[] largeNodes;
+
+    private SnapshotBoundsIndex(ViewSnapshot snapshot, int cellSize) {
+        this.snapshot = snapshot;
+        this.cellSize = cellSize;
+    }
+
+    public static SnapshotBoundsIndex build(ViewSnapshot snapshot) {
+        return build(snapshot, DEFAULT_CELL_SIZE);
+    }
+
+    public static SnapshotBoundsIndex build(ViewSnapshot snapshot, int cellSize) {
+        SnapshotBoundsIndex index = new SnapshotBoundsIndex(snapshot, cellSize);
+        index.buildGrid();
+        return index;
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    private void buildGrid() {
+        int size = snapshot.size();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (isEmpty(i)) {
+                continue;
+            }
+            minX = Math.min(minX, snapshot.getLeft(i));
+            minY = Math.min(minY, snapshot.getTop(i));
+            maxX = Math.max(maxX, snapshot.getRight(i));
+            maxY = Math.max(maxY, snapshot.getBottom(i));
+        }
+        if (minX > maxX) {
+            minX = minY = maxX = maxY = 0;
+        }
+        originX = minX;
+        originY = minY;
+        columns = (int) Math.min(MAX_GRID_SIZE, ((long) maxX - minX + cellSize - 1) / cellSize + 1);
+        rows = (int) Math.min(MAX_GRID_SIZE, ((long) maxY - minY + cellSize - 1) / cellSize + 1);
+
+        // 第一遍统计每个格子的节点数，第二遍按下标顺序填入
+        int[] counts = new int[columns * rows + 1];
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (isEmpty(i)) {
+                continue;
+            }
+            if (cellCount(i) > MAX_CELLS_PER_NODE) {
+                largeCount++;
+                continue;
+            }
+            for (int row = rowOf(snapshot.getTop(i)); row <= rowOf(snapshot.getBottom(i) - 1); row++) {
+                for (int column = columnOf(snapshot.getLeft(i)); column <= columnOf(snapshot.getRight(i) - 1); column++) {
+                    counts[row * columns + column + 1]++;
+                }
+            }
+        }
+        for (int c = 1; c < counts.length; c++) {
+            counts[c] += counts[c - 1];
+        }
+        cellStart = counts.clone();
+        cellNodes = new int[counts[counts.length - 1]];
+        largeNodes = new int[largeCount];
+        largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (isEmpty(i)) {
+                continue;
+            }
+            if (cellCount(i) > MAX_CELLS_PER_NODE) {
+                largeNodes[largeCount++] = i;
+                continue;
+            }
+            for (int row = rowOf(snapshot.getTop(i)); row <= rowOf(snapshot.getBottom(i) - 1); row++) {
+                for (int column = columnOf(snapshot.getLeft(i)); column <= columnOf(snapshot.getRight(i) - 1); column++) {
+                    cellNodes[counts[row * columns + column]++] = i;
+                }
+            }
+        }
+    }
+
+    // 把边界包含 (x, y) 的节点下标按升序写入 out，祖先在子孙之前，返回数量；out 长度至少为 size()
+    public int nodesAt(int x, int y, int[] out) {
+        int count = 0;
+        int cell = rowOf(y) * columns + columnOf(x);
+        int c = cellStart[cell];
+        int cellEnd = cellStart[cell + 1];
+        int l = 0;
+        // 两个列表都按下标递增，合并后仍然有序
+        while (c < cellEnd || l < largeNodes.length) {
+            int node;
+            if (l >= largeNodes.length || (c < cellEnd && cellNodes[c] < largeNodes[l])) {
+                node = cellNodes[c++];
+            } else {
+                node = largeNodes[l++];
+            }
+            if (contains(node, x, y)) {
+                out[count++] = node;
+            }
+        }
+        return count;
+    }
+
+    // 包含 (x, y) 的最深节点，没有时返回 -1
+    public int deepestAt(int x, int y) {
+        int[] out = new int[size()];
+        return deepest(out, nodesAt(x, y, out));
+    }
+
+    // nodes 前 count 个节点中最深的一个，相同深度时取先序中靠后（绘制在上层）的节点
+    public int deepest(int[] nodes, int count) {
+        int deepest = -1;
+        for (int i = 0; i < count; i++) {
+            if (deepest < 0 || snapshot.getDepth(nodes[i]) >= snapshot.getDepth(deepest)) {
+                deepest = nodes[i];
+            }
+        }
+        return deepest;
+    }
+
+    private boolean contains(int node, int x, int y) {
+        return snapshot.getLeft(node) <= x && x < snapshot.getRight(node) &&
+                snapshot.getTop(node) <= y && y < snapshot.getBottom(node);
+    }
+
+    private boolean isEmpty(int node) {
+        return snapshot.getLeft(node) >= snapshot.getRight(node) || snapshot.getTop(node) >= snapshot.getBottom(node);
+    }
+
+    private long cellCount(int node) {
+        return (long) (columnOf(snapshot.getRight(node) - 1) - columnOf(snapshot.getLeft(node)) + 1) *
+                (rowOf(snapshot.getBottom(node) - 1) - rowOf(snapshot.getTop(node)) + 1);
+    }
+
+    private int columnOf(int x) {
+        return clamp(((long) x - originX) / cellSize, columns);
+    }
+
+    private int rowOf(int y) {
+        return clamp(((long) y - originY) / cellSize, rows);
+    }
+
+    private static int clamp(long value, int limit) {
+        return (int) Math.max(0, Math.min(limit - 1, value));
+    }
+}
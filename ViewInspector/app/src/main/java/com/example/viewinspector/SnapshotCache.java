@@ -0,0 +1,106 @@
+package com.example.viewinspector;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+// 由无障碍服务持有的共享快照：每次发布代数加一，并在进程内通知所有界面，同一次捕获只遍历一次
+public class SnapshotCache {
+
+    public static class Entry {
+        public final ViewSnapshot snapshot;
+        public final long generation;
+        public final boolean allWindows;
+        public final long publishedAtNanos;
+        // 发起捕获的一方，自动刷新等内部捕获为 null；监听者可据此忽略自己发起的捕获
+        public final Object requester;
+
+        Entry(ViewSnapshot snapshot, long generation, boolean allWindows, long publishedAtNanos, Object requester) {
+            this.snapshot = snapshot;
+            this.generation = generation;
+            this.allWindows = allWindows;
+            this.publishedAtNanos = publishedAtNanos;
+            this.requester = requester;
+        }
+    }
+
+    public interface Listener {
+        void onSnapshotPublished(Entry entry);
+    }
+
+    private final Executor deliveryExecutor;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private Entry latest;
+    private long generation;
+    // 需要所有窗口快照的界面。不为空时任何一方发起的捕获都遍历所有窗口，同一次遍历同时满足各方
+    private final Set<Object> allWindowsOwners = new HashSet<>();
+
+    // deliveryExecutor 决定监听者在哪个线程上收到通知，服务中为主线程
+    public SnapshotCache(Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    public Entry publish(ViewSnapshot snapshot, boolean allWindows, Object requester) {
+        final Entry entry;
+        synchronized (this) {
+            entry = new Entry(snapshot, ++generation, allWindows, System.nanoTime(), requester);
+            latest = entry;
+        }
+        deliveryExecutor.execute(() -> {
+            // 通知到达前已有更新的快照时跳过，监听者只会收到最新的一份
+            if (getGeneration() != entry.generation) {
+                return;
+            }
+            for (Listener listener : listeners) {
+                listener.onSnapshotPublished(entry);
+            }
+        });
+        return entry;
+    }
+
+    public synchronized Entry getLatest() {
+        return latest;
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    // maxAgeMillis 内发布且窗口范围一致时返回该快照，否则返回 null
+    public synchronized Entry getFresh(boolean allWindows, long maxAgeMillis) {
+        if (latest == null || latest.allWindows != allWindows) {
+            return null;
+        }
+        return System.nanoTime() - latest.publishedAtNanos <= maxAgeMillis * 1000000L ? latest : null;
+    }
+
+    public synchronized void setAllWindowsWanted(Object owner, boolean wanted) {
+        if (wanted) {
+            allWindowsOwners.add(owner);
+        } else {
+            allWindowsOwners.remove(owner);
+        }
+    }
+
+    public synchronized boolean isAllWindowsWanted() {
+        return !allWindowsOwners.isEmpty();
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // 丢弃缓存的快照，代数保持递增
+    public synchronized void clear() {
+        latest = null;
+        generation++;
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.viewinspector;
+
+import java.util.Arrays;
+
+// 两次捕获之间的差异：按稳定键匹配节点，整体为线性时间
+public class SnapshotDiff {
+
+    public static final byte STATUS_UNCHANGED = 0;
+    public static final byte STATUS_ADDED = 1;
+    public static final byte STATUS_CHANGED = 2;
+    public static final byte STATUS_MOVED = 3;
+
+    // 属性变化掩码
+    public static final int CHANGE_TEXT = 1;
+    public static final int CHANGE_DESCRIPTION = 1 << 1;
+    public static final int CHANGE_FLAGS = 1 << 2;
+    public static final int CHANGE_BOUNDS = 1 << 3;
+
+    private final ViewSnapshot oldSnapshot;
+    private final ViewSnapshot newSnapshot;
+    // 新快照中每个节点对应的旧节点下标，-1 表示新增
+    private final int[] newToOld;
+    private final byte[] status;
+    private final int[] changes;
+    private int[] added = new int[0];
+    private int[] removed = new int[0];
+    private int[] moved = new int[0];
+    private int[] changed = new int[0];
+
+    private SnapshotDiff(ViewSnapshot oldSnapshot, ViewSnapshot newSnapshot) {
+        this.oldSnapshot = oldSnapshot;
+        this.newSnapshot = newSnapshot;
+        this.newToOld = new int[newSnapshot.size()];
+        this.status = new byte[newSnapshot.size()];
+        this.changes = new int[newSnapshot.size()];
+    }
+
+    public static SnapshotDiff compute(ViewSnapshot oldSnapshot, ViewSnapshot newSnapshot) {
+        SnapshotDiff diff = new SnapshotDiff(oldSnapshot, newSnapshot);
+        diff.match();
+        return diff;
+    }
+
+    public ViewSnapshot getOldSnapshot() {
+        return oldSnapshot;
+    }
+
+    public ViewSnapshot getNewSnapshot() {
+        return newSnapshot;
+    }
+
+    public byte getStatus(int newIndex) {
+        return status[newIndex];
+    }
+
+    public int getChanges(int newIndex) {
+        return changes[newIndex];
+    }
+
+    public int getOldIndex(int newIndex) {
+        return newToOld[newIndex];
+    }
+
+    // 以下数组中，added / moved / changed 为新快照下标，removed 为旧快照下标
+    public int[] getAdded() {
+        return added;
+    }
+
+    public int[] getRemoved() {
+        return removed;
+    }
+
+    public int[] getMoved() {
+        return moved;
+    }
+
+    public int[] getChanged() {
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        return added.length == 0 && removed.length == 0 && moved.length == 0 && changed.length == 0;
+    }
+
+    private void match() {
+        long[] oldKeys = computeKeys(oldSnapshot);
+        long[] newKeys = computeKeys(newSnapshot);
+
+        LongIntMap oldByKey = new LongIntMap(oldKeys.length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            oldByKey.putIfAbsent(oldKeys[i], i);
+        }
+
+        boolean[] oldMatched = new boolean[oldKeys.length];
+        int addedCount = 0, movedCount = 0, changedCount = 0;
+        for (int i = 0; i < newKeys.length; i++) {
+            int oldIndex = oldByKey.get(newKeys[i]);
+            if (oldIndex >= 0 && oldMatched[oldIndex]) {
+                oldIndex = -1;
+            }
+            newToOld[i] = oldIndex;
+            if (oldIndex < 0) {
+                status[i] = STATUS_ADDED;
+                addedCount++;
+                continue;
+            }
+            oldMatched[oldIndex] = true;
+        }
+
+        // 父节点的匹配关系改变即视为移动；先序遍历保证父节点已处理
+        for (int i = 0; i < newKeys.length; i++) {
+            int oldIndex = newToOld[i];
+            if (oldIndex < 0) {
+                continue;
+            }
+            int newParent = newSnapshot.getParent(i);
+            int expectedOldParent = newParent == ViewSnapshot.NO_PARENT ? ViewSnapshot.NO_PARENT : newToOld[newParent];
+            changes[i] = compareAttributes(oldIndex, i);
+            if (oldSnapshot.getParent(oldIndex) != expectedOldParent) {
+                status[i] = STATUS_MOVED;
+                movedCount++;
+            } else if (changes[i] != 0) {
+                status[i] = STATUS_CHANGED;
+                changedCount++;
+            }
+        }
+
+        added = new int[addedCount];
+        moved = new int[movedCount];
+        changed = new int[changedCount];
+        int a = 0, m = 0, c = 0;
+        for (int i = 0; i < status.length; i++) {
+            switch (status[i]) {
+                case STATUS_ADDED: added[a++] = i; break;
+                case STATUS_MOVED: moved[m++] = i; break;
+                case STATUS_CHANGED: changed[c++] = i; break;
+            }
+        }
+
+        int removedCount = 0;
+        int[] removedRows = new int[oldMatched.length];
+        for (int i = 0; i < oldMatched.length; i++) {
+            if (!oldMatched[i]) {
+                removedRows[removedCount++] = i;
+            }
+        }
+        removed = Arrays.copyOf(removedRows, removedCount);
+    }
+
+    private int compareAttributes(int oldIndex, int newIndex) {
+        int mask = 0;
+        if (!equals(oldSnapshot.getText(oldIndex), newSnapshot.getText(newIndex))) {
+            mask |= CHANGE_TEXT;
+        }
+        if (!equals(oldSnapshot.getContentDescription(oldIndex), newSnapshot.getContentDescription(newIndex))) {
+            mask |= CHANGE_DESCRIPTION;
+        }
+        for (int flag = 0; flag < ViewSnapshot.FLAG_COUNT; flag++) {
+            if (oldSnapshot.hasFlag(oldIndex, flag) != newSnapshot.hasFlag(newIndex, flag)) {
+                mask |= CHANGE_FLAGS;
+                break;
+            }
+        }
+        if (oldSnapshot.getLeft(oldIndex) != newSnapshot.getLeft(newIndex) ||
+                oldSnapshot.getTop(oldIndex) != newSnapshot.getTop(newIndex) ||
+                oldSnapshot.getRight(oldIndex) != newSnapshot.getRight(newIndex) ||
+                oldSnapshot.getBottom(oldIndex) != newSnapshot.getBottom(newIndex)) {
+            mask |= CHANGE_BOUNDS;
+        }
+        return mask;
+    }
+
+    /*
+     * 稳定键：
+     * - 有资源 ID 的节点：类名 + ID + 该组合在整棵树中的出现序号，与所在路径无关，因此能识别移动
+     * - 其他节点：父节点的键 + 类名 + 在同类兄弟中的序号，即相对最近有 ID 祖先的结构路径
+     */
+    static long[] computeKeys(ViewSnapshot snapshot) {
+        int size = snapshot.size();
+        long[] keys = new long[size];
+        // 同一父节点下同类兄弟的计数，以及全局 ID 出现次数
+        LongIntMap siblingOrdinals = new LongIntMap(size);
+        LongIntMap idOrdinals = new LongIntMap(size);
+        // 字典中每个字符串只计算一次哈希
+        long[] classHashes = hashAll(snapshot.getClassNames());
+        long[] viewIdHashes = hashAll(snapshot.getViewIds());
+        for (int i = 0; i < size; i++) {
+            int classId = snapshot.getClassNameId(i);
+            long classHash = classId != StringDictionary.NONE ? classHashes[classId] : 0;
+            int viewIdId = snapshot.getViewIdId(i);
+            if (viewIdId != StringDictionary.NONE) {
+                long base = mix(classHash * 31 + viewIdHashes[viewIdId]);
+                int ordinal = idOrdinals.increment(base);
+                keys[i] = mix(base + ordinal);
+            } else {
+                int parent = snapshot.getParent(i);
+                long parentKey = parent == ViewSnapshot.NO_PARENT ? snapshot.getWindowId(i) : keys[parent];
+                long base = mix(parentKey * 31 + classHash);
+                int ordinal = siblingOrdinals.increment(base);
+                keys[i] = mix(base ^ (ordinal + 1) * 0x632BE59BD9B4E019L);
+            }
+        }
+        return keys;
+    }
+
+    private static long[] hashAll(StringDictionary dictionary) {
+        long[] hashes = new long[dictionary.size()];
+        for (int id = 0; id < hashes.length; id++) {
+            hashes[id] = hash(dictionary.get(id));
+        }
+        return hashes;
+    }
+
+    private static long hash(String value) {
+        if (value == null) {
+            return 0;
+        }
+        long h = 1125899906842597L;
+        for (int i = 0; i < value.length(); i++) {
+            h = 31 * h + value.charAt(i);
+        }
+        return h;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // long -> int 的开放寻址哈希表，避免 HashMap<Long, Integer> 的装箱开销
+    static class LongIntMap {
+        private final long[] keys;
+        private final int[] values;
+        private final boolean[] used;
+        private final int mask;
+
+        LongIntMap(int expectedSize) {
+            int capacity = 16;
+            while (capacity < expectedSize * 2) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            values = new int[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        int get(long key) {
+            int slot = (int) mix(key) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        void putIfAbsent(long key, int value) {
+            int slot = find(key);
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                values[slot] = value;
+            }
+        }
+
+        // 返回自增前的值（首次为 0）
+        int increment(long key) {
+            int slot = find(key);
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                values[slot] = 0;
+            }
+            return values[slot]++;
+        }
+
+        private int find(long key) {
+            int slot = (int) mix(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.viewinspector;
+
+import java.nio.ByteOrder;
+
+/*
+ * 快照二进制文件格式（小端序），版本 1：
+ *
+ *   文件头      64 字节，见下方 HEADER_* 偏移
+ *   节点表      每个节点 NODE_RECORD_SIZE 字节，按先序排列，第 i 个节点位于 nodeTableOffset + i * NODE_RECORD_SIZE
+ *   子树索引    每个节点一个 int：其子树之后第一个节点的下标
+ *   窗口表      每个窗口 WINDOW_RECORD_SIZE 字节
+ *   字符串表    stringCount + 1 个 int 偏移（相对字符串数据起点），随后是 UTF-8 数据
+ *
+ * 节点表先于字符串表写出，因此可以边遍历边写入；文件头在写入结束时回填。
+ */
+public final class SnapshotFile {
+
+    public static final int MAGIC = 0x5649534E; // "VISN"
+    public static final int VERSION = 1;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int HEADER_SIZE = 64;
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_NODE_COUNT = 8;
+    static final int HEADER_TRUNCATION = 12;
+    static final int HEADER_WINDOW_COUNT = 16;
+    static final int HEADER_STRING_COUNT = 20;
+    static final int HEADER_NODE_TABLE = 24;
+    static final int HEADER_SUBTREE_INDEX = 32;
+    static final int HEADER_WINDOW_TABLE = 40;
+    static final int HEADER_STRING_TABLE = 48;
+
+    // 节点记录：深度、父节点、窗口、4 个边界、类名、资源 ID、文本、描述（字符串表下标）、标志位
+    static final int NODE_RECORD_SIZE = 48;
+    static final int NODE_DEPTH = 0;
+    static final int NODE_PARENT = 4;
+    static final int NODE_WINDOW_ID = 8;
+    static final int NODE_BOUNDS = 12;
+    static final int NODE_CLASS_NAME = 28;
+    static final int NODE_VIEW_ID = 32;
+    static final int NODE_TEXT = 36;
+    static final int NODE_DESCRIPTION = 40;
+    static final int NODE_FLAGS = 44;
+
+    // 窗口记录：windowId、类型、层级、标题（字符串表下标）、节点数
+    static final int WINDOW_RECORD_SIZE = 20;
+
+    private SnapshotFile() {
+    }
+}
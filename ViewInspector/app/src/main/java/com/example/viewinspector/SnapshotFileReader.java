@@ -0,0 +1,221 @@
+package com.example.viewinspector;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 通过内存映射读取快照文件：打开时只解析文件头，节点和字符串在访问时才从映射区读取
+public class SnapshotFileReader implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final RandomAccessFile file;
+    // 只使用绝对位置读取，多个线程可以同时访问
+    private final MappedByteBuffer buffer;
+    private final int nodeCount;
+    private final int stringCount;
+    private final int nodeTableOffset;
+    private final int subtreeIndexOffset;
+    private final int stringTableOffset;
+    private final int stringDataOffset;
+    // 已解码的字符串，按下标延迟填充
+    private final String[] stringCache;
+
+    public final NodeTraverser.Truncation truncation;
+    public final List<ViewSnapshot.WindowEntry> windows;
+
+    private SnapshotFileReader(RandomAccessFile file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        buffer.order(SnapshotFile.BYTE_ORDER);
+        if (buffer.capacity() < SnapshotFile.HEADER_SIZE || buffer.getInt(SnapshotFile.HEADER_MAGIC) != SnapshotFile.MAGIC) {
+            throw new IOException("不是快照文件");
+        }
+        int version = buffer.getInt(SnapshotFile.HEADER_VERSION);
+        if (version != SnapshotFile.VERSION) {
+            throw new IOException("不支持的快照文件版本: " + version);
+        }
+        nodeCount = buffer.getInt(SnapshotFile.HEADER_NODE_COUNT);
+        stringCount = buffer.getInt(SnapshotFile.HEADER_STRING_COUNT);
+        nodeTableOffset = offset(buffer.getLong(SnapshotFile.HEADER_NODE_TABLE));
+        subtreeIndexOffset = offset(buffer.getLong(SnapshotFile.HEADER_SUBTREE_INDEX));
+        stringTableOffset = offset(buffer.getLong(SnapshotFile.HEADER_STRING_TABLE));
+        stringDataOffset = stringTableOffset + (stringCount + 1) * 4;
+        stringCache = new String[stringCount];
+
+        NodeTraverser.Truncation[] truncations = NodeTraverser.Truncation.values();
+        int truncationOrdinal = buffer.getInt(SnapshotFile.HEADER_TRUNCATION);
+        truncation = truncationOrdinal >= 0 && truncationOrdinal < truncations.length ?
+                truncations[truncationOrdinal] : NodeTraverser.Truncation.NONE;
+
+        int windowCount = buffer.getInt(SnapshotFile.HEADER_WINDOW_COUNT);
+        int windowTableOffset = offset(buffer.getLong(SnapshotFile.HEADER_WINDOW_TABLE));
+        List<ViewSnapshot.WindowEntry> windowList = new ArrayList<>(windowCount);
+        for (int i = 0; i < windowCount; i++) {
+            int offset = windowTableOffset + i * SnapshotFile.WINDOW_RECORD_SIZE;
+            ViewSnapshot.WindowEntry window = new ViewSnapshot.WindowEntry();
+            window.windowId = buffer.getInt(offset);
+            window.type = buffer.getInt(offset + 4);
+            window.layer = buffer.getInt(offset + 8);
+            window.title = getString(buffer.getInt(offset + 12));
+            window.nodeCount = buffer.getInt(offset + 16);
+            windowList.add(window);
+        }
+        windows = Collections.unmodifiableList(windowList);
+    }
+
+    public static SnapshotFileReader open(File source) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(source, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            // 单个映射区和其中的偏移量都以 int 表示，超过 2GB 的文件无法读取
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("快照文件超过 2GB，无法映射: " + channel.size() + " 字节");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SnapshotFileReader(file, buffer);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    // 校验文件头中的偏移量，避免损坏的文件在访问时读到错误位置
+    private int offset(long value) throws IOException {
+        if (value < SnapshotFile.HEADER_SIZE || value > buffer.capacity()) {
+            throw new IOException("快照文件头中的偏移量无效: " + value);
+        }
+        return (int) value;
+    }
+
+    public int size() {
+        return nodeCount;
+    }
+
+    public int getDepth(int index) {
+        return buffer.getInt(record(index) + SnapshotFile.NODE_DEPTH);
+    }
+
+    public int getParent(int index) {
+        return buffer.getInt(record(index) + SnapshotFile.NODE_PARENT);
+    }
+
+    public int getWindowId(int index) {
+        return buffer.getInt(record(index) + SnapshotFile.NODE_WINDOW_ID);
+    }
+
+    public int getLeft(int index) {
+        return buffer.getInt(record(index) + SnapshotFile.NODE_BOUNDS);
+    }
+
+    public int getTop(int index) {
+        return buffer.getInt(record(index) + SnapshotFile.NODE_BOUNDS + 4);
+    }
+
+    public int getRight(int index) {
+        return buffer.getInt(record(index) + SnapshotFile.NODE_BOUNDS + 8);
+    }
+
+    public int getBottom(int index) {
+        return buffer.getInt(record(index) + SnapshotFile.NODE_BOUNDS + 12);
+    }
+
+    public String getClassName(int index) {
+        return getString(buffer.getInt(record(index) + SnapshotFile.NODE_CLASS_NAME));
+    }
+
+    public String getViewId(int index) {
+        return getString(buffer.getInt(record(index) + SnapshotFile.NODE_VIEW_ID));
+    }
+
+    public String getText(int index) {
+        return getString(buffer.getInt(record(index) + SnapshotFile.NODE_TEXT));
+    }
+
+    public String getContentDescription(int index) {
+        return getString(buffer.getInt(record(index) + SnapshotFile.NODE_DESCRIPTION));
+    }
+
+    public boolean hasFlag(int index, int flag) {
+        return (buffer.getInt(record(index) + SnapshotFile.NODE_FLAGS) & (1 << flag)) != 0;
+    }
+
+    // 子树之后第一个节点的下标，直接从子树索引读取
+    public int getSubtreeEnd(int index) {
+        checkIndex(index);
+        return buffer.getInt(subtreeIndexOffset + index * 4);
+    }
+
+    // 读取整个快照到内存
+    public ViewSnapshot toSnapshot() {
+        ViewSnapshot.Builder builder = readRange(0, nodeCount, 0);
+        for (ViewSnapshot.WindowEntry window : windows) {
+            builder.addWindow(window);
+        }
+        return builder.build(truncation);
+    }
+
+    // 只读取以 index 为根的子树，深度从 0 开始重新计算
+    public ViewSnapshot readSubtree(int index) {
+        return readRange(index, getSubtreeEnd(index), getDepth(index)).build(truncation);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // 映射区在被回收前仍然有效，这里只关闭文件
+        file.close();
+    }
+
+    private ViewSnapshot.Builder readRange(int start, int end, int baseDepth) {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(Math.max(end - start, 1));
+        for (int i = start; i < end; i++) {
+            int index = builder.add(getDepth(i) - baseDepth);
+            builder.setStrings(index, getClassName(i), getText(i), getContentDescription(i), getViewId(i));
+            int flags = buffer.getInt(record(i) + SnapshotFile.NODE_FLAGS);
+            for (int flag = 0; flag < ViewSnapshot.FLAG_COUNT; flag++) {
+                builder.setFlag(index, flag, (flags & (1 << flag)) != 0);
+            }
+            builder.setBounds(index, getLeft(i), getTop(i), getRight(i), getBottom(i));
+            builder.setWindowId(index, getWindowId(i));
+        }
+        return builder;
+    }
+
+    private int record(int index) {
+        checkIndex(index);
+        return nodeTableOffset + index * SnapshotFile.NODE_RECORD_SIZE;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= nodeCount) {
+            throw new IndexOutOfBoundsException("节点下标越界: " + index);
+        }
+    }
+
+    private String getString(int id) {
+        if (id == StringDictionary.NONE) {
+            return null;
+        }
+        String value = stringCache[id];
+        if (value == null) {
+            int start = buffer.getInt(stringTableOffset + id * 4);
+            int end = buffer.getInt(stringTableOffset + (id + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            ByteBuffer view = buffer.duplicate();
+            view.position(stringDataOffset + start);
+            view.get(bytes);
+            value = new String(bytes, UTF_8);
+            // 并发解码同一个字符串时结果相同，无需加锁
+            stringCache[id] = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.viewinspector;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 以流的方式写出快照文件：节点在遍历过程中逐个写入，内存中只保留字符串表和子树索引
+public class SnapshotFileWriter implements NodeSink, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(SnapshotFile.BYTE_ORDER);
+    private final StringDictionary strings = new StringDictionary();
+    private final List<ViewSnapshot.WindowEntry> windows = new ArrayList<>();
+
+    private int nodeCount;
+    // 每个节点的子树结束下标，节点离开栈时填入
+    private int[] subtreeEnds = new int[256];
+    // 当前路径上尚未结束的节点，openPath[d] 为深度 d 的节点，同时用于推导父节点
+    private int[] openPath = new int[32];
+    private int openCount;
+    private boolean finished;
+
+    public SnapshotFileWriter(File target) throws IOException {
+        file = new RandomAccessFile(target, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        // 先写入空文件头，结束时回填
+        buffer.put(new byte[SnapshotFile.HEADER_SIZE]);
+    }
+
+    public static void write(ViewSnapshot snapshot, File target) throws IOException {
+        try (SnapshotFileWriter writer = new SnapshotFileWriter(target)) {
+            snapshot.writeTo(writer);
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int writeNode(int depth, int windowId, String className, String text, String contentDescription,
+                         String viewId, int flags, int left, int top, int right, int bottom) throws IOException {
+        if (depth > openCount) {
+            throw new IllegalArgumentException("节点深度不连续: " + depth);
+        }
+        int index = nodeCount++;
+        closeSubtrees(depth, index);
+        if (depth >= openPath.length) {
+            openPath = Arrays.copyOf(openPath, openPath.length * 2);
+        }
+        int parent = depth > 0 ? openPath[depth - 1] : ViewSnapshot.NO_PARENT;
+        openPath[openCount++] = index;
+
+        ensureRemaining(SnapshotFile.NODE_RECORD_SIZE);
+        buffer.putInt(depth);
+        buffer.putInt(parent);
+        buffer.putInt(windowId);
+        buffer.putInt(left);
+        buffer.putInt(top);
+        buffer.putInt(right);
+        buffer.putInt(bottom);
+        buffer.putInt(strings.intern(className));
+        buffer.putInt(strings.intern(viewId));
+        buffer.putInt(strings.intern(text));
+        buffer.putInt(strings.intern(contentDescription));
+        buffer.putInt(flags);
+        return index;
+    }
+
+    @Override
+    public void addWindow(ViewSnapshot.WindowEntry window) {
+        windows.add(window);
+    }
+
+    // 写出索引、窗口表和字符串表，然后回填文件头
+    @Override
+    public void finish(NodeTraverser.Truncation truncation) throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        closeSubtrees(0, nodeCount);
+
+        long subtreeIndexOffset = position();
+        for (int i = 0; i < nodeCount; i++) {
+            ensureRemaining(4);
+            buffer.putInt(subtreeEnds[i]);
+        }
+
+        long windowTableOffset = position();
+        for (ViewSnapshot.WindowEntry window : windows) {
+            ensureRemaining(SnapshotFile.WINDOW_RECORD_SIZE);
+            buffer.putInt(window.windowId);
+            buffer.putInt(window.type);
+            buffer.putInt(window.layer);
+            buffer.putInt(strings.intern(window.title));
+            buffer.putInt(window.nodeCount);
+        }
+
+        long stringTableOffset = position();
+        byte[][] encoded = new byte[strings.size()][];
+        int offset = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            ensureRemaining(4);
+            buffer.putInt(offset);
+            encoded[i] = strings.get(i).getBytes(UTF_8);
+            offset += encoded[i].length;
+        }
+        ensureRemaining(4);
+        buffer.putInt(offset);
+        for (byte[] bytes : encoded) {
+            writeBytes(bytes);
+        }
+        flush();
+
+        ByteBuffer header = ByteBuffer.allocate(SnapshotFile.HEADER_SIZE).order(SnapshotFile.BYTE_ORDER);
+        header.putInt(SnapshotFile.HEADER_MAGIC, SnapshotFile.MAGIC);
+        header.putInt(SnapshotFile.HEADER_VERSION, SnapshotFile.VERSION);
+        header.putInt(SnapshotFile.HEADER_NODE_COUNT, nodeCount);
+        header.putInt(SnapshotFile.HEADER_TRUNCATION, truncation.ordinal());
+        header.putInt(SnapshotFile.HEADER_WINDOW_COUNT, windows.size());
+        header.putInt(SnapshotFile.HEADER_STRING_COUNT, strings.size());
+        header.putLong(SnapshotFile.HEADER_NODE_TABLE, SnapshotFile.HEADER_SIZE);
+        header.putLong(SnapshotFile.HEADER_SUBTREE_INDEX, subtreeIndexOffset);
+        header.putLong(SnapshotFile.HEADER_WINDOW_TABLE, windowTableOffset);
+        header.putLong(SnapshotFile.HEADER_STRING_TABLE, stringTableOffset);
+        long headerPosition = 0;
+        while (header.hasRemaining()) {
+            headerPosition += channel.write(header, headerPosition);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            file.close();
+        }
+    }
+
+    // 深度不小于 depth 的未结束节点，其子树到 end 为止
+    private void closeSubtrees(int depth, int end) {
+        while (openCount > depth) {
+            int index = openPath[--openCount];
+            if (index >= subtreeEnds.length) {
+                subtreeEnds = Arrays.copyOf(subtreeEnds, Math.max(index + 1, subtreeEnds.length * 2));
+            }
+            subtreeEnds[index] = end;
+        }
+    }
+
+    private long position() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureRemaining(1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.viewinspector;
+
+import android.os.Handler;
+import android.os.Looper;
+
+// 筛选框的后台筛选：输入停顿后才执行，结果回到主线程；过期的筛选结果会被丢弃
+// 每次按键只更新预先分配的请求字段，不创建 Runnable 或结果数组
+public class SnapshotFilter {
+
+    public static final long DEBOUNCE_MILLIS = 150;
+
+    private static final int[] EMPTY_ROWS = new int[0];
+
+    public interface Callback {
+        // error 不为 null 时表示选择器无法编译；rows 只在回调期间有效，之后会被复用
+        void onFiltered(ViewSnapshot snapshot, int[] rows, int count, String error);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Callback callback;
+    private final Object lock = new Object();
+
+    // 以下字段仅在主线程上使用：request 写入，防抖结束后由 dispatchRequest 交给筛选线程
+    private long generation;
+    private ViewSnapshot stagedSnapshot;
+    private String stagedQuery;
+    private boolean stagedSelector;
+    private boolean stagedClickableOnly;
+    private long stagedGeneration;
+
+    // 以下字段由 lock 保护：等待筛选的请求和等待投递的结果
+    private ViewSnapshot pendingSnapshot;
+    private String pendingQuery;
+    private boolean pendingSelector;
+    private boolean pendingClickableOnly;
+    private long pendingGeneration;
+    private ViewSnapshot resultSnapshot;
+    private int[] resultRows;
+    private int resultCount;
+    private String resultError;
+    private long resultGeneration;
+    private boolean shutdown;
+
+    // 以下字段仅在筛选线程上使用；两个结果缓冲区交替写入，主线程读取其中一个时另一个可以继续写
+    private final int[][] buffers = {EMPTY_ROWS, EMPTY_ROWS};
+    private int nextBuffer;
+    private String compiledSource;
+    private SelectorQuery compiledQuery;
+    private String compileError;
+
+    private final Runnable dispatchRequest = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (lock) {
+                pendingSnapshot = stagedSnapshot;
+                pendingQuery = stagedQuery;
+                pendingSelector = stagedSelector;
+                pendingClickableOnly = stagedClickableOnly;
+                pendingGeneration = stagedGeneration;
+                lock.notifyAll();
+            }
+        }
+    };
+
+    private final Runnable deliverResult = new Runnable() {
+        @Override
+        public void run() {
+            ViewSnapshot snapshot;
+            int[] rows;
+            int count;
+            String error;
+            long requestGeneration;
+            synchronized (lock) {
+                snapshot = resultSnapshot;
+                rows = resultRows;
+                count = resultCount;
+                error = resultError;
+                requestGeneration = resultGeneration;
+                resultSnapshot = null;
+                resultRows = null;
+            }
+            // 请求都在主线程发起，结果仍是最新一代时筛选线程不会再写这个缓冲区
+            if (snapshot != null && requestGeneration == generation) {
+                callback.onFiltered(snapshot, rows, count, error);
+            }
+        }
+    };
+
+    public SnapshotFilter(Callback callback) {
+        this.callback = callback;
+        Thread worker = new Thread(this::runWorker, "view-filter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // 在主线程调用；debounce 为 true 时等待输入停顿；selector 为 true 时 query 按选择器语法解析
+    public void request(ViewSnapshot snapshot, String query, boolean selector, boolean clickableOnly,
+                        boolean debounce) {
+        stagedSnapshot = snapshot;
+        stagedQuery = query;
+        stagedSelector = selector;
+        stagedClickableOnly = clickableOnly;
+        stagedGeneration = ++generation;
+        mainHandler.removeCallbacks(dispatchRequest);
+        if (debounce) {
+            mainHandler.postDelayed(dispatchRequest, DEBOUNCE_MILLIS);
+        } else {
+            dispatchRequest.run();
+        }
+    }
+
+    public void cancel() {
+        generation++;
+        mainHandler.removeCallbacks(dispatchRequest);
+        stagedSnapshot = null;
+        synchronized (lock) {
+            pendingSnapshot = null;
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            ViewSnapshot snapshot;
+            String query;
+            boolean selector;
+            boolean clickableOnly;
+            long requestGeneration;
+            synchronized (lock) {
+                while (!shutdown && pendingSnapshot == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (shutdown) {
+                    return;
+                }
+                snapshot = pendingSnapshot;
+                query = pendingQuery;
+                selector = pendingSelector;
+                clickableOnly = pendingClickableOnly;
+                requestGeneration = pendingGeneration;
+                pendingSnapshot = null;
+                pendingQuery = null;
+            }
+            filter(snapshot, query, selector, clickableOnly, requestGeneration);
+        }
+    }
+
+    private void filter(ViewSnapshot snapshot, String query, boolean selector, boolean clickableOnly,
+                        long requestGeneration) {
+        long start = System.nanoTime();
+        SelectorQuery activeQuery = null;
+        if (selector && !isBlank(query)) {
+            // 选择器只在内容变化时重新编译
+            if (!query.equals(compiledSource)) {
+                compiledSource = query;
+                try {
+                    compiledQuery = SelectorQuery.compile(query);
+                    compileError = null;
+                } catch (IllegalArgumentException e) {
+                    compiledQuery = null;
+                    compileError = e.getMessage();
+                }
+            }
+            if (compiledQuery == null) {
+                publish(snapshot, EMPTY_ROWS, 0, compileError, requestGeneration);
+                return;
+            }
+            activeQuery = compiledQuery;
+        }
+        int[] rows = buffers[nextBuffer];
+        if (rows.length < snapshot.size()) {
+            rows = new int[snapshot.size()];
+            buffers[nextBuffer] = rows;
+        }
+        int count = collectRows(snapshot, activeQuery, query, clickableOnly, rows);
+        CaptureMetrics.getInstance().recordPhase(CaptureMetrics.PHASE_FILTER, System.nanoTime() - start);
+        publish(snapshot, rows, count, null, requestGeneration);
+        nextBuffer ^= 1;
+    }
+
+    private void publish(ViewSnapshot snapshot, int[] rows, int count, String error, long requestGeneration) {
+        synchronized (lock) {
+            resultSnapshot = snapshot;
+            resultRows = rows;
+            resultCount = count;
+            resultError = error;
+            resultGeneration = requestGeneration;
+        }
+        mainHandler.removeCallbacks(deliverResult);
+        mainHandler.post(deliverResult);
+    }
+
+    private static boolean isBlank(String query) {
+        for (int i = 0; i < query.length(); i++) {
+            if (!Character.isWhitespace(query.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 筛选的同步部分：selectorQuery 不为 null 时按选择器求值，否则按文本检索，out 至少要有 snapshot.size() 个元素
+    static int collectRows(ViewSnapshot snapshot, SelectorQuery selectorQuery, String query, boolean clickableOnly,
+                           int[] out) {
+        int count = selectorQuery != null ? selectorQuery.evaluate(snapshot, out)
+                : snapshot.getSearchIndex().search(query, out);
+        if (clickableOnly) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (snapshot.isClickable(out[i])) {
+                    out[kept++] = out[i];
+                }
+            }
+            count = kept;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.viewinspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 以录制的快照作为节点来源，节点即快照中的下标，使遍历和分析代码可以离线运行
+public class SnapshotNodeSource implements NodeSource<Integer> {
+
+    private final ViewSnapshot snapshot;
+    // 预先装箱，遍历时不产生分配
+    private final Integer[] nodes;
+    // 按父节点分组的子节点下标，childOffsets[i] 到 childOffsets[i + 1] 为节点 i 的子节点
+    private final int[] childOffsets;
+    private final int[] children;
+    private final List<Integer> roots = new ArrayList<>();
+
+    public SnapshotNodeSource(ViewSnapshot snapshot) {
+        this.snapshot = snapshot;
+        int size = snapshot.size();
+        nodes = new Integer[size];
+        childOffsets = new int[size + 1];
+        children = new int[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = i;
+            int parent = snapshot.getParent(i);
+            if (parent >= 0) {
+                childOffsets[parent + 1]++;
+            } else {
+                roots.add(nodes[i]);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+        // 先序排列中子节点按顺序出现，依次填入即可保持原有顺序
+        int[] cursor = new int[size];
+        for (int i = 0; i < size; i++) {
+            int parent = snapshot.getParent(i);
+            if (parent >= 0) {
+                children[childOffsets[parent] + cursor[parent]++] = i;
+            }
+        }
+    }
+
+    public ViewSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // 每个窗口的根节点，单窗口快照只有一个
+    public List<Integer> getRoots() {
+        return roots;
+    }
+
+    @Override
+    public int getChildCount(Integer node) {
+        return childOffsets[node + 1] - childOffsets[node];
+    }
+
+    @Override
+    public Integer getChild(Integer node, int index) {
+        return nodes[children[childOffsets[node] + index]];
+    }
+
+    @Override
+    public void release(Integer node) {
+    }
+
+    @Override
+    public String getClassName(Integer node) {
+        return snapshot.getClassName(node);
+    }
+
+    @Override
+    public String getText(Integer node) {
+        return snapshot.getText(node);
+    }
+
+    @Override
+    public String getContentDescription(Integer node) {
+        return snapshot.getContentDescription(node);
+    }
+
+    @Override
+    public String getViewId(Integer node) {
+        return snapshot.getViewId(node);
+    }
+
+    @Override
+    public int getFlags(Integer node) {
+        int flags = 0;
+        for (int flag = 0; flag < ViewSnapshot.FLAG_COUNT; flag++) {
+            if (snapshot.hasFlag(node, flag)) {
+                flags |= 1 << flag;
+            }
+        }
+        return flags;
+    }
+
+    @Override
+    public void getBounds(Integer node, int[] out) {
+        out[0] = snapshot.getLeft(node);
+        out[1] = snapshot.getTop(node);
+        out[2] = snapshot.getRight(node);
+        out[3] = snapshot.getBottom(node);
+    }
+
+    @Override
+    public int getWindowId(Integer node) {
+        return snapshot.getWindowId(node);
+    }
+}
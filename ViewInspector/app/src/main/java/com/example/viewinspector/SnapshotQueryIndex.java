@@ -0,0 +1,155 @@
+package com.example.viewinspector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 按类名和资源 ID 建立的哈希索引，捕获后构建一次，供选择器查询直接定位候选节点
+public class SnapshotQueryIndex {
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final ViewSnapshot snapshot;
+    // 以字典下标分组的节点列表（CSR 结构）：字典项 d 的节点为 rows[offsets[d] .. offsets[d + 1])
+    private final int[] classOffsets;
+    private final int[] classRows;
+    private final int[] viewIdOffsets;
+    private final int[] viewIdRows;
+    // 简单类名（如 Button）和短 ID（如 ok）到字典下标的映射
+    private final Map<String, int[]> simpleClassNames;
+    private final Map<String, int[]> shortViewIds;
+
+    private SnapshotQueryIndex(ViewSnapshot snapshot) {
+        this.snapshot = snapshot;
+        int size = snapshot.size();
+
+        int[] classIds = new int[size];
+        int[] viewIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            classIds[i] = snapshot.getClassNameId(i);
+            viewIds[i] = snapshot.getViewIdId(i);
+        }
+        classOffsets = new int[snapshot.getClassNames().size() + 1];
+        classRows = group(classIds, classOffsets);
+        viewIdOffsets = new int[snapshot.getViewIds().size() + 1];
+        viewIdRows = group(viewIds, viewIdOffsets);
+
+        simpleClassNames = groupBySuffix(snapshot.getClassNames(), ".");
+        shortViewIds = groupBySuffix(snapshot.getViewIds(), ":id/");
+    }
+
+    public static SnapshotQueryIndex build(ViewSnapshot snapshot) {
+        return new SnapshotQueryIndex(snapshot);
+    }
+
+    public ViewSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // 类名中不含 '.' 时按简单类名匹配
+    public int[] classNameIds(String className) {
+        if (className.indexOf('.') < 0) {
+            int[] ids = simpleClassNames.get(className);
+            return ids != null ? ids : NO_IDS;
+        }
+        int id = snapshot.getClassNames().lookup(className);
+        return id != StringDictionary.NONE ? new int[] {id} : NO_IDS;
+    }
+
+    // 资源 ID 中不含 ':' 时按 ":id/" 之后的短 ID 匹配
+    public int[] viewIdIds(String viewId) {
+        if (viewId.indexOf(':') < 0) {
+            int[] ids = shortViewIds.get(viewId);
+            return ids != null ? ids : NO_IDS;
+        }
+        int id = snapshot.getViewIds().lookup(viewId);
+        return id != StringDictionary.NONE ? new int[] {id} : NO_IDS;
+    }
+
+    public int countClassRows(int[] ids) {
+        return count(classOffsets, ids);
+    }
+
+    public int countViewIdRows(int[] ids) {
+        return count(viewIdOffsets, ids);
+    }
+
+    // 按升序把节点下标写入 out，返回数量
+    public int classRows(int[] ids, int[] out) {
+        return collect(classOffsets, classRows, ids, out);
+    }
+
+    public int viewIdRows(int[] ids, int[] out) {
+        return collect(viewIdOffsets, viewIdRows, ids, out);
+    }
+
+    private static int count(int[] offsets, int[] ids) {
+        int count = 0;
+        for (int id : ids) {
+            count += offsets[id + 1] - offsets[id];
+        }
+        return count;
+    }
+
+    private static int collect(int[] offsets, int[] rows, int[] ids, int[] out) {
+        int count = 0;
+        for (int id : ids) {
+            int start = offsets[id];
+            int length = offsets[id + 1] - start;
+            System.arraycopy(rows, start, out, count, length);
+            count += length;
+        }
+        if (ids.length > 1) {
+            Arrays.sort(out, 0, count);
+        }
+        return count;
+    }
+
+    // 计数排序：同一字典项的节点连续存放且保持升序，值为 NONE 的节点不入索引
+    private static int[] group(int[] dictIds, int[] offsets) {
+        for (int id : dictIds) {
+            if (id != StringDictionary.NONE) {
+                offsets[id + 1]++;
+            }
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] rows = new int[offsets[offsets.length - 1]];
+        int[] fill = new int[offsets.length - 1];
+        for (int node = 0; node < dictIds.length; node++) {
+            int id = dictIds[node];
+            if (id != StringDictionary.NONE) {
+                rows[offsets[id] + fill[id]++] = node;
+            }
+        }
+        return rows;
+    }
+
+    private static Map<String, int[]> groupBySuffix(StringDictionary dictionary, String separator) {
+        Map<String, List<Integer>> grouped = new HashMap<>();
+        for (int id = 0; id < dictionary.size(); id++) {
+            String value = dictionary.get(id);
+            int index = value.lastIndexOf(separator);
+            String suffix = index >= 0 ? value.substring(index + separator.length()) : value;
+            List<Integer> ids = grouped.get(suffix);
+            if (ids == null) {
+                ids = new ArrayList<>(1);
+                grouped.put(suffix, ids);
+            }
+            ids.add(id);
+        }
+        Map<String, int[]> result = new HashMap<>(grouped.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : grouped.entrySet()) {
+            List<Integer> ids = entry.getValue();
+            int[] array = new int[ids.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = ids.get(i);
+            }
+            result.put(entry.getKey(), array);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.viewinspector;
+
+import java.util.Arrays;
+
+// 快照的文本检索索引：捕获后构建一次，之后每次按键只查表和比较字符，不创建对象
+public class SnapshotSearchIndex {
+
+    // 各字段之间的分隔符，保证匹配不会跨越字段或节点
+    private static final char SEPARATOR = '\u0000';
+    private static final int MIN_TABLE_CAPACITY = 64;
+
+    private final int size;
+    // 所有节点折叠为小写后的 text 与 contentDescription，节点 i 占 [nodeStart[i], nodeStart[i + 1])
+    private final char[] folded;
+    private final int[] nodeStart;
+
+    // 三元组开放寻址哈希表：key 为三个字符打包成的 long（0 表示空槽）
+    private long[] keys;
+    private int[] postingStart;
+    private int[] postingCount;
+    // 所有倒排列表连续存放，每个列表内的节点下标递增且不重复
+    private int[] postings;
+
+    private char[] queryBuffer = new char[32];
+
+    private SnapshotSearchIndex(int size, char[] folded, int[] nodeStart) {
+        this.size = size;
+        this.folded = folded;
+        this.nodeStart = nodeStart;
+    }
+
+    public static SnapshotSearchIndex build(ViewSnapshot snapshot) {
+        int size = snapshot.size();
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            length += lengthOf(snapshot.getText(i)) + lengthOf(snapshot.getContentDescription(i)) + 2;
+        }
+
+        char[] folded = new char[length];
+        int[] nodeStart = new int[size + 1];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            nodeStart[i] = position;
+            position = fold(snapshot.getText(i), folded, position);
+            folded[position++] = SEPARATOR;
+            position = fold(snapshot.getContentDescription(i), folded, position);
+            folded[position++] = SEPARATOR;
+        }
+        nodeStart[size] = position;
+
+        SnapshotSearchIndex index = new SnapshotSearchIndex(size, folded, nodeStart);
+        index.buildTrigrams();
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 把包含 query（忽略大小写）的节点下标按升序写入 out，返回匹配数量；out 长度至少为 size()
+    public synchronized int search(CharSequence query, int[] out) {
+        int queryLength = query != null ? query.length() : 0;
+        if (queryLength == 0) {
+            for (int i = 0; i < size; i++) {
+                out[i] = i;
+            }
+            return size;
+        }
+
+        if (queryBuffer.length < queryLength) {
+            queryBuffer = new char[Math.max(queryLength, queryBuffer.length * 2)];
+        }
+        char[] q = queryBuffer;
+        for (int i = 0; i < queryLength; i++) {
+            q[i] = Character.toLowerCase(query.charAt(i));
+        }
+
+        if (queryLength < 3) {
+            // 太短无法使用三元组，直接扫描折叠后的文本
+            int count = 0;
+            for (int node = 0; node < size; node++) {
+                if (contains(node, q, queryLength)) {
+                    out[count++] = node;
+                }
+            }
+            return count;
+        }
+
+        // 选出倒排列表最短的三元组，只验证其中的候选节点
+        int bestSlot = -1;
+        for (int i = 0; i + 3 <= queryLength; i++) {
+            int slot = findSlot(pack(q[i], q[i + 1], q[i + 2]));
+            if (keys[slot] == 0) {
+                return 0;
+            }
+            if (bestSlot < 0 || postingCount[slot] < postingCount[bestSlot]) {
+                bestSlot = slot;
+            }
+        }
+
+        int count = 0;
+        int start = postingStart[bestSlot];
+        int end = start + postingCount[bestSlot];
+        for (int i = start; i < end; i++) {
+            int node = postings[i];
+            if (contains(node, q, queryLength)) {
+                out[count++] = node;
+            }
+        }
+        return count;
+    }
+
+    private boolean contains(int node, char[] q, int queryLength) {
+        int last = nodeStart[node + 1] - queryLength;
+        char first = q[0];
+        for (int i = nodeStart[node]; i <= last; i++) {
+            if (folded[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < queryLength && folded[i + j] == q[j]) {
+                j++;
+            }
+            if (j == queryLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void buildTrigrams() {
+        keys = new long[MIN_TABLE_CAPACITY];
+        postingCount = new int[MIN_TABLE_CAPACITY];
+        int[] lastNode = new int[MIN_TABLE_CAPACITY];
+        Arrays.fill(lastNode, -1);
+        int used = 0;
+
+        // 第一遍：统计每个三元组出现在多少个节点中
+        for (int node = 0; node < size; node++) {
+            int end = nodeStart[node + 1];
+            for (int i = nodeStart[node]; i + 3 <= end; i++) {
+                long key = trigramAt(i);
+                if (key == 0) {
+                    continue;
+                }
+                int slot = findSlot(key);
+                if (keys[slot] == 0) {
+                    if ((used + 1) * 2 > keys.length) {
+                        lastNode = grow(lastNode);
+                        slot = findSlot(key);
+                    }
+                    keys[slot] = key;
+                    used++;
+                }
+                if (lastNode[slot] != node) {
+                    lastNode[slot] = node;
+                    postingCount[slot]++;
+                }
+            }
+        }
+
+        // 第二遍：按统计结果填充倒排列表
+        postingStart = new int[keys.length];
+        int total = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            postingStart[slot] = total;
+            total += postingCount[slot];
+        }
+        postings = new int[total];
+        int[] fill = new int[keys.length];
+        Arrays.fill(lastNode, -1);
+        for (int node = 0; node < size; node++) {
+            int end = nodeStart[node + 1];
+            for (int i = nodeStart[node]; i + 3 <= end; i++) {
+                long key = trigramAt(i);
+                if (key == 0) {
+                    continue;
+                }
+                int slot = findSlot(key);
+                if (lastNode[slot] != node) {
+                    lastNode[slot] = node;
+                    postings[postingStart[slot] + fill[slot]++] = node;
+                }
+            }
+        }
+    }
+
+    private int[] grow(int[] lastNode) {
+        long[] oldKeys = keys;
+        int[] oldCounts = postingCount;
+        keys = new long[oldKeys.length * 2];
+        postingCount = new int[keys.length];
+        int[] newLastNode = new int[keys.length];
+        Arrays.fill(newLastNode, -1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                postingCount[slot] = oldCounts[i];
+                newLastNode[slot] = lastNode[i];
+            }
+        }
+        return newLastNode;
+    }
+
+    // 返回 key 所在的槽，不存在时返回应插入的空槽
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (mix(key) & mask);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // 包含分隔符的三元组返回 0，不入索引
+    private long trigramAt(int i) {
+        char a = folded[i], b = folded[i + 1], c = folded[i + 2];
+        if (a == SEPARATOR || b == SEPARATOR || c == SEPARATOR) {
+            return 0;
+        }
+        return pack(a, b, c);
+    }
+
+    private static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+
+    private static int lengthOf(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static int fold(String value, char[] out, int position) {
+        if (value == null) {
+            return position;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            out[position++] = Character.toLowerCase(value.charAt(i));
+        }
+        return position;
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.viewinspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 录制用的环形缓冲区：关键帧保存完整快照，其余帧只保存相对上一帧的差量，超出帧数或内存上限时丢弃最旧的帧
+// 内存上限同时计入作为差量基准的上一帧和还原缓存；单帧超过上限时拒绝录入
+public class SnapshotTimeline {
+
+    public static final int DEFAULT_MAX_FRAMES = 3000;
+    public static final long DEFAULT_MEMORY_CAP_BYTES = 32L * 1024 * 1024;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 50;
+
+    // 差量：runs 为成对的 (上一帧起始下标, 长度)，起始下标为 -1 时表示依次取 literals 中的节点
+    private static class Delta {
+        int[] runs;
+        int runCount;
+        ViewInfo[] literals;
+        List<ViewSnapshot.WindowEntry> windows;
+        NodeTraverser.Truncation truncation;
+    }
+
+    private static class Frame {
+        long timeMillis;
+        ViewSnapshot keyframe;
+        Delta delta;
+        long bytes;
+    }
+
+    private final int maxFrames;
+    private final long memoryCapBytes;
+    private final int keyframeInterval;
+
+    private final Frame[] frames;
+    private int head;
+    private int count;
+    // 第一帧的全局序号，丢弃旧帧后递增，用于让缓存跨丢弃保持有效
+    private long firstSequence;
+    // 已保存帧占用的字节数
+    private long memoryBytes;
+    private long droppedFrames;
+    private long rejectedFrames;
+    private int framesSinceKeyframe;
+    // 最近追加的一帧，作为下一帧差量的基准
+    private ViewSnapshot last;
+    // last 不是最新的关键帧时额外占用的字节数
+    private long lastBytes;
+    // 最近还原的一帧，顺序拖动时从这里继续应用差量
+    private long cachedSequence = -1;
+    private ViewSnapshot cachedSnapshot;
+    // cachedSnapshot 不是已保存的关键帧时额外占用的字节数
+    private long cachedBytes;
+
+    public SnapshotTimeline() {
+        this(DEFAULT_MAX_FRAMES, DEFAULT_MEMORY_CAP_BYTES, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    public SnapshotTimeline(int maxFrames, long memoryCapBytes, int keyframeInterval) {
+        this.maxFrames = Math.max(1, maxFrames);
+        this.memoryCapBytes = memoryCapBytes;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.frames = new Frame[this.maxFrames];
+    }
+
+    // 追加一帧；快照单独就超过内存上限时拒绝并返回 false
+    public synchronized boolean append(long timeMillis, ViewSnapshot snapshot) {
+        long snapshotBytes = snapshot.estimateBytes();
+        Frame frame = new Frame();
+        frame.timeMillis = timeMillis;
+        Delta delta = last != null && framesSinceKeyframe + 1 < keyframeInterval ? encode(last, snapshot) : null;
+        if (delta != null) {
+            frame.delta = delta;
+            frame.bytes = estimateBytes(delta);
+        } else {
+            frame.keyframe = snapshot;
+            frame.bytes = snapshotBytes;
+        }
+        // 差量帧还要保留完整的快照作为下一帧的基准
+        long baseBytes = delta != null ? snapshotBytes : 0;
+        if (frame.bytes + baseBytes > memoryCapBytes) {
+            rejectedFrames++;
+            return false;
+        }
+
+        // 还原缓存只用于加速拖动，内存不足时先释放它
+        if (memoryBytes + cachedBytes + frame.bytes + baseBytes > memoryCapBytes) {
+            releaseCache();
+        }
+        while (count > 0 && (count >= maxFrames || memoryBytes + cachedBytes + frame.bytes + baseBytes > memoryCapBytes)) {
+            dropOldest();
+        }
+        if (count == 0 && frame.delta != null) {
+            // 差量的基准已被丢弃，改存为关键帧
+            frame.keyframe = snapshot;
+            frame.delta = null;
+            frame.bytes = snapshotBytes;
+            baseBytes = 0;
+        }
+        framesSinceKeyframe = frame.keyframe != null ? 0 : framesSinceKeyframe + 1;
+        frames[(head + count) % maxFrames] = frame;
+        count++;
+        memoryBytes += frame.bytes;
+        last = snapshot;
+        lastBytes = baseBytes;
+        return true;
+    }
+
+    public synchronized int getFrameCount() {
+        return count;
+    }
+
+    public synchronized long getFrameTime(int index) {
+        return frame(index).timeMillis;
+    }
+
+    // 已保存的帧加上差量基准和还原缓存，不超过内存上限
+    public synchronized long getMemoryBytes() {
+        return memoryBytes + lastBytes + cachedBytes;
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public synchronized long getRejectedFrames() {
+        return rejectedFrames;
+    }
+
+    public synchronized boolean isKeyframe(int index) {
+        return frame(index).keyframe != null;
+    }
+
+    // 还原第 index 帧（0 为仍保留的最旧一帧）
+    public synchronized ViewSnapshot getFrame(int index) {
+        frame(index);
+        long sequence = firstSequence + index;
+        int keyIndex = index;
+        while (frame(keyIndex).keyframe == null) {
+            keyIndex--;
+        }
+
+        ViewSnapshot snapshot;
+        int from;
+        if (cachedSnapshot != null && cachedSequence <= sequence && cachedSequence >= firstSequence + keyIndex) {
+            snapshot = cachedSnapshot;
+            from = (int) (cachedSequence - firstSequence) + 1;
+        } else {
+            snapshot = frame(keyIndex).keyframe;
+            from = keyIndex + 1;
+        }
+        for (int i = from; i <= index; i++) {
+            snapshot = decode(snapshot, frame(i).delta);
+        }
+        // 缓存放不进内存上限时不保留
+        long bytes = snapshot == frame(index).keyframe ? 0 : snapshot.estimateBytes();
+        if (memoryBytes + lastBytes + bytes <= memoryCapBytes) {
+            cachedSequence = sequence;
+            cachedSnapshot = snapshot;
+            cachedBytes = bytes;
+        } else {
+            releaseCache();
+        }
+        return snapshot;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < count; i++) {
+            frames[(head + i) % maxFrames] = null;
+        }
+        head = 0;
+        firstSequence += count;
+        count = 0;
+        memoryBytes = 0;
+        framesSinceKeyframe = 0;
+        last = null;
+        lastBytes = 0;
+        releaseCache();
+    }
+
+    private void releaseCache() {
+        cachedSnapshot = null;
+        cachedSequence = -1;
+        cachedBytes = 0;
+    }
+
+    private Frame frame(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("帧下标越界: " + index);
+        }
+        return frames[(head + index) % maxFrames];
+    }
+
+    // 丢弃最旧的一帧；下一帧若为差量帧，先还原为关键帧
+    private void dropOldest() {
+        if (count > 1) {
+            Frame next = frame(1);
+            if (next.keyframe == null) {
+                ViewSnapshot restored = getFrame(1);
+                memoryBytes -= next.bytes;
+                next.keyframe = restored;
+                next.delta = null;
+                next.bytes = restored.estimateBytes();
+                memoryBytes += next.bytes;
+                if (cachedSnapshot == restored) {
+                    cachedBytes = 0;
+                }
+            }
+        } else {
+            framesSinceKeyframe = 0;
+            last = null;
+            lastBytes = 0;
+        }
+        Frame oldest = frames[head];
+        frames[head] = null;
+        head = (head + 1) % maxFrames;
+        count--;
+        firstSequence++;
+        memoryBytes -= oldest.bytes;
+        droppedFrames++;
+        if (cachedSnapshot != null && cachedSequence < firstSequence) {
+            releaseCache();
+        }
+    }
+
+    // 与上一帧逐节点比较，未变化且深度一致的连续节点合并为复制区间；变化过多时返回 null 改存关键帧
+    static Delta encode(ViewSnapshot previous, ViewSnapshot current) {
+        SnapshotDiff diff = SnapshotDiff.compute(previous, current);
+        int size = current.size();
+        int[] runs = new int[16];
+        int runCount = 0;
+        List<ViewInfo> literals = new ArrayList<>();
+        int runStart = -2;
+        int runLength = 0;
+        for (int i = 0; i < size; i++) {
+            int oldIndex = diff.getOldIndex(i);
+            boolean copy = oldIndex >= 0 &&
+                    diff.getStatus(i) == SnapshotDiff.STATUS_UNCHANGED &&
+                    previous.getDepth(oldIndex) == current.getDepth(i) &&
+                    previous.getWindowId(oldIndex) == current.getWindowId(i);
+            int start = copy ? oldIndex : -1;
+            if (copy && runStart >= 0 && runStart + runLength == oldIndex) {
+                runLength++;
+            } else if (!copy && runStart == -1) {
+                runLength++;
+            } else {
+                if (runLength > 0) {
+                    runs = appendRun(runs, runCount++, runStart, runLength);
+                }
+                runStart = start;
+                runLength = 1;
+            }
+            if (!copy) {
+                literals.add(current.getViewInfo(i));
+            }
+        }
+        if (runLength > 0) {
+            runs = appendRun(runs, runCount++, runStart, runLength);
+        }
+        if (literals.size() * 2 > size) {
+            return null;
+        }
+
+        Delta delta = new Delta();
+        delta.runs = runs;
+        delta.runCount = runCount;
+        delta.literals = literals.toArray(new ViewInfo[0]);
+        delta.windows = current.windows;
+        delta.truncation = current.truncation;
+        return delta;
+    }
+
+    static ViewSnapshot decode(ViewSnapshot base, Delta delta) {
+        int size = 0;
+        for (int r = 0; r < delta.runCount; r++) {
+            size += delta.runs[r * 2 + 1];
+        }
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(Math.max(size, 1));
+        int literal = 0;
+        for (int r = 0; r < delta.runCount; r++) {
+            int start = delta.runs[r * 2];
+            int length = delta.runs[r * 2 + 1];
+            for (int i = 0; i < length; i++) {
+                if (start < 0) {
+                    builder.add(delta.literals[literal++]);
+                } else {
+                    builder.addFrom(base, start + i, base.getDepth(start + i));
+                }
+            }
+        }
+        for (ViewSnapshot.WindowEntry window : delta.windows) {
+            builder.addWindow(window);
+        }
+        return builder.build(delta.truncation);
+    }
+
+    private static int[] appendRun(int[] runs, int runIndex, int start, int length) {
+        if (runIndex * 2 + 2 > runs.length) {
+            runs = java.util.Arrays.copyOf(runs, runs.length * 2);
+        }
+        runs[runIndex * 2] = start;
+        runs[runIndex * 2 + 1] = length;
+        return runs;
+    }
+
+    private static long estimateBytes(Delta delta) {
+        long bytes = 64 + delta.runCount * 8L;
+        for (ViewInfo info : delta.literals) {
+            // 字段约 64 字节；类名和资源 ID 通常与其他节点共享，不重复计算
+            bytes += 64 + stringBytes(info.text) + stringBytes(info.contentDescription);
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        return ViewSnapshot.estimateStringBytes(value);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.viewinspector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 快照内的字符串字典，类名和资源 ID 在节点列中只保存下标
+public class StringDictionary {
+
+    public static final int NONE = -1;
+
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final StringPool pool;
+
+    public StringDictionary() {
+        this(null);
+    }
+
+    // pool 不为 null 时新字符串先经过共享池，不同快照的字典引用同一个实例
+    public StringDictionary(StringPool pool) {
+        this.pool = pool;
+    }
+
+    public int intern(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+            if (pool != null) {
+                value = pool.intern(value);
+            }
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    // 返回已有字符串的下标，不存在时返回 NONE
+    public int lookup(String value) {
+        Integer id = value != null ? ids.get(value) : null;
+        return id != null ? id : NONE;
+    }
+
+    public String get(int id) {
+        return id == NONE ? null : values.get(id);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
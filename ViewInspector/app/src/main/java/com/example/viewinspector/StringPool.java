@@ -0,0 +1,104 @@
+package com.example.viewinspector;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+// 跨快照共享的类名和资源 ID 字符串池。池只弱引用字符串，没有快照再使用时条目随 GC 回收；
+// 达到容量上限后新字符串不再入池，直接原样返回
+public class StringPool {
+
+    public static final int DEFAULT_MAX_SIZE = 4096;
+    public static final int NO_SYMBOL = -1;
+
+    private static final StringPool instance = new StringPool(DEFAULT_MAX_SIZE);
+
+    // 值也只能弱引用键本身，否则键永远不会被回收
+    private static class Symbol extends WeakReference<String> {
+        final int id;
+
+        Symbol(String value, int id) {
+            super(value);
+            this.id = id;
+        }
+    }
+
+    private final WeakHashMap<String, Symbol> symbols = new WeakHashMap<>();
+    private final int maxSize;
+    private int nextId;
+    private long lookups;
+    private long hits;
+    private long rejected;
+
+    public StringPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static StringPool getInstance() {
+        return instance;
+    }
+
+    // 返回池中与 value 相等的实例，之后可以用 == 比较
+    public synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        Symbol symbol = lookup(value);
+        return symbol != null ? symbol.get() : value;
+    }
+
+    // 符号 ID 只在字符串仍被引用期间有效；回收后再次入池会分配新的 ID，旧 ID 不会复用。
+    // 池已满且字符串不在池中时返回 NO_SYMBOL
+    public synchronized int symbolOf(String value) {
+        if (value == null) {
+            return NO_SYMBOL;
+        }
+        Symbol symbol = lookup(value);
+        return symbol != null ? symbol.id : NO_SYMBOL;
+    }
+
+    private Symbol lookup(String value) {
+        lookups++;
+        Symbol symbol = symbols.get(value);
+        // 键和值引用同一个对象，查到条目时引用不会已被清除
+        if (symbol != null && symbol.get() != null) {
+            hits++;
+            return symbol;
+        }
+        if (symbols.size() >= maxSize) {
+            rejected++;
+            return null;
+        }
+        symbol = new Symbol(value, nextId++);
+        symbols.put(value, symbol);
+        return symbol;
+    }
+
+    // 当前存活的字符串数
+    public synchronized int size() {
+        return symbols.size();
+    }
+
+    public synchronized long getLookups() {
+        return lookups;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    // 因池已满而没有入池的次数
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    public synchronized double getHitRate() {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public synchronized void clear() {
+        symbols.clear();
+        lookups = 0;
+        hits = 0;
+        rejected = 0;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.viewinspector;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.function.Predicate;
+
+public class TraversalOptions {
+
+    public static final int DEFAULT_MAX_DEPTH = 256;
+    public static final int DEFAULT_MAX_NODES = 50000;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    // 超过该深度的子节点不再遍历
+    public int maxDepth = DEFAULT_MAX_DEPTH;
+    // 最多记录的节点数
+    public int maxNodes = DEFAULT_MAX_NODES;
+    // 遍历的时间预算，<= 0 表示不限制
+    public long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    // 命中时不进入该节点的子树
+    public Predicate<AccessibilityNodeInfo> skipChildren;
+    // 命中时记录该节点后立即结束遍历
+    public Predicate<AccessibilityNodeInfo> stopAfter;
+    // 跳过 isVisibleToUser() 为 false 的节点及其子树
+    public boolean visibleOnly;
+    // 不为 null 时跳过面积为 0 或与该区域 {left, top, right, bottom} 不相交的节点及其子树
+    public int[] clipBounds;
+    // 只有一个子节点且没有文本、描述、资源 ID、可点击和可聚焦标志的容器不记录，其子节点上移一层
+    public boolean collapseWrappers;
+
+    public static TraversalOptions defaults() {
+        return new TraversalOptions();
+    }
+
+    // 剔除不可见、屏幕外的节点并折叠空的包装容器，displayBounds 为屏幕区域
+    public static TraversalOptions compact(int[] displayBounds) {
+        TraversalOptions options = new TraversalOptions();
+        options.visibleOnly = true;
+        options.clipBounds = displayBounds;
+        options.collapseWrappers = true;
+        return options;
+    }
+
+    public static TraversalOptions unbounded() {
+        TraversalOptions options = new TraversalOptions();
+        options.maxDepth = Integer.MAX_VALUE;
+        options.maxNodes = Integer.MAX_VALUE;
+        options.timeoutMillis = 0;
+        return options;
+    }
+}
@@ -10,7 +10,15 @@ public class ViewInfo {
     public boolean isEnabled;
     public boolean isFocusable;
     public boolean isFocused;
-    public String bounds;
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+    public int windowId = -1; // 节点所属窗口
+    
+    public String getBounds() {
+        return BoundsFormat.format(left, top, right, bottom);
+    }
     
     @Override
     public String toString() {
@@ -33,7 +41,8 @@ public class ViewInfo {
         sb.append(" - enabled: ").append(isEnabled);
         sb.append(" - focusable: ").append(isFocusable);
         sb.append(" - focused: ").append(isFocused);
-        sb.append(" - bounds: ").append(bounds);
+        sb.append(" - bounds: ");
+        BoundsFormat.append(sb, left, top, right, bottom);
         
         return sb.toString();
     }
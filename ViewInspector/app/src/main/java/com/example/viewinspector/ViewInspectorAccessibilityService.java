@@ -2,61 +2,202 @@ package com.example.viewinspector;
 
 import android.accessibilityservice.AccessibilityService;
 import android.accessibilityservice.AccessibilityServiceInfo;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.accessibility.AccessibilityNodeInfo;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ViewInspectorAccessibilityService extends AccessibilityService {
     
     private static final String TAG = "ViewInspectorService";
-    private static ViewInspectorAccessibilityService instance;
+    // 连接状态由 onServiceConnected / onDestroy 直接通知，界面据此等待服务就绪
+    private static final ServiceReadiness<ViewInspectorAccessibilityService> readiness =
+            new ServiceReadiness<>(new Handler(Looper.getMainLooper())::post);
+    
+    private final LiveTreeMirror liveTreeMirror = new LiveTreeMirror();
+    private TraversalOptions traversalOptions = TraversalOptions.defaults();
+    // 最近一次完整遍历活动窗口时精简掉的子树和包装节点，复用镜像时沿用
+    private long mirrorCulledSubtrees;
+    private long mirrorCollapsedNodes;
+    private MultiWindowCapturer multiWindowCapturer;
+    
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    
+    // 等待合并处理的内容变化事件，超过上限时不再逐个修补，直接让镜像失效
+    private static final int MAX_PENDING_CHANGES = 64;
+    private final List<android.view.accessibility.AccessibilityEvent> pendingChanges = new ArrayList<>();
+    private boolean pendingOverflow;
+    private CaptureScheduler captureScheduler;
+    private volatile boolean autoRefresh;
+    // 所有界面共用的最新快照，取代 REFRESH_VIEW_INFO 广播
+    private final SnapshotCache snapshotCache = new SnapshotCache(mainHandler::post);
+    
+    // 录制状态：每次开始或停止录制都会使 recordingSession 递增，旧的定时任务随之失效
+    public static final long DEFAULT_RECORDING_INTERVAL_MILLIS = 200;
+    private SnapshotTimeline recordingTimeline;
+    private long recordingIntervalMillis;
+    private int recordingSession;
+    private InspectionServer inspectionServer;
     
     public static ViewInspectorAccessibilityService getInstance() {
-        return instance;
+        return readiness.get();
     }
     
-    public static boolean isServiceEnabled(android.content.Context context) {
-        android.content.pm.PackageManager packageManager = context.getPackageManager();
+    public static ServiceReadiness<ViewInspectorAccessibilityService> getReadiness() {
+        return readiness;
+    }
+    
+    // 只读取系统设置，不查询运行中的服务列表；用于判断是否需要引导用户去设置中启用
+    public static boolean isEnabledInSettings(android.content.Context context) {
+        String enabledServices = android.provider.Settings.Secure.getString(context.getContentResolver(),
+            android.provider.Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES);
         android.content.ComponentName componentName = new android.content.ComponentName(context, ViewInspectorAccessibilityService.class);
-        int state = packageManager.getComponentEnabledSetting(componentName);
-        
-        // 检查服务是否实际运行
-        android.app.ActivityManager manager = (android.app.ActivityManager) context.getSystemService(android.content.Context.ACTIVITY_SERVICE);
-        for (android.app.ActivityManager.RunningServiceInfo service : manager.getRunningServices(Integer.MAX_VALUE)) {
-            if (ViewInspectorAccessibilityService.class.getName().equals(service.service.getClassName())) {
+        if (enabledServices == null) {
+            return false;
+        }
+        for (String entry : enabledServices.split(":")) {
+            android.content.ComponentName enabled = android.content.ComponentName.unflattenFromString(entry);
+            if (componentName.equals(enabled)) {
                 return true;
             }
         }
-        
-        // 备用方法：检查无障碍服务状态
-        android.content.ContentResolver contentResolver = context.getContentResolver();
-        String enabledServices = android.provider.Settings.Secure.getString(contentResolver, 
-            android.provider.Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES);
-        
-        return enabledServices != null && enabledServices.contains(context.getPackageName() + "/" + ViewInspectorAccessibilityService.class.getName());
+        return false;
     }
     
     @Override
     public void onServiceConnected() {
         super.onServiceConnected();
-        instance = this;
         
         AccessibilityServiceInfo info = new AccessibilityServiceInfo();
         info.eventTypes = android.view.accessibility.AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED | 
-                         android.view.accessibility.AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED;
+                         android.view.accessibility.AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED |
+                         android.view.accessibility.AccessibilityEvent.TYPE_VIEW_SCROLLED;
         info.feedbackType = AccessibilityServiceInfo.FEEDBACK_GENERIC;
         info.flags = AccessibilityServiceInfo.FLAG_REPORT_VIEW_IDS |
                     AccessibilityServiceInfo.FLAG_RETRIEVE_INTERACTIVE_WINDOWS;
         
         setServiceInfo(info);
+        
+        captureScheduler = new CaptureScheduler(CaptureExecutor.worker(),
+                CaptureScheduler.DEFAULT_QUIET_MILLIS, CaptureScheduler.DEFAULT_MAX_LATENCY_MILLIS,
+                this::onChangesSettled);
+        readiness.onConnected(this);
         Log.d(TAG, "无障碍服务已连接");
     }
     
     @Override
     public void onAccessibilityEvent(android.view.accessibility.AccessibilityEvent event) {
-        // 处理窗口变化事件
+        // 处理窗口变化事件；同一窗口的连续事件先排队，由 captureScheduler 合并后统一处理
+        CaptureScheduler scheduler = captureScheduler;
+        switch (event.getEventType()) {
+            case android.view.accessibility.AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED:
+                liveTreeMirror.invalidate();
+                break;
+            case android.view.accessibility.AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED:
+            case android.view.accessibility.AccessibilityEvent.TYPE_VIEW_SCROLLED:
+                if (event.getWindowId() != liveTreeMirror.getWindowId()) {
+                    return;
+                }
+                synchronized (pendingChanges) {
+                    if (pendingChanges.size() < MAX_PENDING_CHANGES) {
+                        // 事件对象在回调返回后会被回收，复制一份留待捕获线程处理
+                        pendingChanges.add(android.view.accessibility.AccessibilityEvent.obtain(event));
+                    } else {
+                        pendingOverflow = true;
+                    }
+                }
+                break;
+            default:
+                return;
+        }
+        if (scheduler != null) {
+            scheduler.onEvent(event.getWindowId());
+        }
+    }
+    
+    // 在捕获线程上执行：一次性修补镜像，开启自动刷新时再读取一次快照
+    private void onChangesSettled(int[] windowIds) {
+        List<android.view.accessibility.AccessibilityEvent> changes;
+        boolean overflow;
+        synchronized (pendingChanges) {
+            changes = new ArrayList<>(pendingChanges);
+            pendingChanges.clear();
+            overflow = pendingOverflow;
+            pendingOverflow = false;
+        }
+        if (overflow) {
+            liveTreeMirror.invalidate();
+        }
+        for (android.view.accessibility.AccessibilityEvent change : changes) {
+            if (!overflow) {
+                applyContentChange(change);
+            }
+            change.recycle();
+        }
+        
+        if (autoRefresh) {
+            captureAndPublish(false, null);
+        }
+    }
+    
+    // 开启后窗口内容变化稳定时自动捕获并发布到共享缓存
+    public void setAutoRefreshEnabled(boolean enabled) {
+        autoRefresh = enabled;
+    }
+    
+    public SnapshotCache getSnapshotCache() {
+        return snapshotCache;
+    }
+    
+    // 捕获并发布到共享缓存，各界面通过 SnapshotCache.Listener 收到同一份快照；应在捕获线程上调用。
+    // 有界面需要所有窗口时一律捕获所有窗口，避免各界面按各自的范围重复遍历
+    public ViewSnapshot captureAndPublish(boolean allWindows, Object requester) {
+        allWindows |= snapshotCache.isAllWindowsWanted();
+        ViewSnapshot snapshot = allWindows ? getAllWindowsSnapshot() : getCurrentWindowSnapshot();
+        if (snapshot.truncation == NodeTraverser.Truncation.CANCELLED) {
+            return snapshot;
+        }
+        // 检索和选择器索引随快照共享，只构建一次
+        snapshot.getSearchIndex();
+        snapshot.getQueryIndex();
+        snapshotCache.publish(snapshot, allWindows, requester);
+        return snapshot;
+    }
+    
+    private void applyContentChange(android.view.accessibility.AccessibilityEvent event) {
+        AccessibilityNodeInfo source = event.getSource();
+        if (source != null) {
+            // 滚动事件没有变化类型，按整棵子树变化处理
+            int changeTypes = event.getEventType() == android.view.accessibility.AccessibilityEvent.TYPE_VIEW_SCROLLED ?
+                    android.view.accessibility.AccessibilityEvent.CONTENT_CHANGE_TYPE_SUBTREE :
+                    event.getContentChangeTypes();
+            liveTreeMirror.onContentChanged(source, changeTypes);
+            source.recycle();
+        }
+    }
+    
+    // adb shell dumpsys activity service com.example.viewinspector/.ViewInspectorAccessibilityService
+    @Override
+    protected void dump(java.io.FileDescriptor fd, java.io.PrintWriter writer, String[] args) {
+        CaptureMetrics.getInstance().dump(writer);
+        StringPool pool = StringPool.getInstance();
+        writer.printf(java.util.Locale.ROOT, "String pool%n  size: %d hits: %d/%d (%.1f%%) rejected: %d%n",
+                pool.size(), pool.getHits(), pool.getLookups(), pool.getHitRate() * 100, pool.getRejected());
+        CaptureScheduler scheduler = captureScheduler;
+        if (scheduler != null) {
+            writer.printf(java.util.Locale.ROOT, "Scheduler%n  events: %d captures: %d avgCost: %.1fms%n",
+                    scheduler.getEventCount(), scheduler.getCaptureCount(), scheduler.getAverageCostMillis());
+        }
+        writer.printf(java.util.Locale.ROOT, "Mirror%n  rebuilds: %d patches: %d%n",
+                liveTreeMirror.getFullRebuildCount(), liveTreeMirror.getPatchCount());
     }
     
     @Override
@@ -67,82 +208,316 @@ public class ViewInspectorAccessibilityService extends AccessibilityService {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        instance = null;
+        readiness.onDisconnected(this);
+        stopRecording();
+        stopInspectionServer();
+        autoRefresh = false;
+        snapshotCache.clear();
+        if (captureScheduler != null) {
+            captureScheduler.stop();
+            captureScheduler = null;
+        }
+        synchronized (pendingChanges) {
+            for (android.view.accessibility.AccessibilityEvent change : pendingChanges) {
+                change.recycle();
+            }
+            pendingChanges.clear();
+        }
+        liveTreeMirror.clear();
+        if (multiWindowCapturer != null) {
+            multiWindowCapturer.shutdown();
+            multiWindowCapturer = null;
+        }
         Log.d(TAG, "无障碍服务已销毁");
     }
     
+    public void setTraversalOptions(TraversalOptions options) {
+        traversalOptions = options != null ? options : TraversalOptions.defaults();
+        liveTreeMirror.invalidate();
+    }
+    
+    // 开启后剔除不可见和屏幕外的节点，并折叠空的包装容器
+    public void setCompactCapture(boolean compact) {
+        setTraversalOptions(compact ? TraversalOptions.compact(getDisplayBounds()) : TraversalOptions.defaults());
+    }
+    
+    public boolean isCompactCapture() {
+        return traversalOptions.clipBounds != null;
+    }
+    
+    @Override
+    public void onConfigurationChanged(android.content.res.Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        // 屏幕旋转后裁剪区域随之更新
+        if (traversalOptions.clipBounds != null) {
+            traversalOptions.clipBounds = getDisplayBounds();
+            liveTreeMirror.invalidate();
+        }
+    }
+    
+    private int[] getDisplayBounds() {
+        android.util.DisplayMetrics metrics = new android.util.DisplayMetrics();
+        android.view.WindowManager windowManager = (android.view.WindowManager) getSystemService(WINDOW_SERVICE);
+        windowManager.getDefaultDisplay().getRealMetrics(metrics);
+        return new int[] {0, 0, metrics.widthPixels, metrics.heightPixels};
+    }
+    
+    // 按固定间隔录制活动窗口；间隔从上一帧捕获结束时算起，捕获较慢时不会积压任务
+    public synchronized void startRecording(long intervalMillis, SnapshotTimeline timeline) {
+        recordingTimeline = timeline;
+        recordingIntervalMillis = Math.max(0, intervalMillis);
+        final int session = ++recordingSession;
+        mainHandler.post(() -> recordFrame(session));
+    }
+    
+    // 停止录制并返回录制结果，未在录制时返回 null
+    public synchronized SnapshotTimeline stopRecording() {
+        SnapshotTimeline timeline = recordingTimeline;
+        recordingTimeline = null;
+        recordingSession++;
+        return timeline;
+    }
+    
+    public synchronized boolean isRecording() {
+        return recordingTimeline != null;
+    }
+    
+    public synchronized SnapshotTimeline getRecording() {
+        return recordingTimeline;
+    }
+    
+    private void recordFrame(final int session) {
+        CaptureExecutor.execute(() -> {
+            SnapshotTimeline timeline;
+            long intervalMillis;
+            synchronized (this) {
+                if (session != recordingSession || recordingTimeline == null) {
+                    return;
+                }
+                timeline = recordingTimeline;
+                intervalMillis = recordingIntervalMillis;
+            }
+            long start = SystemClock.uptimeMillis();
+            ViewSnapshot snapshot = getCurrentWindowSnapshot();
+            if (!snapshot.isEmpty() && !timeline.append(System.currentTimeMillis(), snapshot)) {
+                Log.w(TAG, "快照超过录制内存上限，已跳过该帧");
+            }
+            long delay = Math.max(0, intervalMillis - (SystemClock.uptimeMillis() - start));
+            mainHandler.postDelayed(() -> recordFrame(session), delay);
+        });
+    }
+    
+    // 启动本机检查服务器，捕获在捕获线程上执行；返回实际监听的端口
+    public synchronized int startInspectionServer(int port) throws IOException {
+        if (inspectionServer == null) {
+            // 界面刚捕获过的快照直接复用，不再重复遍历
+            inspectionServer = new InspectionServer(port, () -> {
+                SnapshotCache.Entry fresh = snapshotCache.getFresh(false, InspectionServer.FRESH_MILLIS);
+                return fresh != null ? fresh.snapshot : getCurrentWindowSnapshot();
+            }, CaptureExecutor.worker(), getCacheDir());
+        }
+        return inspectionServer.start();
+    }
+    
+    public synchronized void stopInspectionServer() {
+        if (inspectionServer != null) {
+            inspectionServer.stop();
+            inspectionServer = null;
+        }
+    }
+    
+    public synchronized boolean isInspectionServerRunning() {
+        return inspectionServer != null && inspectionServer.isRunning();
+    }
+    
     public List<ViewInfo> getCurrentWindowViewInfos() {
-        List<ViewInfo> viewInfos = new ArrayList<>();
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
+        return getCurrentWindowSnapshot().toViewInfos();
+    }
+    
+    // 会产生大量跨进程调用，应在捕获线程上调用，见 CaptureExecutor
+    public ViewSnapshot getCurrentWindowSnapshot() {
+        CaptureMetrics.Capture capture = CaptureMetrics.begin();
+        AccessibilityNodeInfo rootNode = fetchActiveRoot();
         
-        if (rootNode != null) {
-            traverseNode(rootNode, 0, viewInfos);
+        if (rootNode == null) {
+            liveTreeMirror.invalidate();
+            return ViewSnapshot.empty();
+        }
+        
+        // 镜像仍然有效时直接复用，否则完整遍历一次
+        if (liveTreeMirror.isValidFor(rootNode)) {
             rootNode.recycle();
+            capture.reusedMirror = true;
+        } else {
+            NodeTraverser.Result result = liveTreeMirror.rebuild(rootNode, traversalOptions);
+            mirrorCulledSubtrees = result.culledSubtrees;
+            mirrorCollapsedNodes = result.collapsedNodes;
+            capture.traversalNanos = result.elapsedNanos;
+            capture.childCalls = result.childCalls;
+            capture.childFetches = liveTreeMirror.getChildFetches();
+            capture.fastFetches = liveTreeMirror.getFastFetches();
+            capture.propertyReads = liveTreeMirror.getPropertyReads();
         }
         
-        return viewInfos;
+        capture.culledSubtrees = mirrorCulledSubtrees;
+        capture.collapsedNodes = mirrorCollapsedNodes;
+        
+        long conversionStart = System.nanoTime();
+        ViewSnapshot snapshot = liveTreeMirror.toSnapshot();
+        capture.conversionNanos = System.nanoTime() - conversionStart;
+        recordCapture(capture, snapshot);
+        return snapshot;
     }
     
-    private void traverseNode(AccessibilityNodeInfo node, int depth, List<ViewInfo> viewInfos) {
-        if (node == null) return;
-        
-        ViewInfo info = new ViewInfo();
-        info.depth = depth;
-        info.className = node.getClassName() != null ? node.getClassName().toString() : "Unknown";
-        info.text = node.getText() != null ? node.getText().toString() : null;
-        info.contentDescription = node.getContentDescription() != null ? 
-                                  node.getContentDescription().toString() : null;
-        info.viewId = node.getViewIdResourceName();
-        info.isClickable = node.isClickable();
-        info.isEnabled = node.isEnabled();
-        info.isFocusable = node.isFocusable();
-        info.isFocused = node.isFocused();
-        info.bounds = getNodeBounds(node);
+    // 只进入屏幕边界与区域相交的子树，结果是从根到目标区域的部分快照；应在捕获线程上调用
+    public ViewSnapshot captureRegion(int left, int top, int right, int bottom) {
+        CaptureMetrics.Capture capture = CaptureMetrics.begin();
+        AccessibilityNodeInfo rootNode = fetchActiveRoot();
+        if (rootNode == null) {
+            return ViewSnapshot.empty();
+        }
+        AccessibilityNodeSource nodeSource = new AccessibilityNodeSource();
+        final BoundsPrunedSource<AccessibilityNodeInfo> source =
+                new BoundsPrunedSource<>(nodeSource, left, top, right, bottom);
+        final ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        NodeTraverser.Result result;
+        try {
+            result = new NodeTraverser<>(source, traversalOptions, traversalOptions.skipChildren,
+                    traversalOptions.stopAfter, false).traverse(rootNode, 0, null, (node, depth, parent) -> {
+                        builder.add(source, node, depth);
+                        return null;
+                    });
+        } finally {
+            rootNode.recycle();
+        }
+        capture.traversalNanos = result.elapsedNanos;
+        capture.childCalls = result.childCalls;
+        capture.childFetches = nodeSource.getChildFetches();
+        capture.fastFetches = nodeSource.getFastFetches();
+        capture.culledSubtrees = result.culledSubtrees;
+        capture.collapsedNodes = result.collapsedNodes;
+        capture.propertyReads = nodeSource.getPropertyReads();
+        ViewSnapshot snapshot = builder.build(result.truncation);
+        recordCapture(capture, snapshot);
+        return snapshot;
+    }
+    
+    // 根节点同样按 AccessibilityNodeSource 的策略预取后代，后续的 getChild 大多命中缓存
+    private AccessibilityNodeInfo fetchActiveRoot() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return getRootInActiveWindow(AccessibilityNodeSource.PREFETCH_STRATEGY);
+        }
+        return getRootInActiveWindow();
+    }
+    
+    private static void recordCapture(CaptureMetrics.Capture capture, ViewSnapshot snapshot) {
+        capture.nodeCount = snapshot.size();
+        capture.truncation = snapshot.truncation;
+        capture.estimatedSnapshotBytes = snapshot.estimateBytes();
+        CaptureMetrics.getInstance().record(capture);
+    }
+    
+    // 遍历 getWindows() 返回的所有窗口（输入法、对话框、系统栏、分屏等），合并为一个快照
+    public ViewSnapshot getAllWindowsSnapshot() {
+        List<android.view.accessibility.AccessibilityWindowInfo> windows = getWindows();
+        if (windows == null || windows.isEmpty()) {
+            return getCurrentWindowSnapshot();
+        }
         
-        viewInfos.add(info);
+        if (multiWindowCapturer == null) {
+            multiWindowCapturer = new MultiWindowCapturer();
+        }
+        // 多窗口并行遍历，遍历和合并的耗时一并计入 traversal
+        CaptureMetrics.Capture capture = CaptureMetrics.begin();
+        ViewSnapshot snapshot = multiWindowCapturer.capture(windows, traversalOptions);
+        capture.traversalNanos = System.nanoTime() - capture.startNanos;
+        capture.childFetches = multiWindowCapturer.getLastChildFetches();
+        capture.fastFetches = multiWindowCapturer.getLastFastFetches();
+        capture.culledSubtrees = multiWindowCapturer.getLastCulledSubtrees();
+        capture.collapsedNodes = multiWindowCapturer.getLastCollapsedNodes();
+        capture.propertyReads = multiWindowCapturer.getLastPropertyReads();
+        recordCapture(capture, snapshot);
         
-        // 遍历子节点
-        for (int i = 0; i < node.getChildCount(); i++) {
-            AccessibilityNodeInfo child = node.getChild(i);
-            if (child != null) {
-                traverseNode(child, depth + 1, viewInfos);
-                child.recycle();
-            }
+        for (android.view.accessibility.AccessibilityWindowInfo window : windows) {
+            window.recycle();
+        }
+        return snapshot;
+    }
+    
+    // 边遍历边写入快照文件，不在内存中构建快照，返回写入的节点数；应在捕获线程上调用
+    public int writeCurrentWindowSnapshot(File target) throws IOException {
+        try (SnapshotFileWriter writer = new SnapshotFileWriter(target)) {
+            streamCurrentWindow(writer);
+            return writer.getNodeCount();
         }
     }
     
-    private String getNodeBounds(AccessibilityNodeInfo node) {
-        android.graphics.Rect bounds = new android.graphics.Rect();
-        node.getBoundsInScreen(bounds);
-        return String.format("[%d,%d][%d,%d]", 
-                           bounds.left, bounds.top, bounds.right, bounds.bottom);
+    // 以 JSON / NDJSON 流式导出活动窗口，fields 为 null 时输出全部字段；应在捕获线程上调用
+    public int exportCurrentWindowJson(java.io.OutputStream stream, JsonSnapshotExporter.Format format,
+                                       java.util.Set<JsonSnapshotExporter.Field> fields) throws IOException {
+        JsonSnapshotExporter exporter = new JsonSnapshotExporter(stream, format, fields);
+        streamCurrentWindow(exporter);
+        return exporter.getNodeCount();
+    }
+    
+    // 遍历活动窗口并把节点逐个交给 sink，结束后调用 sink.finish；应在捕获线程上调用
+    public void streamCurrentWindow(NodeSink sink) throws IOException {
+        AccessibilityNodeInfo rootNode = fetchActiveRoot();
+        NodeTraverser.Truncation truncation = NodeTraverser.Truncation.NONE;
+        if (rootNode != null) {
+            final NodeTraverser<AccessibilityNodeInfo> traverser =
+                    NodeTraverser.forAccessibility(traversalOptions, false);
+            final int[] bounds = new int[4];
+            try {
+                truncation = traverser.traverse(rootNode, 0, null,
+                        (node, depth, parent) -> {
+                            try {
+                                sink.writeNode(traverser.getSource(), node, depth, bounds);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            return null;
+                        }).truncation;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                rootNode.recycle();
+            }
+        }
+        sink.finish(truncation);
     }
     
     public void printCurrentWindowViews() {
-        List<ViewInfo> viewInfos = getCurrentWindowViewInfos();
+        ViewSnapshot snapshot = getCurrentWindowSnapshot();
         Log.d(TAG, "=== 当前窗口控件信息 ===");
-        Log.d(TAG, "控件总数: " + viewInfos.size());
+        Log.d(TAG, "控件总数: " + snapshot.size());
+        if (snapshot.isTruncated()) {
+            Log.d(TAG, "遍历提前结束: " + snapshot.truncation);
+        }
         
-        for (ViewInfo info : viewInfos) {
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < info.depth; i++) {
+        StringBuilder sb = new StringBuilder();
+        ViewSnapshot.Cursor cursor = snapshot.cursor();
+        while (cursor.moveToNext()) {
+            sb.setLength(0);
+            for (int i = 0; i < cursor.getDepth(); i++) {
                 sb.append("  ");
             }
             
-            sb.append(info.className);
-            if (info.text != null) {
-                sb.append(" - text: \"").append(info.text).append("\"");
+            sb.append(cursor.getClassName());
+            if (cursor.getText() != null) {
+                sb.append(" - text: \"").append(cursor.getText()).append("\"");
             }
-            if (info.contentDescription != null) {
-                sb.append(" - desc: \"").append(info.contentDescription).append("\"");
+            if (cursor.getContentDescription() != null) {
+                sb.append(" - desc: \"").append(cursor.getContentDescription()).append("\"");
             }
-            if (info.viewId != null) {
-                sb.append(" - id: ").append(info.viewId);
+            if (cursor.getViewId() != null) {
+                sb.append(" - id: ").append(cursor.getViewId());
             }
-            sb.append(" - clickable: ").append(info.isClickable);
-            sb.append(" - bounds: ").append(info.bounds);
+            sb.append(" - clickable: ").append(cursor.isClickable());
+            sb.append(" - bounds: ");
+            BoundsFormat.append(sb, cursor.getLeft(), cursor.getTop(), cursor.getRight(), cursor.getBottom());
             
             Log.d(TAG, sb.toString());
         }
     }
-}
\ No newline at end of file
+}
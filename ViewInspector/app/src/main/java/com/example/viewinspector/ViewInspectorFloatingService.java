@@ -12,6 +12,7 @@ import android.content.SharedPreferences;
 import android.graphics.PixelFormat;
 import android.os.Build;
 import android.os.IBinder;
+import android.util.Log;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
@@ -26,8 +27,6 @@ import androidx.core.app.NotificationCompat;
 
 import com.example.viewinspector.R;
 
-import java.util.List;
-
 public class ViewInspectorFloatingService extends Service {
     
     private static final String TAG = "ViewInspectorFloating";
@@ -39,6 +38,26 @@ public class ViewInspectorFloatingService extends Service {
     private TextView infoTextView;
     private Button refreshButton;
     private Button closeButton;
+    private Button pickButton;
+    private Button boundsButton;
+    private Button archiveButton;
+    // 显示所有控件边界的全屏层，点击时列出该点的控件
+    private BoundsOverlayView boundsOverlay;
+    private ViewSnapshot lastSnapshot;
+    // 选取模式下覆盖全屏的半透明层，接收点击或拖动
+    private View pickOverlay;
+    private float pickStartX, pickStartY;
+    // 拖动范围较大时结果可能很长，只显示前面若干行
+    private static final int MAX_PICK_LINES = 200;
+    
+    private final CaptureExecutor captureExecutor = new CaptureExecutor();
+    private SnapshotCache observedCache;
+    // 其他界面或自动刷新发布的快照同样显示在悬浮窗中
+    private final SnapshotCache.Listener snapshotListener = entry -> {
+        if (entry.requester != this) {
+            showSnapshot(entry.snapshot);
+        }
+    };
     
     private int initialX, initialY;
     private float initialTouchX, initialTouchY;
@@ -62,6 +81,13 @@ public class ViewInspectorFloatingService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        captureExecutor.cancel();
+        stopPickMode();
+        hideBoundsOverlay();
+        if (observedCache != null) {
+            observedCache.removeListener(snapshotListener);
+            observedCache = null;
+        }
         if (floatingView != null && windowManager != null) {
             windowManager.removeView(floatingView);
         }
@@ -115,9 +141,19 @@ public class ViewInspectorFloatingService extends Service {
         infoTextView = floatingView.findViewById(R.id.info_text);
         refreshButton = floatingView.findViewById(R.id.refresh_button);
         closeButton = floatingView.findViewById(R.id.close_button);
+        pickButton = floatingView.findViewById(R.id.pick_button);
+        boundsButton = floatingView.findViewById(R.id.bounds_button);
+        archiveButton = floatingView.findViewById(R.id.archive_button);
 
         refreshButton.setOnClickListener(v -> refreshViewInfo());
         closeButton.setOnClickListener(v -> stopSelf());
+        pickButton.setOnClickListener(v -> startPickMode());
+        boundsButton.setOnClickListener(v -> toggleBoundsOverlay());
+        archiveButton.setOnClickListener(v -> captureToFile(false));
+        archiveButton.setOnLongClickListener(v -> {
+            captureToFile(true);
+            return true;
+        });
 
         floatingView.setOnTouchListener(new View.OnTouchListener() {
             @Override
@@ -145,32 +181,240 @@ public class ViewInspectorFloatingService extends Service {
     private void refreshViewInfo() {
         ViewInspectorAccessibilityService service = ViewInspectorAccessibilityService.getInstance();
         if (service != null) {
-            List<ViewInfo> viewInfos = service.getCurrentWindowViewInfos();
-            
-            // 统计可点击控件数量
-            int clickableCount = 0;
-            for (ViewInfo info : viewInfos) {
-                if (info.isClickable) {
-                    clickableCount++;
+            if (!captureExecutor.isPending()) {
+                infoTextView.setText(R.string.getting_control_info);
+            }
+            observeSnapshots(service);
+            // 快照发布到共享缓存，主页面直接使用同一份快照，不再各自遍历
+            captureExecutor.submit(() -> service.captureAndPublish(false, this), this::showSnapshot);
+        } else {
+            infoTextView.setText(R.string.accessibility_service_not_running_floating);
+            Toast.makeText(this, R.string.accessibility_service_required, Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    // 悬浮窗不获取焦点，活动窗口是下方的目标应用；边遍历边写入文件，不在内存中构建快照。
+    // json 为 true（长按“存档”）时导出 NDJSON，否则为二进制快照文件
+    private void captureToFile(final boolean json) {
+        final ViewInspectorAccessibilityService service = ViewInspectorAccessibilityService.getInstance();
+        if (service == null) {
+            Toast.makeText(this, R.string.accessibility_service_required, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        final java.io.File directory = new java.io.File(getExternalFilesDir(null), "snapshots");
+        CaptureExecutor.execute(() -> {
+            java.io.File target = new java.io.File(directory,
+                    "capture-" + System.currentTimeMillis() + (json ? ".ndjson" : ".vis"));
+            String message;
+            try {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new java.io.IOException(directory.getPath());
                 }
+                if (json) {
+                    try (java.io.OutputStream stream = new java.io.FileOutputStream(target)) {
+                        service.exportCurrentWindowJson(stream, JsonSnapshotExporter.Format.NDJSON, null);
+                    }
+                } else {
+                    service.writeCurrentWindowSnapshot(target);
+                }
+                message = getString(R.string.snapshot_saved, target.getPath());
+            } catch (java.io.IOException e) {
+                Log.e(TAG, "存档失败", e);
+                message = getString(R.string.snapshot_save_failed, e.getMessage());
             }
-            
-            StringBuilder sb = new StringBuilder();
-            sb.append(getString(R.string.total_controls_count, viewInfos.size()));
-            sb.append(" ");
-            sb.append(getString(R.string.clickable_controls_count, clickableCount));
+            final String toast = message;
+            floatingView.post(() -> Toast.makeText(this, toast, Toast.LENGTH_LONG).show());
+        });
+    }
+
+    private void showSnapshot(ViewSnapshot snapshot) {
+        lastSnapshot = snapshot;
+        if (boundsOverlay != null) {
+            boundsOverlay.setSnapshot(snapshot);
+        }
+        
+        // 统计可点击控件数量
+        int clickableCount = snapshot.countFlag(ViewSnapshot.FLAG_CLICKABLE);
+        
+        StringBuilder sb = new StringBuilder();
+        sb.append(getString(R.string.total_controls_count, snapshot.size()));
+        sb.append(" ");
+        sb.append(getString(R.string.clickable_controls_count, clickableCount));
+        sb.append("\n");
+        if (snapshot.isTruncated()) {
+            sb.append(getString(R.string.snapshot_truncated, snapshot.size()));
             sb.append("\n");
-            sb.append(getString(R.string.return_to_app_for_details));
-            
-            infoTextView.setText(sb.toString());
-            
-            // 发送广播通知主页面刷新
-            Intent refreshIntent = new Intent("com.example.viewinspector.REFRESH_VIEW_INFO");
-            sendBroadcast(refreshIntent);
-            
+        }
+        CaptureMetrics.Capture capture = CaptureMetrics.getInstance().getLastCapture();
+        if (capture != null) {
+            sb.append(getString(R.string.capture_metrics_summary, capture.totalNanos / 1e6,
+                    capture.traversalNanos / 1e6, capture.childCalls));
+            sb.append("\n");
+        }
+        String compactSummary = formatCompactSummary(this, snapshot);
+        if (compactSummary != null) {
+            sb.append(compactSummary).append("\n");
+        }
+        sb.append(getString(R.string.return_to_app_for_details));
+        
+        infoTextView.setText(sb.toString());
+    }
+    
+    private void toggleBoundsOverlay() {
+        if (boundsOverlay != null) {
+            hideBoundsOverlay();
+            refreshViewInfo();
+            return;
+        }
+        boundsOverlay = new BoundsOverlayView(this);
+        boundsOverlay.setOnNodesTappedListener(this::showBoundsHits);
+        WindowManager.LayoutParams overlayParams = new WindowManager.LayoutParams(
+                WindowManager.LayoutParams.MATCH_PARENT,
+                WindowManager.LayoutParams.MATCH_PARENT,
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ?
+                        WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY :
+                        WindowManager.LayoutParams.TYPE_PHONE,
+                WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
+                PixelFormat.TRANSLUCENT);
+        windowManager.addView(boundsOverlay, overlayParams);
+        // 重新添加悬浮窗，使其位于边界层之上，仍可再次点击按钮关闭
+        windowManager.removeView(floatingView);
+        windowManager.addView(floatingView, params);
+        infoTextView.setText(R.string.bounds_hint);
+        if (lastSnapshot != null) {
+            boundsOverlay.setSnapshot(lastSnapshot);
         } else {
+            refreshViewInfo();
+        }
+    }
+
+    private void hideBoundsOverlay() {
+        if (boundsOverlay != null && windowManager != null) {
+            windowManager.removeView(boundsOverlay);
+        }
+        boundsOverlay = null;
+    }
+
+    // nodes 按先序排列，从最深的控件开始列出
+    private void showBoundsHits(ViewSnapshot snapshot, int[] nodes, int count, long queryNanos) {
+        if (count == 0) {
+            infoTextView.setText(R.string.pick_nothing);
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(getString(R.string.bounds_hit, count, queryNanos / 1e6));
+        sb.append("\n");
+        for (int i = count - 1; i >= Math.max(0, count - MAX_PICK_LINES); i--) {
+            sb.append(snapshot.getViewInfo(nodes[i]).toString()).append("\n");
+        }
+        infoTextView.setText(sb.toString());
+    }
+
+    private void startPickMode() {
+        if (pickOverlay != null) {
+            return;
+        }
+        if (ViewInspectorAccessibilityService.getInstance() == null) {
             infoTextView.setText(R.string.accessibility_service_not_running_floating);
-            Toast.makeText(this, R.string.accessibility_service_required, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        final int touchSlop = android.view.ViewConfiguration.get(this).getScaledTouchSlop();
+        pickOverlay = new View(this);
+        pickOverlay.setBackgroundColor(0x332196F3);
+        pickOverlay.setOnTouchListener((v, event) -> {
+            switch (event.getAction()) {
+                case MotionEvent.ACTION_DOWN:
+                    pickStartX = event.getRawX();
+                    pickStartY = event.getRawY();
+                    return true;
+                case MotionEvent.ACTION_UP:
+                    int x = (int) event.getRawX();
+                    int y = (int) event.getRawY();
+                    stopPickMode();
+                    if (Math.abs(x - pickStartX) <= touchSlop && Math.abs(y - pickStartY) <= touchSlop) {
+                        // 点选：只沿包含该点的路径向下遍历
+                        capturePick((int) pickStartX, (int) pickStartY, (int) pickStartX + 1, (int) pickStartY + 1);
+                    } else {
+                        capturePick((int) Math.min(x, pickStartX), (int) Math.min(y, pickStartY),
+                                (int) Math.max(x, pickStartX) + 1, (int) Math.max(y, pickStartY) + 1);
+                    }
+                    return true;
+                case MotionEvent.ACTION_CANCEL:
+                    stopPickMode();
+                    return true;
+            }
+            return true;
+        });
+
+        WindowManager.LayoutParams overlayParams = new WindowManager.LayoutParams(
+                WindowManager.LayoutParams.MATCH_PARENT,
+                WindowManager.LayoutParams.MATCH_PARENT,
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ?
+                        WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY :
+                        WindowManager.LayoutParams.TYPE_PHONE,
+                WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
+                PixelFormat.TRANSLUCENT);
+        windowManager.addView(pickOverlay, overlayParams);
+        infoTextView.setText(R.string.pick_hint);
+    }
+
+    private void stopPickMode() {
+        if (pickOverlay != null && windowManager != null) {
+            windowManager.removeView(pickOverlay);
+        }
+        pickOverlay = null;
+    }
+
+    // 区域为屏幕坐标，与 getBoundsInScreen 一致
+    private void capturePick(int left, int top, int right, int bottom) {
+        ViewInspectorAccessibilityService service = ViewInspectorAccessibilityService.getInstance();
+        if (service == null) {
+            infoTextView.setText(R.string.accessibility_service_not_running_floating);
+            return;
+        }
+        infoTextView.setText(R.string.getting_control_info);
+        captureExecutor.submit(() -> service.captureRegion(left, top, right, bottom), this::showPick);
+    }
+
+    // 精简捕获时被剔除的子树不会被遍历，因此精简前的控件数只是下限
+    static String formatCompactSummary(android.content.Context context, ViewSnapshot snapshot) {
+        CaptureMetrics.Capture capture = CaptureMetrics.getInstance().getLastCapture();
+        if (capture == null || capture.culledSubtrees + capture.collapsedNodes == 0) {
+            return null;
+        }
+        long before = snapshot.size() + capture.culledSubtrees + capture.collapsedNodes;
+        return context.getString(R.string.compact_summary, before, capture.culledSubtrees, capture.collapsedNodes);
+    }
+
+    private void showPick(ViewSnapshot snapshot) {
+        // 根节点总会被遍历，只有根节点说明区域内没有控件
+        if (snapshot.size() <= 1) {
+            infoTextView.setText(R.string.pick_nothing);
+            return;
+        }
+        CaptureMetrics.Capture capture = CaptureMetrics.getInstance().getLastCapture();
+        StringBuilder sb = new StringBuilder();
+        sb.append(getString(R.string.pick_result, snapshot.size(),
+                capture != null ? capture.totalNanos / 1e6 : 0.0));
+        sb.append("\n");
+        int lines = Math.min(snapshot.size(), MAX_PICK_LINES);
+        for (int i = 0; i < lines; i++) {
+            sb.append(snapshot.getViewInfo(i).toString()).append("\n");
+        }
+        if (snapshot.isTruncated()) {
+            sb.append(getString(R.string.snapshot_truncated, snapshot.size()));
+        }
+        infoTextView.setText(sb.toString());
+    }
+
+    private void observeSnapshots(ViewInspectorAccessibilityService service) {
+        SnapshotCache cache = service.getSnapshotCache();
+        if (cache != observedCache) {
+            if (observedCache != null) {
+                observedCache.removeListener(snapshotListener);
+            }
+            observedCache = cache;
+            cache.addListener(snapshotListener);
         }
     }
 
@@ -0,0 +1,528 @@
+package com.example.viewinspector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// 列式存储的控件树快照：每个属性一列，节点按先序遍历顺序排列
+public class ViewSnapshot {
+
+    // 快照中包含的窗口，节点通过 windowId 列关联
+    public static class WindowEntry {
+        public int windowId;
+        public int type;
+        public int layer;
+        public String title;
+        public int nodeCount;
+    }
+
+    public static final int FLAG_CLICKABLE = 0;
+    public static final int FLAG_ENABLED = 1;
+    public static final int FLAG_FOCUSABLE = 2;
+    public static final int FLAG_FOCUSED = 3;
+    static final int FLAG_COUNT = 4;
+
+    // 无父节点（根节点）
+    public static final int NO_PARENT = -1;
+
+    private final int size;
+    private final int[] depths;
+    private final int[] parents;
+    private final int[] windowIds;
+    private final int[] bounds; // 每个节点 4 个 int：left, top, right, bottom
+    private final int[] classNameIds;
+    private final int[] viewIdIds;
+    private final String[] texts;
+    private final String[] descriptions;
+    private final BitSet[] flags;
+    private final StringDictionary classNames;
+    private final StringDictionary viewIds;
+
+    // 遍历因预算限制提前结束时，快照只包含部分节点
+    public final NodeTraverser.Truncation truncation;
+    public final List<WindowEntry> windows;
+
+    private SnapshotSearchIndex searchIndex;
+    private SnapshotQueryIndex queryIndex;
+    private SnapshotBoundsIndex boundsIndex;
+    private SnapshotDiff diff;
+
+    private ViewSnapshot(Builder builder, NodeTraverser.Truncation truncation, List<WindowEntry> windows) {
+        this.size = builder.size;
+        this.depths = builder.depths;
+        this.parents = builder.parents;
+        this.windowIds = builder.windowIds;
+        this.bounds = builder.bounds;
+        this.classNameIds = builder.classNameIds;
+        this.viewIdIds = builder.viewIdIds;
+        this.texts = builder.texts;
+        this.descriptions = builder.descriptions;
+        this.flags = builder.flags;
+        this.classNames = builder.classNames;
+        this.viewIds = builder.viewIds;
+        this.truncation = truncation;
+        this.windows = windows;
+    }
+
+    public static ViewSnapshot empty() {
+        return new Builder(0).build(NodeTraverser.Truncation.NONE);
+    }
+
+    public boolean isTruncated() {
+        return truncation != NodeTraverser.Truncation.NONE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getDepth(int index) {
+        return depths[index];
+    }
+
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    public int getWindowId(int index) {
+        return windowIds[index];
+    }
+
+    public String getClassName(int index) {
+        return classNames.get(classNameIds[index]);
+    }
+
+    public int getClassNameId(int index) {
+        return classNameIds[index];
+    }
+
+    public String getViewId(int index) {
+        return viewIds.get(viewIdIds[index]);
+    }
+
+    public int getViewIdId(int index) {
+        return viewIdIds[index];
+    }
+
+    public StringDictionary getClassNames() {
+        return classNames;
+    }
+
+    public StringDictionary getViewIds() {
+        return viewIds;
+    }
+
+    public String getText(int index) {
+        return texts[index];
+    }
+
+    public String getContentDescription(int index) {
+        return descriptions[index];
+    }
+
+    public boolean hasFlag(int index, int flag) {
+        return flags[flag].get(index);
+    }
+
+    public boolean isClickable(int index) {
+        return flags[FLAG_CLICKABLE].get(index);
+    }
+
+    public boolean isEnabled(int index) {
+        return flags[FLAG_ENABLED].get(index);
+    }
+
+    public boolean isFocusable(int index) {
+        return flags[FLAG_FOCUSABLE].get(index);
+    }
+
+    public boolean isFocused(int index) {
+        return flags[FLAG_FOCUSED].get(index);
+    }
+
+    public int countFlag(int flag) {
+        return flags[flag].cardinality();
+    }
+
+    public int getLeft(int index) {
+        return bounds[index * 4];
+    }
+
+    public int getTop(int index) {
+        return bounds[index * 4 + 1];
+    }
+
+    public int getRight(int index) {
+        return bounds[index * 4 + 2];
+    }
+
+    public int getBottom(int index) {
+        return bounds[index * 4 + 3];
+    }
+
+    // 子树在先序数组中是连续区间，返回该区间的结束下标（不含）
+    public int getSubtreeEnd(int index) {
+        int end = index + 1;
+        int depth = depths[index];
+        while (end < size && depths[end] > depth) {
+            end++;
+        }
+        return end;
+    }
+
+    // 首次调用时构建，应在捕获线程上预先调用，避免在主线程上构建
+    public synchronized SnapshotSearchIndex getSearchIndex() {
+        if (searchIndex == null) {
+            searchIndex = SnapshotSearchIndex.build(this);
+        }
+        return searchIndex;
+    }
+
+    public synchronized SnapshotQueryIndex getQueryIndex() {
+        if (queryIndex == null) {
+            queryIndex = SnapshotQueryIndex.build(this);
+        }
+        return queryIndex;
+    }
+
+    public synchronized SnapshotBoundsIndex getBoundsIndex() {
+        if (boundsIndex == null) {
+            boundsIndex = SnapshotBoundsIndex.build(this);
+        }
+        return boundsIndex;
+    }
+
+    // 粗略估算内存占用：每个节点的列约 48 字节，字符串按每字符 2 字节加对象头计算
+    public long estimateBytes() {
+        long bytes = 64 + size * 48L;
+        for (int i = 0; i < size; i++) {
+            bytes += estimateStringBytes(texts[i]) + estimateStringBytes(descriptions[i]);
+        }
+        for (int i = 0; i < classNames.size(); i++) {
+            bytes += estimateStringBytes(classNames.get(i));
+        }
+        for (int i = 0; i < viewIds.size(); i++) {
+            bytes += estimateStringBytes(viewIds.get(i));
+        }
+        return bytes;
+    }
+
+    static long estimateStringBytes(String value) {
+        return value == null ? 0 : 40 + value.length() * 2L;
+    }
+
+    // 与上一次快照的差异，只缓存最近一次比较的结果
+    public synchronized SnapshotDiff diffFrom(ViewSnapshot previous) {
+        if (diff == null || diff.getOldSnapshot() != previous) {
+            diff = SnapshotDiff.compute(previous, this);
+        }
+        return diff;
+    }
+
+    public WindowEntry findWindow(int windowId) {
+        for (WindowEntry window : windows) {
+            if (window.windowId == windowId) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    // 按需物化单个节点，供旧的基于 ViewInfo 的代码使用
+    public ViewInfo getViewInfo(int index) {
+        ViewInfo info = new ViewInfo();
+        info.depth = getDepth(index);
+        info.className = getClassName(index);
+        info.text = getText(index);
+        info.contentDescription = getContentDescription(index);
+        info.viewId = getViewId(index);
+        info.isClickable = isClickable(index);
+        info.isEnabled = isEnabled(index);
+        info.isFocusable = isFocusable(index);
+        info.isFocused = isFocused(index);
+        info.left = getLeft(index);
+        info.top = getTop(index);
+        info.right = getRight(index);
+        info.bottom = getBottom(index);
+        info.windowId = getWindowId(index);
+        return info;
+    }
+
+    // 按先序把全部节点和窗口写入 sink
+    public void writeTo(NodeSink sink) throws java.io.IOException {
+        for (int i = 0; i < size; i++) {
+            int flagBits = 0;
+            for (int flag = 0; flag < FLAG_COUNT; flag++) {
+                if (flags[flag].get(i)) {
+                    flagBits |= 1 << flag;
+                }
+            }
+            int offset = i * 4;
+            sink.writeNode(depths[i], windowIds[i], getClassName(i), texts[i], descriptions[i], getViewId(i),
+                    flagBits, bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3]);
+        }
+        for (WindowEntry window : windows) {
+            sink.addWindow(window);
+        }
+        sink.finish(truncation);
+    }
+
+    public List<ViewInfo> toViewInfos() {
+        List<ViewInfo> viewInfos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            viewInfos.add(getViewInfo(i));
+        }
+        return viewInfos;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // 享元游标：同一个对象通过 moveTo 在各节点间移动，读取时不产生额外对象
+    public class Cursor {
+        private int index = -1;
+
+        public Cursor moveTo(int index) {
+            this.index = index;
+            return this;
+        }
+
+        public boolean moveToNext() {
+            if (index + 1 >= size) {
+                return false;
+            }
+            index++;
+            return true;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getDepth() {
+            return depths[index];
+        }
+
+        public int getParent() {
+            return parents[index];
+        }
+
+        public int getWindowId() {
+            return windowIds[index];
+        }
+
+        public String getClassName() {
+            return classNames.get(classNameIds[index]);
+        }
+
+        public String getViewId() {
+            return viewIds.get(viewIdIds[index]);
+        }
+
+        public String getText() {
+            return texts[index];
+        }
+
+        public String getContentDescription() {
+            return descriptions[index];
+        }
+
+        public boolean isClickable() {
+            return flags[FLAG_CLICKABLE].get(index);
+        }
+
+        public boolean isEnabled() {
+            return flags[FLAG_ENABLED].get(index);
+        }
+
+        public boolean isFocusable() {
+            return flags[FLAG_FOCUSABLE].get(index);
+        }
+
+        public boolean isFocused() {
+            return flags[FLAG_FOCUSED].get(index);
+        }
+
+        public int getLeft() {
+            return bounds[index * 4];
+        }
+
+        public int getTop() {
+            return bounds[index * 4 + 1];
+        }
+
+        public int getRight() {
+            return bounds[index * 4 + 2];
+        }
+
+        public int getBottom() {
+            return bounds[index * 4 + 3];
+        }
+    }
+
+    // 按先序遍历顺序逐个追加节点，父节点下标由深度自动推导
+    public static class Builder {
+        private int size;
+        private int[] depths;
+        private int[] parents;
+        private int[] windowIds;
+        private int[] bounds;
+        private int[] classNameIds;
+        private int[] viewIdIds;
+        private String[] texts;
+        private String[] descriptions;
+        private final BitSet[] flags = new BitSet[FLAG_COUNT];
+        private final StringDictionary classNames = new StringDictionary(StringPool.getInstance());
+        private final StringDictionary viewIds = new StringDictionary(StringPool.getInstance());
+        private final List<WindowEntry> windows = new ArrayList<>();
+        // lastAtDepth[d] 为最近一次追加的深度为 d 的节点
+        private int[] lastAtDepth = new int[32];
+        private final int[] scratchBounds = new int[4];
+
+        public Builder() {
+            this(256);
+        }
+
+        public Builder(int capacity) {
+            depths = new int[capacity];
+            parents = new int[capacity];
+            windowIds = new int[capacity];
+            bounds = new int[capacity * 4];
+            classNameIds = new int[capacity];
+            viewIdIds = new int[capacity];
+            texts = new String[capacity];
+            descriptions = new String[capacity];
+            for (int i = 0; i < FLAG_COUNT; i++) {
+                flags[i] = new BitSet(capacity);
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // 追加一个节点并返回其下标，depth 不能比上一个节点深超过一层
+        public int add(int depth) {
+            ensureCapacity(size + 1);
+            int index = size++;
+            if (depth >= lastAtDepth.length) {
+                lastAtDepth = Arrays.copyOf(lastAtDepth, Math.max(depth + 1, lastAtDepth.length * 2));
+            }
+            depths[index] = depth;
+            parents[index] = depth > 0 ? lastAtDepth[depth - 1] : NO_PARENT;
+            lastAtDepth[depth] = index;
+            windowIds[index] = -1;
+            classNameIds[index] = StringDictionary.NONE;
+            viewIdIds[index] = StringDictionary.NONE;
+            return index;
+        }
+
+        public Builder setStrings(int index, String className, String text, String contentDescription, String viewId) {
+            classNameIds[index] = classNames.intern(className);
+            viewIdIds[index] = viewIds.intern(viewId);
+            texts[index] = text;
+            descriptions[index] = contentDescription;
+            return this;
+        }
+
+        public Builder setFlag(int index, int flag, boolean value) {
+            if (value) {
+                flags[flag].set(index);
+            }
+            return this;
+        }
+
+        public Builder setBounds(int index, int left, int top, int right, int bottom) {
+            int offset = index * 4;
+            bounds[offset] = left;
+            bounds[offset + 1] = top;
+            bounds[offset + 2] = right;
+            bounds[offset + 3] = bottom;
+            return this;
+        }
+
+        public Builder setWindowId(int index, int windowId) {
+            windowIds[index] = windowId;
+            return this;
+        }
+
+        public Builder addWindow(WindowEntry window) {
+            windows.add(window);
+            return this;
+        }
+
+        // 直接从节点读取属性，不创建 ViewInfo
+        public <N> int add(NodeSource<N> source, N node, int depth) {
+            int index = add(depth);
+            setStrings(index, source.getClassName(node), source.getText(node),
+                    source.getContentDescription(node), source.getViewId(node));
+            int flagBits = source.getFlags(node);
+            for (int flag = 0; flag < FLAG_COUNT; flag++) {
+                setFlag(index, flag, (flagBits & (1 << flag)) != 0);
+            }
+            source.getBounds(node, scratchBounds);
+            System.arraycopy(scratchBounds, 0, bounds, index * 4, 4);
+            setWindowId(index, source.getWindowId(node));
+            return index;
+        }
+
+        public int add(ViewInfo info) {
+            int index = add(info.depth);
+            setStrings(index, info.className, info.text, info.contentDescription, info.viewId);
+            setFlag(index, FLAG_CLICKABLE, info.isClickable);
+            setFlag(index, FLAG_ENABLED, info.isEnabled);
+            setFlag(index, FLAG_FOCUSABLE, info.isFocusable);
+            setFlag(index, FLAG_FOCUSED, info.isFocused);
+            setBounds(index, info.left, info.top, info.right, info.bottom);
+            setWindowId(index, info.windowId);
+            return index;
+        }
+
+        // 追加另一个快照的全部节点（用于合并多窗口结果），字典下标会重新映射
+        public Builder appendAll(ViewSnapshot other) {
+            ensureCapacity(size + other.size);
+            for (int i = 0; i < other.size; i++) {
+                addFrom(other, i, other.depths[i]);
+            }
+            return this;
+        }
+
+        // 以指定深度复制另一个快照中的一个节点
+        public int addFrom(ViewSnapshot other, int otherIndex, int depth) {
+            int index = add(depth);
+            setStrings(index, other.getClassName(otherIndex), other.texts[otherIndex],
+                    other.descriptions[otherIndex], other.getViewId(otherIndex));
+            for (int flag = 0; flag < FLAG_COUNT; flag++) {
+                setFlag(index, flag, other.flags[flag].get(otherIndex));
+            }
+            System.arraycopy(other.bounds, otherIndex * 4, bounds, index * 4, 4);
+            windowIds[index] = other.windowIds[otherIndex];
+            return index;
+        }
+
+        public ViewSnapshot build(NodeTraverser.Truncation truncation) {
+            return new ViewSnapshot(this, truncation, windows);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= depths.length) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, depths.length * 2 + 16);
+            depths = Arrays.copyOf(depths, newCapacity);
+            parents = Arrays.copyOf(parents, newCapacity);
+            windowIds = Arrays.copyOf(windowIds, newCapacity);
+            bounds = Arrays.copyOf(bounds, newCapacity * 4);
+            classNameIds = Arrays.copyOf(classNameIds, newCapacity);
+            viewIdIds = Arrays.copyOf(viewIdIds, newCapacity);
+            texts = Arrays.copyOf(texts, newCapacity);
+            descriptions = Arrays.copyOf(descriptions, newCapacity);
+        }
+    }
+}
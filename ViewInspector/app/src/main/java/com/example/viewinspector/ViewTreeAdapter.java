@@ -0,0 +1,257 @@
+package com.example.viewinspector;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// 虚拟化的控件树列表：只绑定可见行，每行的富文本按需生成并缓存
+public class ViewTreeAdapter extends RecyclerView.Adapter<ViewTreeAdapter.RowHolder> {
+
+    private static final int TYPE_NODE = 0;
+    private static final int TYPE_WINDOW_HEADER = 1;
+
+    private static final int COLOR_CLASS = Color.parseColor("#000000");
+    private static final int COLOR_TEXT = Color.parseColor("#1976D2");
+    private static final int COLOR_DESCRIPTION = Color.parseColor("#7B1FA2");
+    private static final int COLOR_ID = Color.parseColor("#FF6F00");
+    private static final int COLOR_TRUE = Color.parseColor("#4CAF50");
+    private static final int COLOR_FALSE = Color.parseColor("#F44336");
+    private static final int COLOR_BOUNDS = Color.parseColor("#0097A7");
+    private static final int COLOR_WINDOW = Color.parseColor("#455A64");
+    // 与上一次快照相比新增、变化、移动的行的背景色
+    private static final int COLOR_ADDED_BACKGROUND = Color.parseColor("#E8F5E9");
+    private static final int COLOR_CHANGED_BACKGROUND = Color.parseColor("#FFF8E1");
+    private static final int COLOR_MOVED_BACKGROUND = Color.parseColor("#E3F2FD");
+
+    static class RowHolder extends RecyclerView.ViewHolder {
+        final TextView textView;
+
+        RowHolder(View itemView) {
+            super(itemView);
+            textView = (TextView) itemView;
+        }
+    }
+
+    private final Context context;
+    private final LayoutInflater inflater;
+    private final int indentPx;
+    private final String clickableLabel;
+    private final String enabledLabel;
+    private final String focusableLabel;
+    private final String yesLabel;
+    private final String noLabel;
+
+    private ViewSnapshot snapshot = ViewSnapshot.empty();
+    private int[] candidateRows = new int[0];
+    private int candidateCount;
+    private final VisibleRows visibleRows = new VisibleRows();
+    // 已折叠的节点
+    private final BitSet collapsed = new BitSet();
+    // 按节点下标缓存已生成的富文本
+    private CharSequence[] spanCache = new CharSequence[0];
+    private SnapshotDiff diff;
+
+    public ViewTreeAdapter(Context context) {
+        this.context = context;
+        this.inflater = LayoutInflater.from(context);
+        this.indentPx = Math.round(16 * context.getResources().getDisplayMetrics().density);
+        this.clickableLabel = context.getString(R.string.clickable);
+        this.enabledLabel = context.getString(R.string.enabled);
+        this.focusableLabel = context.getString(R.string.focusable);
+        this.yesLabel = context.getString(R.string.yes);
+        this.noLabel = context.getString(R.string.no);
+        setHasStableIds(true);
+    }
+
+    // 更换快照时清空折叠状态和缓存；同一快照仅更换筛选结果时保留
+    public void submit(ViewSnapshot snapshot, int[] rows, int count) {
+        if (snapshot != this.snapshot) {
+            this.snapshot = snapshot;
+            collapsed.clear();
+            spanCache = new CharSequence[snapshot.size()];
+        }
+        if (candidateRows.length < count) {
+            candidateRows = new int[count];
+        }
+        System.arraycopy(rows, 0, candidateRows, 0, count);
+        candidateCount = count;
+        rebuildVisibleRows();
+        notifyDataSetChanged();
+    }
+
+    // diff 的新快照与当前快照一致时才高亮，diff 为 null 时不高亮
+    public void setDiff(SnapshotDiff diff) {
+        this.diff = diff;
+        notifyDataSetChanged();
+    }
+
+    public int getVisibleCount() {
+        return visibleRows.size();
+    }
+
+    public void toggle(int nodeIndex) {
+        if (!hasChildren(nodeIndex)) {
+            return;
+        }
+        collapsed.flip(nodeIndex);
+        spanCache[nodeIndex] = null;
+        rebuildVisibleRows();
+        notifyDataSetChanged();
+    }
+
+    public void expandAll() {
+        collapsed.clear();
+        Arrays.fill(spanCache, null);
+        rebuildVisibleRows();
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getItemCount() {
+        return visibleRows.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return visibleRows.get(position);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return visibleRows.get(position) >= 0 ? TYPE_NODE : TYPE_WINDOW_HEADER;
+    }
+
+    @Override
+    public RowHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        final RowHolder holder = new RowHolder(inflater.inflate(R.layout.item_view_node, parent, false));
+        if (viewType == TYPE_NODE) {
+            holder.itemView.setOnClickListener(v -> {
+                int position = holder.getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    toggle(visibleRows.get(position));
+                }
+            });
+        }
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(RowHolder holder, int position) {
+        int row = visibleRows.get(position);
+        if (row < 0) {
+            ViewSnapshot.WindowEntry window = snapshot.windows.get(-row - 1);
+            holder.textView.setPadding(0, holder.textView.getPaddingTop(), 0, holder.textView.getPaddingBottom());
+            holder.textView.setBackgroundColor(Color.TRANSPARENT);
+            holder.textView.setText(buildWindowHeader(window));
+            return;
+        }
+
+        holder.textView.setPadding(snapshot.getDepth(row) * indentPx, holder.textView.getPaddingTop(),
+                0, holder.textView.getPaddingBottom());
+        CharSequence text = spanCache[row];
+        if (text == null) {
+            text = buildRow(row);
+            spanCache[row] = text;
+        }
+        holder.textView.setText(text);
+        holder.textView.setBackgroundColor(diffBackground(row));
+    }
+
+    private int diffBackground(int row) {
+        if (diff == null || diff.getNewSnapshot() != snapshot) {
+            return Color.TRANSPARENT;
+        }
+        switch (diff.getStatus(row)) {
+            case SnapshotDiff.STATUS_ADDED:
+                return COLOR_ADDED_BACKGROUND;
+            case SnapshotDiff.STATUS_CHANGED:
+                return COLOR_CHANGED_BACKGROUND;
+            case SnapshotDiff.STATUS_MOVED:
+                return COLOR_MOVED_BACKGROUND;
+            default:
+                return Color.TRANSPARENT;
+        }
+    }
+
+    private boolean hasChildren(int nodeIndex) {
+        return nodeIndex + 1 < snapshot.size() && snapshot.getDepth(nodeIndex + 1) > snapshot.getDepth(nodeIndex);
+    }
+
+    private void rebuildVisibleRows() {
+        visibleRows.rebuild(snapshot, candidateRows, candidateCount, collapsed);
+    }
+
+    private CharSequence buildWindowHeader(ViewSnapshot.WindowEntry window) {
+        SpannableStringBuilder sb = new SpannableStringBuilder();
+        append(sb, context.getString(R.string.window_header, window.windowId, window.type,
+                window.title != null ? window.title : ""), COLOR_WINDOW, true);
+        return sb;
+    }
+
+    private CharSequence buildRow(int row) {
+        SpannableStringBuilder sb = new SpannableStringBuilder();
+
+        // 折叠标记或树形连接线
+        if (hasChildren(row)) {
+            sb.append(collapsed.get(row) ? "▶ " : "▼ ");
+        } else if (snapshot.getDepth(row) > 0) {
+            sb.append("└─ ");
+        }
+
+        append(sb, snapshot.getClassName(row), COLOR_CLASS, true);
+
+        String text = snapshot.getText(row);
+        if (text != null && !text.isEmpty()) {
+            sb.append(' ');
+            append(sb, "\"" + text + "\"", COLOR_TEXT, false);
+        }
+
+        String description = snapshot.getContentDescription(row);
+        if (description != null && !description.isEmpty()) {
+            sb.append(' ');
+            append(sb, "[" + description + "]", COLOR_DESCRIPTION, false);
+        }
+
+        String viewId = snapshot.getViewId(row);
+        if (viewId != null) {
+            sb.append(' ');
+            append(sb, "#" + viewId, COLOR_ID, false);
+        }
+
+        appendFlag(sb, clickableLabel, snapshot.isClickable(row));
+        appendFlag(sb, enabledLabel, snapshot.isEnabled(row));
+        appendFlag(sb, focusableLabel, snapshot.isFocusable(row));
+
+        sb.append(' ');
+        append(sb, BoundsFormat.format(snapshot.getLeft(row), snapshot.getTop(row),
+                snapshot.getRight(row), snapshot.getBottom(row)), COLOR_BOUNDS, false);
+        return sb;
+    }
+
+    private void appendFlag(SpannableStringBuilder sb, String label, boolean value) {
+        sb.append(' ');
+        append(sb, label + ":" + (value ? yesLabel : noLabel), value ? COLOR_TRUE : COLOR_FALSE, false);
+    }
+
+    private static void append(SpannableStringBuilder sb, String text, int color, boolean bold) {
+        int start = sb.length();
+        sb.append(text);
+        sb.setSpan(new ForegroundColorSpan(color), start, sb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        if (bold) {
+            sb.setSpan(new StyleSpan(Typeface.BOLD), start, sb.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+    }
+}
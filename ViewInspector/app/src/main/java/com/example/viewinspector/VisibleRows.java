@@ -0,0 +1,59 @@
+package com.example.viewinspector;
+
+import java.util.BitSet;
+
+// 树形列表的可见行计算，与 RecyclerView 无关，便于在 JVM 上测试和基准测量
+final class VisibleRows {
+
+    // 实际显示的条目：>= 0 为节点下标，< 0 为窗口标题（-(窗口序号 + 1)）
+    private int[] rows = new int[0];
+    private int count;
+
+    int size() {
+        return count;
+    }
+
+    int get(int position) {
+        return rows[position];
+    }
+
+    // 候选行按先序排列，跳过已折叠节点的子树区间即可得到可见行
+    void rebuild(ViewSnapshot snapshot, int[] candidateRows, int candidateCount, BitSet collapsed) {
+        boolean showWindowHeaders = snapshot.windows.size() > 1;
+        int capacity = candidateCount + (showWindowHeaders ? snapshot.windows.size() : 0);
+        if (rows.length < capacity) {
+            rows = new int[capacity];
+        }
+
+        int count = 0;
+        int skipUntil = -1;
+        int lastWindowId = Integer.MIN_VALUE;
+        for (int i = 0; i < candidateCount; i++) {
+            int row = candidateRows[i];
+            if (row < skipUntil) {
+                continue;
+            }
+            if (showWindowHeaders && snapshot.getWindowId(row) != lastWindowId) {
+                lastWindowId = snapshot.getWindowId(row);
+                int windowIndex = indexOfWindow(snapshot, lastWindowId);
+                if (windowIndex >= 0) {
+                    rows[count++] = -(windowIndex + 1);
+                }
+            }
+            rows[count++] = row;
+            if (collapsed.get(row)) {
+                skipUntil = snapshot.getSubtreeEnd(row);
+            }
+        }
+        this.count = count;
+    }
+
+    private static int indexOfWindow(ViewSnapshot snapshot, int windowId) {
+        for (int i = 0; i < snapshot.windows.size(); i++) {
+            if (snapshot.windows.get(i).windowId == windowId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.viewinspector;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// 只检查编译期常量和纯计算，不创建 Android 对象
+public class AccessibilityNodeSourceTest {
+
+    @Test
+    public void prefetchStrategy_isInterruptibleDepthFirst() {
+        int strategy = AccessibilityNodeSource.PREFETCH_STRATEGY;
+        assertNotEquals(0, strategy & AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_DEPTH_FIRST);
+        // 不可中断的预取会占用目标应用的主线程
+        assertEquals(0, strategy & AccessibilityNodeInfo.FLAG_PREFETCH_UNINTERRUPTIBLE);
+    }
+
+    @Test
+    public void isFastFetch_belowThresholdOnly() {
+        assertTrue(AccessibilityNodeSource.isFastFetch(0));
+        assertTrue(AccessibilityNodeSource.isFastFetch(AccessibilityNodeSource.FAST_FETCH_NANOS - 1));
+        assertFalse(AccessibilityNodeSource.isFastFetch(AccessibilityNodeSource.FAST_FETCH_NANOS));
+        assertFalse(AccessibilityNodeSource.isFastFetch(5000000L));
+    }
+}
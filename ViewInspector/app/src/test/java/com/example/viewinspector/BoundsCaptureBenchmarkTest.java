@@ -0,0 +1,104 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * 对比每个节点捕获边界的开销：旧实现每个节点分配 Rect 并调用 String.format，
+ * 新实现复用同一个 Rect，只保存四个 int，显示时才格式化可见的几行。
+ */
+public class BoundsCaptureBenchmarkTest {
+
+    private static final int NODES = 20000;
+    private static final int VISIBLE_ROWS = 40;
+    private static final int ROUNDS = 5;
+
+    // 代替 android.graphics.Rect，本地单元测试中无法使用框架类
+    private static class FakeRect {
+        int left, top, right, bottom;
+    }
+
+    private static void fillBounds(int node, FakeRect rect) {
+        rect.left = node % 1080;
+        rect.top = node * 7 % 1920;
+        rect.right = rect.left + 120;
+        rect.bottom = rect.top + 48;
+    }
+
+    private static long eagerCapture(String[] out) {
+        long checksum = 0;
+        for (int i = 0; i < NODES; i++) {
+            FakeRect rect = new FakeRect();
+            fillBounds(i, rect);
+            out[i] = String.format("[%d,%d][%d,%d]", rect.left, rect.top, rect.right, rect.bottom);
+            checksum += out[i].length();
+        }
+        return checksum;
+    }
+
+    private static long lazyCapture(ViewSnapshot.Builder builder, FakeRect rect) {
+        for (int i = 0; i < NODES; i++) {
+            int index = builder.add(0);
+            fillBounds(i, rect);
+            builder.setBounds(index, rect.left, rect.top, rect.right, rect.bottom);
+        }
+        ViewSnapshot snapshot = builder.build(NodeTraverser.Truncation.NONE);
+
+        // 只格式化屏幕上可见的行
+        long checksum = 0;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < VISIBLE_ROWS; i++) {
+            sb.setLength(0);
+            BoundsFormat.append(sb, snapshot.getLeft(i), snapshot.getTop(i), snapshot.getRight(i), snapshot.getBottom(i));
+            checksum += sb.length();
+        }
+        return checksum;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    @Test
+    public void formatMatchesLegacyFormat() {
+        assertEquals(String.format("[%d,%d][%d,%d]", 0, -5, 1080, 2400), BoundsFormat.format(0, -5, 1080, 2400));
+    }
+
+    @Test
+    public void perNodeBoundsCost() {
+        String[] eagerOut = new String[NODES];
+        long eagerNanos = Long.MAX_VALUE, lazyNanos = Long.MAX_VALUE;
+        long eagerBytes = 0, lazyBytes = 0;
+        long sink = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            sink += eagerCapture(eagerOut);
+            eagerNanos = Math.min(eagerNanos, System.nanoTime() - start);
+            eagerBytes = allocatedBytes() - bytes;
+
+            ViewSnapshot.Builder builder = new ViewSnapshot.Builder(NODES);
+            FakeRect rect = new FakeRect();
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            sink += lazyCapture(builder, rect);
+            lazyNanos = Math.min(lazyNanos, System.nanoTime() - start);
+            lazyBytes = allocatedBytes() - bytes;
+        }
+
+        System.out.println(String.format("bounds eager: %.1f ns/node, %d B/node",
+                (double) eagerNanos / NODES, eagerBytes / NODES));
+        System.out.println(String.format("bounds lazy:  %.1f ns/node, %d B/node",
+                (double) lazyNanos / NODES, lazyBytes / NODES));
+        assertTrue(sink > 0);
+    }
+}
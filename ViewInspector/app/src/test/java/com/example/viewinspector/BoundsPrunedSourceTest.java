@@ -0,0 +1,70 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoundsPrunedSourceTest {
+
+    // 屏幕分为上下两半，每半各有左右两个按钮
+    private static ViewSnapshot buildScreen() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        builder.setStrings(builder.add(0), "FrameLayout", null, null, null);
+        builder.setBounds(0, 0, 0, 1000, 2000);
+        for (int half = 0; half < 2; half++) {
+            int container = builder.add(1);
+            builder.setStrings(container, "LinearLayout", null, null, "half" + half);
+            builder.setBounds(container, 0, half * 1000, 1000, half * 1000 + 1000);
+            for (int side = 0; side < 2; side++) {
+                int button = builder.add(2);
+                builder.setStrings(button, "Button", "b" + half + side, null, null);
+                builder.setBounds(button, side * 500, half * 1000, side * 500 + 500, half * 1000 + 1000);
+            }
+        }
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    private static ViewSnapshot capture(BoundsPrunedSource<Integer> source) {
+        final ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        NodeTraverser.Result result = new NodeTraverser<>(source, TraversalOptions.unbounded(), null, null, false)
+                .traverse(0, 0, null, (node, depth, parent) -> {
+                    builder.add(source, node, depth);
+                    return null;
+                });
+        return builder.build(result.truncation);
+    }
+
+    @Test
+    public void point_descendsOnlyAlongContainingPath() {
+        BoundsPrunedSource<Integer> source =
+                new BoundsPrunedSource<>(new SnapshotNodeSource(buildScreen()), 700, 1500, 701, 1501);
+        ViewSnapshot picked = capture(source);
+
+        assertEquals(3, picked.size());
+        assertEquals("half1", picked.getViewId(1));
+        assertEquals("b11", picked.getText(2));
+        assertEquals(1, picked.getParent(2));
+        // 上半部分的容器和下半部分的左侧按钮被剪掉
+        assertEquals(2, source.getPrunedCount());
+    }
+
+    @Test
+    public void region_keepsEveryIntersectingSubtree() {
+        BoundsPrunedSource<Integer> source =
+                new BoundsPrunedSource<>(new SnapshotNodeSource(buildScreen()), 400, 900, 600, 1100);
+        ViewSnapshot picked = capture(source);
+
+        assertEquals(7, picked.size());
+        assertEquals(0, source.getPrunedCount());
+    }
+
+    @Test
+    public void edges_doNotCountAsIntersecting() {
+        BoundsPrunedSource<Integer> source =
+                new BoundsPrunedSource<>(new SnapshotNodeSource(buildScreen()), 500, 0, 501, 1);
+        ViewSnapshot picked = capture(source);
+
+        assertEquals(3, picked.size());
+        assertEquals("b01", picked.getText(2));
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 在合成的节点树上测量捕获流程各阶段的吞吐量和每个节点的分配量，不需要设备。
+ * 树的规模可通过系统属性调整，例如 -Dbench.nodes=100000 -Dbench.fanout=8 -Dbench.depth=12。
+ */
+public class CaptureBenchmarkTest {
+
+    private static final int NODES = Integer.getInteger("bench.nodes", 20000);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 5);
+
+    private static class SyntheticNode {
+        final int index;
+        final int depth;
+        final List<SyntheticNode> children = new ArrayList<>();
+
+        SyntheticNode(int index, int depth) {
+            this.index = index;
+            this.depth = depth;
+        }
+    }
+
+    // 属性按下标确定性生成，字符串预先创建，读取时不产生分配
+    private static class SyntheticNodeSource implements NodeSource<SyntheticNode> {
+        private final String[] texts;
+        private final String[] viewIds;
+
+        SyntheticNodeSource(int size) {
+            texts = new String[size];
+            viewIds = new String[size];
+            for (int i = 0; i < size; i++) {
+                texts[i] = i % 3 == 0 ? "item " + i : null;
+                viewIds[i] = i % 5 == 0 ? "com.app:id/row_" + (i % 50) : null;
+            }
+        }
+
+        @Override
+        public int getChildCount(SyntheticNode node) {
+            return node.children.size();
+        }
+
+        @Override
+        public SyntheticNode getChild(SyntheticNode node, int index) {
+            return node.children.get(index);
+        }
+
+        @Override
+        public void release(SyntheticNode node) {
+        }
+
+        @Override
+        public String getClassName(SyntheticNode node) {
+            if (!node.children.isEmpty()) {
+                return node.index % 2 == 0 ? "android.widget.LinearLayout" : "android.widget.FrameLayout";
+            }
+            return node.index % 4 == 0 ? "android.widget.Button" : "android.widget.TextView";
+        }
+
+        @Override
+        public String getText(SyntheticNode node) {
+            return texts[node.index];
+        }
+
+        @Override
+        public String getContentDescription(SyntheticNode node) {
+            return null;
+        }
+
+        @Override
+        public String getViewId(SyntheticNode node) {
+            return viewIds[node.index];
+        }
+
+        @Override
+        public int getFlags(SyntheticNode node) {
+            int flags = 1 << ViewSnapshot.FLAG_ENABLED;
+            if (node.index % 4 == 0) {
+                flags |= 1 << ViewSnapshot.FLAG_CLICKABLE | 1 << ViewSnapshot.FLAG_FOCUSABLE;
+            }
+            return flags;
+        }
+
+        @Override
+        public void getBounds(SyntheticNode node, int[] out) {
+            out[0] = node.index % 1080;
+            out[1] = node.index * 7 % 1920;
+            out[2] = out[0] + 120;
+            out[3] = out[1] + 48;
+        }
+
+        @Override
+        public int getWindowId(SyntheticNode node) {
+            return 1;
+        }
+    }
+
+    // 按层生成，每个节点最多 fanout 个子节点，直到达到 nodes 个节点或 maxDepth 层
+    private static List<SyntheticNode> buildTree(int nodes, int fanout, int maxDepth) {
+        List<SyntheticNode> all = new ArrayList<>(nodes);
+        all.add(new SyntheticNode(0, 0));
+        for (int next = 0; next < all.size() && all.size() < nodes; next++) {
+            SyntheticNode parent = all.get(next);
+            if (parent.depth >= maxDepth) {
+                break;
+            }
+            for (int i = 0; i < fanout && all.size() < nodes; i++) {
+                SyntheticNode child = new SyntheticNode(all.size(), parent.depth + 1);
+                parent.children.add(child);
+                all.add(child);
+            }
+        }
+        return all;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    // 一个阶段多轮测量中的最小耗时和最小分配量
+    private static class Measurement {
+        final String name;
+        final int nodes;
+        long nanos = Long.MAX_VALUE;
+        long bytes = Long.MAX_VALUE;
+
+        Measurement(String name, int nodes) {
+            this.name = name;
+            this.nodes = nodes;
+        }
+
+        double bytesPerNode() {
+            return bytes < 0 ? -1 : (double) bytes / nodes;
+        }
+
+        void print(String shape) {
+            System.out.println(String.format("%-8s %-12s %8.1f ns/node  %6.1f B/node  %8.0f nodes/ms",
+                    shape, name, (double) nanos / nodes, bytesPerNode(), nodes * 1e6 / nanos));
+        }
+    }
+
+    private interface Stage {
+        long run();
+    }
+
+    private static long sink;
+
+    private static Measurement measure(String name, int nodes, Stage stage) {
+        Measurement measurement = new Measurement(name, nodes);
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            sink += stage.run();
+            measurement.nanos = Math.min(measurement.nanos, System.nanoTime() - start);
+            long allocated = allocatedBytes() - bytes;
+            measurement.bytes = bytes < 0 ? -1 : Math.min(measurement.bytes, allocated);
+        }
+        return measurement;
+    }
+
+    private void runShape(String shape, int nodes, int fanout, int maxDepth) {
+        List<SyntheticNode> tree = buildTree(nodes, fanout, maxDepth);
+        final SyntheticNode root = tree.get(0);
+        final int size = tree.size();
+        final SyntheticNodeSource source = new SyntheticNodeSource(size);
+        final NodeTraverser<SyntheticNode> traverser =
+                new NodeTraverser<>(source, TraversalOptions.unbounded(), null, null, false);
+
+        Measurement traversal = measure("traversal", size,
+                () -> traverser.traverse(root, 0, null, (node, depth, parent) -> null).nodeCount);
+
+        final ViewSnapshot[] captured = new ViewSnapshot[1];
+        Measurement capture = measure("capture", size, () -> {
+            final ViewSnapshot.Builder builder = new ViewSnapshot.Builder(size);
+            NodeTraverser.Result result = traverser.traverse(root, 0, null, (node, depth, parent) -> {
+                builder.add(source, node, depth);
+                return null;
+            });
+            captured[0] = builder.build(result.truncation);
+            return captured[0].size();
+        });
+        final ViewSnapshot snapshot = captured[0];
+        assertEquals(size, snapshot.size());
+        assertFalse(snapshot.isTruncated());
+
+        // 实时镜像路径：与 LiveTreeMirror 相同，复用同一个 MirrorTree，保留节点后写出快照
+        final NodeTraverser<SyntheticNode> retaining =
+                new NodeTraverser<>(source, TraversalOptions.unbounded(), null, null, true);
+        final MirrorTree<SyntheticNode> mirrorTree = new MirrorTree<>(source);
+        mirrorTree.build(retaining, root);
+        Measurement mirror = measure("mirror", size, () -> {
+            NodeTraverser.Result result = mirrorTree.build(retaining, root);
+            return mirrorTree.toSnapshot(result.truncation).size();
+        });
+        assertEquals(size, mirrorTree.size());
+
+        final StringBuilder sb = new StringBuilder();
+        Measurement bounds = measure("bounds", size, () -> {
+            long length = 0;
+            for (int i = 0; i < size; i++) {
+                sb.setLength(0);
+                BoundsFormat.append(sb, snapshot.getLeft(i), snapshot.getTop(i), snapshot.getRight(i),
+                        snapshot.getBottom(i));
+                length += sb.length();
+            }
+            return length;
+        });
+
+        // 检索索引在捕获线程上预先构建，不计入筛选耗时
+        snapshot.getSearchIndex();
+        final int[] rows = new int[size];
+        Measurement search = measure("search", size,
+                () -> SnapshotFilter.collectRows(snapshot, null, "item 1", false, rows));
+        final SelectorQuery selector = SelectorQuery.compile("LinearLayout > Button:clickable");
+        Measurement select = measure("selector", size,
+                () -> SnapshotFilter.collectRows(snapshot, selector, null, false, rows));
+
+        // 显示全部行并折叠每个第 8 个容器节点
+        final int[] allRows = new int[size];
+        final BitSet collapsed = new BitSet();
+        for (int i = 0; i < size; i++) {
+            allRows[i] = i;
+            if (i % 8 == 0 && snapshot.getSubtreeEnd(i) > i + 1) {
+                collapsed.set(i);
+            }
+        }
+        final VisibleRows visibleRows = new VisibleRows();
+        Measurement visible = measure("visibleRows", size, () -> {
+            visibleRows.rebuild(snapshot, allRows, size, collapsed);
+            return visibleRows.size();
+        });
+        assertTrue(visibleRows.size() > 0 && visibleRows.size() <= size);
+
+        // 点击查询：边界索引在首次点击前构建，这里每个节点对应一次查询
+        final SnapshotBoundsIndex boundsIndex = snapshot.getBoundsIndex();
+        final int[] hits = new int[size];
+        Measurement hitTest = measure("hitTest", size, () -> {
+            long found = 0;
+            for (int i = 0; i < size; i++) {
+                found += boundsIndex.nodesAt(i * 37 % 1200, i * 101 % 1968, hits);
+            }
+            return found;
+        });
+
+        Measurement toString = measure("toString", size, () -> {
+            long length = 0;
+            for (int i = 0; i < size; i++) {
+                length += snapshot.getViewInfo(i).toString().length();
+            }
+            return length;
+        });
+
+        for (Measurement measurement : new Measurement[] {traversal, capture, mirror, bounds, search, select, visible, hitTest, toString}) {
+            measurement.print(shape);
+        }
+
+        // 只做宽松的分配上限检查，耗时与机器相关不做断言
+        if (traversal.bytes >= 0) {
+            assertTrue("traversal allocates " + traversal.bytesPerNode() + " B/node", traversal.bytesPerNode() < 128);
+            assertTrue("mirror allocates " + mirror.bytesPerNode() + " B/node", mirror.bytesPerNode() < 128);
+            assertTrue("visible rows allocate " + visible.bytesPerNode() + " B/node", visible.bytesPerNode() < 1);
+            assertTrue("bounds allocate " + bounds.bytesPerNode() + " B/node", bounds.bytesPerNode() < 1);
+            assertTrue("hit test allocates " + hitTest.bytesPerNode() + " B/node", hitTest.bytesPerNode() < 1);
+        }
+    }
+
+    @Test
+    public void balancedTree() {
+        runShape("balanced", NODES, Integer.getInteger("bench.fanout", 4), Integer.getInteger("bench.depth", 12));
+    }
+
+    @Test
+    public void wideTree() {
+        runShape("wide", NODES, 64, 3);
+    }
+
+    @Test
+    public void deepTree() {
+        // 单链树，检验显式栈不会退化；toString 的缩进随深度增长，因此节点数较少
+        runShape("deep", 2000, 1, 2000);
+    }
+
+    @Test
+    public void syntheticTreeHasRequestedShape() {
+        List<SyntheticNode> tree = buildTree(100, 3, 2);
+        assertEquals(13, tree.size());
+        assertEquals(3, tree.get(0).children.size());
+        assertEquals(2, tree.get(tree.size() - 1).depth);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class CaptureExecutorTest {
+
+    // 阻塞直到 release 被调用，忽略取消时的中断，模拟不响应中断的捕获仍然返回了结果
+    private static class BlockingCapture implements Callable<ViewSnapshot> {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ViewSnapshot snapshot;
+
+        BlockingCapture(String className) {
+            ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+            builder.setStrings(builder.add(0), className, null, null, null);
+            snapshot = builder.build(NodeTraverser.Truncation.NONE);
+        }
+
+        @Override
+        public ViewSnapshot call() {
+            started.countDown();
+            while (true) {
+                try {
+                    release.await();
+                    return snapshot;
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+
+    private final List<ViewSnapshot> delivered = new ArrayList<>();
+
+    // 回调直接在工作线程上执行，测试线程在工作线程空闲后再读取
+    private final CaptureExecutor executor = new CaptureExecutor(Runnable::run);
+
+    private void drainWorker() throws Exception {
+        CaptureExecutor.worker().submit(() -> { }).get();
+    }
+
+    private void record(ViewSnapshot snapshot) {
+        synchronized (delivered) {
+            delivered.add(snapshot);
+        }
+    }
+
+    @Test
+    public void newerRequest_dropsOlderResult() throws Exception {
+        BlockingCapture older = new BlockingCapture("Older");
+        BlockingCapture newer = new BlockingCapture("Newer");
+        executor.submit(older, this::record);
+        older.started.await();
+
+        Future<?> latest = executor.submit(newer, this::record);
+        older.release.countDown();
+        newer.release.countDown();
+        latest.get();
+        drainWorker();
+
+        synchronized (delivered) {
+            assertEquals(1, delivered.size());
+            assertSame(newer.snapshot, delivered.get(0));
+        }
+        assertFalse(executor.isPending());
+    }
+
+    @Test
+    public void cancel_preventsPublishing() throws Exception {
+        BlockingCapture capture = new BlockingCapture("Cancelled");
+        executor.submit(capture, this::record);
+        capture.started.await();
+        assertTrue(executor.isPending());
+
+        executor.cancel();
+        capture.release.countDown();
+        drainWorker();
+
+        synchronized (delivered) {
+            assertTrue(delivered.isEmpty());
+        }
+        assertFalse(executor.isPending());
+    }
+
+    @Test
+    public void cancelledTruncation_isNotPublished() throws Exception {
+        final ViewSnapshot cancelled = new ViewSnapshot.Builder().build(NodeTraverser.Truncation.CANCELLED);
+        executor.submit(() -> cancelled, this::record).get();
+        drainWorker();
+
+        synchronized (delivered) {
+            assertTrue(delivered.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class CaptureMetricsTest {
+
+    @Test
+    public void histogram_percentilesWithinBucket() {
+        MetricsHistogram histogram = new MetricsHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+        long p50 = histogram.percentile(0.5);
+        assertTrue(p50 >= 50 && p50 < 100);
+        assertEquals(100, histogram.percentile(0.99));
+        assertEquals(0, MetricsHistogram.bucketOf(0));
+        assertEquals(1, MetricsHistogram.bucketOf(1));
+        assertEquals(3, MetricsHistogram.bucketOf(7));
+    }
+
+    @Test
+    public void record_aggregatesAndDumps() {
+        CaptureMetrics metrics = new CaptureMetrics();
+        CaptureMetrics.Capture traversed = CaptureMetrics.begin();
+        traversed.nodeCount = 500;
+        traversed.childCalls = 999;
+        traversed.childFetches = 500;
+        traversed.fastFetches = 450;
+        traversed.traversalNanos = 12000000;
+        traversed.totalNanos = 15000000;
+        metrics.record(traversed);
+
+        CaptureMetrics.Capture reused = CaptureMetrics.begin();
+        reused.nodeCount = 500;
+        reused.reusedMirror = true;
+        reused.totalNanos = 1000000;
+        reused.propertyReads = 5000;
+        reused.estimatedSnapshotBytes = 64000;
+        metrics.record(reused);
+        metrics.recordPhase(CaptureMetrics.PHASE_FILTER, 2000000);
+
+        assertEquals(2, metrics.getCaptureCount());
+        assertSame(reused, metrics.getLastCapture());
+        // 复用镜像的捕获不计入遍历耗时
+        assertEquals(1, metrics.getPhase(CaptureMetrics.PHASE_TRAVERSAL).getCount());
+        assertEquals(2, metrics.getPhase(CaptureMetrics.PHASE_TOTAL).getCount());
+        assertEquals(0.9, metrics.getFastFetchRate(), 1e-9);
+
+        StringWriter out = new StringWriter();
+        metrics.dump(new PrintWriter(out));
+        String dump = out.toString();
+        assertTrue(dump, dump.contains("captures: 2 (mirror reused: 1)"));
+        assertTrue(dump, dump.contains("filter"));
+        assertTrue(dump, dump.contains("fast child fetches: 450/500 under 100us (90.0%, heuristic"));
+        assertTrue(dump, dump.contains("propertyReads=5000"));
+        assertTrue(dump, dump.contains("estimatedBytes~64000"));
+    }
+}
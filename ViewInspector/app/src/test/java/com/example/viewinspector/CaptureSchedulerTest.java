@@ -0,0 +1,80 @@
+package com.example.viewinspector;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+
+public class CaptureSchedulerTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final List<int[]> captures = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void burst_isCoalescedIntoOneCapture() throws InterruptedException {
+        CaptureScheduler scheduler = new CaptureScheduler(executor, 50, 1000, captures::add);
+        for (int i = 0; i < 100; i++) {
+            scheduler.onEvent(i % 2 == 0 ? 7 : 9);
+        }
+        Thread.sleep(200);
+        assertEquals(1, captures.size());
+        int[] windows = captures.get(0);
+        Arrays.sort(windows);
+        assertArrayEquals(new int[] {7, 9}, windows);
+        assertEquals(100, scheduler.getEventCount());
+    }
+
+    @Test
+    public void continuousEvents_respectMaxLatency() throws InterruptedException {
+        CaptureScheduler scheduler = new CaptureScheduler(executor, 50, 100, captures::add);
+        long end = System.currentTimeMillis() + 450;
+        while (System.currentTimeMillis() < end) {
+            // 事件间隔小于安静期，只靠最大延迟触发
+            scheduler.onEvent(1);
+            Thread.sleep(10);
+        }
+        assertTrue("captures: " + captures.size(), captures.size() >= 2);
+    }
+
+    @Test
+    public void expensiveCaptures_backOff() throws InterruptedException {
+        CaptureScheduler scheduler = new CaptureScheduler(executor, 10, 20, windows -> {
+            captures.add(windows);
+            try {
+                Thread.sleep(40);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long end = System.currentTimeMillis() + 600;
+        while (System.currentTimeMillis() < end) {
+            scheduler.onEvent(1);
+            Thread.sleep(5);
+        }
+        // 每次捕获 40ms，占用比例不超过 1/4 时 600ms 内最多约 4 次，不退避则接近 10 次
+        assertTrue("captures: " + captures.size(), captures.size() <= 6);
+        assertTrue(scheduler.getAverageCostMillis() >= 30);
+    }
+
+    @Test
+    public void stop_dropsPendingEvents() throws InterruptedException {
+        CaptureScheduler scheduler = new CaptureScheduler(executor, 30, 100, captures::add);
+        scheduler.onEvent(1);
+        scheduler.stop();
+        scheduler.onEvent(2);
+        Thread.sleep(100);
+        assertTrue(captures.isEmpty());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.viewinspector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InspectionServerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger captures = new AtomicInteger();
+    private ExecutorService captureThread;
+    private InspectionServer server;
+    private int port;
+
+    private static ViewSnapshot buildSample() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(2);
+        int root = builder.add(0);
+        builder.setStrings(root, "android.widget.FrameLayout", null, null, null);
+        int button = builder.add(1);
+        builder.setStrings(button, "android.widget.Button", "OK", null, "app:id/ok");
+        builder.setFlag(button, ViewSnapshot.FLAG_CLICKABLE, true);
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        captureThread = Executors.newSingleThreadExecutor();
+        server = new InspectionServer(0, () -> {
+            captures.incrementAndGet();
+            return buildSample();
+        }, captureThread, folder.getRoot());
+        port = server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        captureThread.shutdownNow();
+    }
+
+    // 客户端替身：发送一行请求并读取 "OK <长度>\n" 之后的内容
+    private static String[] request(Socket socket, String line) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        String header = readLine(in);
+        int length = Integer.parseInt(header.substring(header.indexOf(' ') + 1));
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return new String[] {header.substring(0, header.indexOf(' ')), new String(body, StandardCharsets.ISO_8859_1)};
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new IOException("连接已关闭");
+            }
+            sb.append((char) c);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void ping_andUnknownCommand() throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            assertArrayEquals(new String[] {"OK", "pong"}, request(socket, "PING"));
+            assertEquals("ERR", request(socket, "HELLO")[0]);
+            // 同一连接上可以继续发送请求
+            assertEquals("OK", request(socket, "ping")[0]);
+        }
+    }
+
+    @Test
+    public void overlongRequest_isRejectedOnce() throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            line.append('x');
+        }
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            assertEquals("ERR", request(socket, line.toString())[0]);
+            // 过长行的剩余部分被丢弃，不会产生第二个 ERR
+            assertArrayEquals(new String[] {"OK", "pong"}, request(socket, "PING"));
+        }
+    }
+
+    @Test
+    public void snapshotFormats() throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            String[] json = request(socket, "SNAPSHOT json");
+            assertEquals("OK", json[0]);
+            assertTrue(json[1].startsWith("{\"nodes\":["));
+            assertTrue(json[1].endsWith("\"nodeCount\":2,\"truncation\":\"NONE\"}"));
+
+            String[] binary = request(socket, "SNAPSHOT binary");
+            assertEquals("OK", binary[0]);
+            byte[] bytes = binary[1].getBytes(StandardCharsets.ISO_8859_1);
+            assertEquals('N', bytes[0]);
+            assertEquals('V', bytes[3]);
+
+            assertEquals("ERR", request(socket, "SNAPSHOT xml")[0]);
+        }
+    }
+
+    @Test
+    public void queryAndDiff() throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            assertArrayEquals(new String[] {"OK", "{\"count\":1,\"matches\":[1]}"}, request(socket, "QUERY Button[clickable]"));
+            assertEquals("ERR", request(socket, "QUERY [")[0]);
+            String[] diff = request(socket, "DIFF");
+            assertEquals("OK", diff[0]);
+            assertTrue(diff[1].startsWith("{\"nodeCount\":2"));
+        }
+    }
+
+    @Test
+    public void concurrentClients_shareCaptures() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(clients.submit(() -> {
+                    try (Socket socket = new Socket("127.0.0.1", port)) {
+                        return request(socket, "SNAPSHOT ndjson")[1];
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals(3, result.get().split("\n").length);
+            }
+            assertTrue("每个请求都触发了一次捕获", captures.get() < 64);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class JsonSnapshotExporterTest {
+
+    private static ViewSnapshot buildSample() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(2);
+        int root = builder.add(0);
+        builder.setStrings(root, "android.widget.FrameLayout", null, null, null);
+        builder.setBounds(root, 0, 0, 1080, 1920);
+        int button = builder.add(1);
+        builder.setStrings(button, "android.widget.Button", "say \"hi\"\n", null, "app:id/ok");
+        builder.setFlag(button, ViewSnapshot.FLAG_CLICKABLE, true);
+        builder.setBounds(button, -5, 20, 110, 80);
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    private static String export(JsonSnapshotExporter.Format format, Set<JsonSnapshotExporter.Field> fields)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonSnapshotExporter.export(buildSample(), out, format, fields);
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void json_projectsFieldsAndEscapesStrings() throws IOException {
+        String json = export(JsonSnapshotExporter.Format.JSON,
+                EnumSet.of(JsonSnapshotExporter.Field.PARENT, JsonSnapshotExporter.Field.TEXT,
+                        JsonSnapshotExporter.Field.BOUNDS));
+        assertEquals("{\"nodes\":[{\"parent\":-1,\"bounds\":[0,0,1080,1920]},"
+                + "{\"parent\":0,\"text\":\"say \\\"hi\\\"\\n\",\"bounds\":[-5,20,110,80]}]"
+                + ",\"nodeCount\":2,\"truncation\":\"NONE\"}", json);
+    }
+
+    @Test
+    public void ndjson_writesOneNodePerLine() throws IOException {
+        String ndjson = export(JsonSnapshotExporter.Format.NDJSON,
+                JsonSnapshotExporter.Field.parse("className, viewId, flags"));
+        String[] lines = ndjson.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("{\"className\":\"android.widget.Button\",\"viewId\":\"app:id/ok\","
+                + "\"flags\":{\"clickable\":true,\"enabled\":false,\"focusable\":false,\"focused\":false}}", lines[1]);
+        assertEquals("{\"summary\":{\"nodeCount\":2,\"truncation\":\"NONE\"}}", lines[2]);
+    }
+
+    @Test
+    public void emptyProjection_writesNoOptionalFields() throws IOException {
+        String expected = export(JsonSnapshotExporter.Format.NDJSON, EnumSet.noneOf(JsonSnapshotExporter.Field.class));
+        assertEquals(expected, export(JsonSnapshotExporter.Format.NDJSON, Collections.emptySet()));
+        assertEquals(expected, export(JsonSnapshotExporter.Format.NDJSON, new HashSet<>()));
+        assertEquals("{}", expected.split("\n")[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsUnknownField() {
+        JsonSnapshotExporter.Field.parse("className,color");
+    }
+}
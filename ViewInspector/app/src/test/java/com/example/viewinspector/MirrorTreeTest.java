@@ -0,0 +1,150 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MirrorTreeTest {
+
+    // 两个根：0 为当前界面，5 为替换进来的新子树
+    // 0 FrameLayout
+    //   1 LinearLayout > 2 TextView "a", 3 TextView "b"
+    //   4 Button "ok"
+    // 5 ListView > 6 TextView "x"
+    private static ViewSnapshot buildSource() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        builder.setStrings(builder.add(0), "FrameLayout", null, null, null);
+        builder.setBounds(0, 0, 0, 1080, 1920);
+        builder.setStrings(builder.add(1), "LinearLayout", null, null, "app:id/list");
+        builder.setStrings(builder.add(2), "TextView", "a", null, null);
+        builder.setStrings(builder.add(2), "TextView", "b", null, null);
+        int ok = builder.add(1);
+        builder.setStrings(ok, "Button", "ok", null, null);
+        builder.setFlag(ok, ViewSnapshot.FLAG_CLICKABLE, true);
+        builder.setBounds(ok, 10, 20, 110, 80);
+        builder.setStrings(builder.add(0), "ListView", null, "new", null);
+        builder.setStrings(builder.add(1), "TextView", "x", null, null);
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    private static NodeTraverser<Integer> traverser(SnapshotNodeSource source) {
+        return new NodeTraverser<>(source, TraversalOptions.unbounded(), null, null, true);
+    }
+
+    private static String describe(ViewSnapshot snapshot) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < snapshot.size(); i++) {
+            sb.append(snapshot.getViewInfo(i)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void build_reproducesSourceTree() {
+        SnapshotNodeSource source = new SnapshotNodeSource(buildSource());
+        MirrorTree<Integer> tree = new MirrorTree<>(source);
+        tree.build(traverser(source), 0);
+
+        ViewSnapshot mirrored = tree.toSnapshot(NodeTraverser.Truncation.NONE);
+        assertEquals(5, tree.size());
+        assertEquals(Integer.valueOf(0), tree.getRoot());
+        assertEquals(5, mirrored.size());
+        for (int i = 0; i < mirrored.size(); i++) {
+            assertEquals(source.getSnapshot().getViewInfo(i).toString(), mirrored.getViewInfo(i).toString());
+            assertEquals(source.getSnapshot().getParent(i), mirrored.getParent(i));
+        }
+        assertTrue(mirrored.isClickable(4));
+        assertEquals(110, mirrored.getRight(4));
+    }
+
+    @Test
+    public void replace_keepsPositionAndReusesFreedSlots() {
+        SnapshotNodeSource source = new SnapshotNodeSource(buildSource());
+        MirrorTree<Integer> tree = new MirrorTree<>(source);
+        tree.build(traverser(source), 0);
+
+        // LinearLayout 的子树换成 ListView 的子树，仍位于 Button 之前
+        tree.replace(traverser(source), tree.find(1), 5);
+        ViewSnapshot mirrored = tree.toSnapshot(NodeTraverser.Truncation.NONE);
+
+        assertEquals(4, mirrored.size());
+        assertEquals("ListView", mirrored.getClassName(1));
+        assertEquals(1, mirrored.getDepth(1));
+        assertEquals("x", mirrored.getText(2));
+        assertEquals(2, mirrored.getDepth(2));
+        assertEquals("ok", mirrored.getText(3));
+        assertEquals(0, mirrored.getParent(3));
+        assertEquals(MirrorTree.NONE, tree.find(2));
+        assertNotEquals(MirrorTree.NONE, tree.find(6));
+
+        // 再换回来后与完整重建的结果一致
+        tree.replace(traverser(source), tree.find(5), 1);
+        MirrorTree<Integer> rebuilt = new MirrorTree<>(source);
+        rebuilt.build(traverser(source), 0);
+        assertEquals(describe(rebuilt.toSnapshot(NodeTraverser.Truncation.NONE)),
+                describe(tree.toSnapshot(NodeTraverser.Truncation.NONE)));
+    }
+
+    @Test
+    public void replace_appliesAbsoluteDepthLimit() {
+        SnapshotNodeSource source = new SnapshotNodeSource(buildSource());
+        TraversalOptions options = TraversalOptions.unbounded();
+        options.maxDepth = 1;
+        MirrorTree<Integer> tree = new MirrorTree<>(source);
+        NodeTraverser.Result built = tree.build(new NodeTraverser<>(source, options, null, null, true), 0);
+        assertEquals(NodeTraverser.Truncation.MAX_DEPTH, built.truncation);
+        assertEquals(3, tree.size());
+
+        // 替换进来的子树根位于深度 1，其子节点位于深度 2，同样超出上限
+        NodeTraverser.Result patched = tree.replace(new NodeTraverser<>(source, options, null, null, true),
+                tree.find(1), 5);
+        assertEquals(NodeTraverser.Truncation.MAX_DEPTH, patched.truncation);
+        assertEquals(3, tree.size());
+        assertEquals(MirrorTree.NONE, tree.find(6));
+    }
+
+    @Test
+    public void find_tracksNodesAcrossGrowthAndReplace() {
+        // 根下 10 个容器各有 20 个子节点，第二个根 211 下有 5 个子节点
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        builder.setStrings(builder.add(0), "FrameLayout", null, null, null);
+        for (int group = 0; group < 10; group++) {
+            builder.setStrings(builder.add(1), "LinearLayout", null, null, null);
+            for (int i = 0; i < 20; i++) {
+                builder.setStrings(builder.add(2), "TextView", "t" + i, null, null);
+            }
+        }
+        builder.setStrings(builder.add(0), "ListView", null, null, null);
+        for (int i = 0; i < 5; i++) {
+            builder.setStrings(builder.add(1), "TextView", "x" + i, null, null);
+        }
+        SnapshotNodeSource source = new SnapshotNodeSource(builder.build(NodeTraverser.Truncation.NONE));
+        MirrorTree<Integer> tree = new MirrorTree<>(source);
+        tree.build(traverser(source), 0);
+        assertEquals(211, tree.size());
+
+        // 替换第 4 个容器（节点 64，子节点 65..84）
+        tree.replace(traverser(source), tree.find(64), 211);
+        assertEquals(211 - 21 + 6, tree.size());
+        for (int node = 0; node < 217; node++) {
+            boolean removed = node >= 64 && node <= 84;
+            assertEquals("node " + node, removed, tree.find(node) == MirrorTree.NONE);
+        }
+        ViewSnapshot mirrored = tree.toSnapshot(NodeTraverser.Truncation.NONE);
+        assertEquals("ListView", mirrored.getClassName(64));
+        assertEquals("x4", mirrored.getText(69));
+        assertEquals("LinearLayout", mirrored.getClassName(70));
+    }
+
+    @Test
+    public void clear_emptiesTree() {
+        SnapshotNodeSource source = new SnapshotNodeSource(buildSource());
+        MirrorTree<Integer> tree = new MirrorTree<>(source);
+        tree.build(traverser(source), 0);
+        tree.clear();
+
+        assertNull(tree.getRoot());
+        assertEquals(0, tree.size());
+        assertTrue(tree.toSnapshot(NodeTraverser.Truncation.NONE).isEmpty());
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NodeTraverserTest {
+
+    // 0 FrameLayout
+    //   1 LinearLayout > 2 LinearLayout > 3 TextView "a"
+    //                    4 TextView "b"
+    //   5 Button "ok"
+    //   6 TextView "c"
+    private static ViewSnapshot buildTree() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        builder.setStrings(builder.add(0), "FrameLayout", null, null, null);
+        builder.setStrings(builder.add(1), "LinearLayout", null, null, null);
+        builder.setStrings(builder.add(2), "LinearLayout", null, null, null);
+        builder.setStrings(builder.add(3), "TextView", "a", null, null);
+        builder.setStrings(builder.add(2), "TextView", "b", null, null);
+        builder.setStrings(builder.add(1), "Button", "ok", null, null);
+        builder.setStrings(builder.add(1), "TextView", "c", null, null);
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    // 记录释放次数；sleepMillis 大于 0 时每次 getChild 都先等待，用于触发时间预算
+    private static class CountingSource extends SnapshotNodeSource {
+        int released;
+        long sleepMillis;
+
+        CountingSource() {
+            super(buildTree());
+        }
+
+        @Override
+        public Integer getChild(Integer node, int index) {
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.getChild(node, index);
+        }
+
+        @Override
+        public void release(Integer node) {
+            released++;
+        }
+    }
+
+    private static NodeTraverser.Result traverse(CountingSource source, TraversalOptions options,
+                                                 java.util.function.Predicate<Integer> skipChildren,
+                                                 java.util.function.Predicate<Integer> stopAfter,
+                                                 List<Integer> visited) {
+        return new NodeTraverser<>(source, options, skipChildren, stopAfter, false)
+                .traverse(0, 0, null, (node, depth, parent) -> {
+                    visited.add(node);
+                    return node;
+                });
+    }
+
+    @Test
+    public void unbounded_visitsEveryNodeInPreorder() {
+        CountingSource source = new CountingSource();
+        List<Integer> visited = new ArrayList<>();
+        final List<Integer> parents = new ArrayList<>();
+        NodeTraverser.Result result = new NodeTraverser<>(source, TraversalOptions.unbounded(), null, null, false)
+                .traverse(0, 0, -1, (node, depth, parent) -> {
+                    visited.add(node);
+                    parents.add(parent);
+                    assertEquals(source.getSnapshot().getDepth(node), depth);
+                    return node;
+                });
+
+        assertEquals(NodeTraverser.Truncation.NONE, result.truncation);
+        assertEquals(7, result.nodeCount);
+        assertEquals(java.util.Arrays.asList(0, 1, 2, 3, 4, 5, 6), visited);
+        for (int i = 0; i < visited.size(); i++) {
+            assertEquals(Integer.valueOf(source.getSnapshot().getParent(visited.get(i))), parents.get(i));
+        }
+        // 根节点由调用方持有，其余节点各释放一次
+        assertEquals(6, source.released);
+    }
+
+    @Test
+    public void maxNodes_stopsAfterLimit() {
+        CountingSource source = new CountingSource();
+        TraversalOptions options = TraversalOptions.unbounded();
+        options.maxNodes = 4;
+        List<Integer> visited = new ArrayList<>();
+        NodeTraverser.Result result = traverse(source, options, null, null, visited);
+
+        assertEquals(NodeTraverser.Truncation.MAX_NODES, result.truncation);
+        assertEquals(4, result.nodeCount);
+        assertEquals(java.util.Arrays.asList(0, 1, 2, 3), visited);
+        // 提前结束时栈中剩余的节点同样被释放
+        assertEquals(3, source.released);
+    }
+
+    @Test
+    public void maxDepth_dropsDeeperSubtrees() {
+        CountingSource source = new CountingSource();
+        TraversalOptions options = TraversalOptions.unbounded();
+        options.maxDepth = 1;
+        List<Integer> visited = new ArrayList<>();
+        NodeTraverser.Result result = traverse(source, options, null, null, visited);
+
+        assertEquals(NodeTraverser.Truncation.MAX_DEPTH, result.truncation);
+        assertEquals(4, result.nodeCount);
+        assertEquals(java.util.Arrays.asList(0, 1, 5, 6), visited);
+
+        // 深度上限恰好覆盖整棵树时不算截断
+        options.maxDepth = 3;
+        visited.clear();
+        result = traverse(new CountingSource(), options, null, null, visited);
+        assertEquals(NodeTraverser.Truncation.NONE, result.truncation);
+        assertEquals(7, result.nodeCount);
+    }
+
+    @Test
+    public void timeout_endsWithDeadline() {
+        CountingSource source = new CountingSource();
+        source.sleepMillis = 5;
+        TraversalOptions options = TraversalOptions.unbounded();
+        options.timeoutMillis = 1;
+        List<Integer> visited = new ArrayList<>();
+        NodeTraverser.Result result = traverse(source, options, null, null, visited);
+
+        assertEquals(NodeTraverser.Truncation.DEADLINE, result.truncation);
+        // 根节点总会被访问；第一次 getChild 就已超出 1ms 的预算，之后不再获取子节点
+        assertTrue(String.valueOf(result.nodeCount), result.nodeCount >= 1 && result.nodeCount <= 2);
+        assertEquals(result.nodeCount, visited.size());
+        assertEquals(result.nodeCount - 1, source.released);
+    }
+
+    @Test
+    public void interrupt_endsWithCancelled() {
+        CountingSource source = new CountingSource();
+        List<Integer> visited = new ArrayList<>();
+        NodeTraverser.Result result;
+        try {
+            result = new NodeTraverser<>(source, TraversalOptions.unbounded(), null, null, false)
+                    .traverse(0, 0, null, (node, depth, parent) -> {
+                        visited.add(node);
+                        if (node == 2) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return node;
+                    });
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertEquals(NodeTraverser.Truncation.CANCELLED, result.truncation);
+        assertEquals(3, result.nodeCount);
+        assertEquals(java.util.Arrays.asList(0, 1, 2), visited);
+        assertEquals(2, source.released);
+    }
+
+    @Test
+    public void stopAfter_recordsMatchThenStops() {
+        CountingSource source = new CountingSource();
+        List<Integer> visited = new ArrayList<>();
+        NodeTraverser.Result result = traverse(source, TraversalOptions.unbounded(), null, node -> node == 2, visited);
+
+        assertEquals(NodeTraverser.Truncation.STOPPED, result.truncation);
+        assertEquals(3, result.nodeCount);
+        assertEquals(java.util.Arrays.asList(0, 1, 2), visited);
+        assertEquals(2, source.released);
+
+        // 根节点命中时只记录根节点
+        visited.clear();
+        result = traverse(new CountingSource(), TraversalOptions.unbounded(), null, node -> node == 0, visited);
+        assertEquals(NodeTraverser.Truncation.STOPPED, result.truncation);
+        assertEquals(1, result.nodeCount);
+    }
+
+    @Test
+    public void skipChildren_keepsNodeButNotSubtree() {
+        CountingSource source = new CountingSource();
+        List<Integer> visited = new ArrayList<>();
+        NodeTraverser.Result result = traverse(source, TraversalOptions.unbounded(), node -> node == 1, null, visited);
+
+        assertEquals(NodeTraverser.Truncation.NONE, result.truncation);
+        assertEquals(4, result.nodeCount);
+        assertEquals(java.util.Arrays.asList(0, 1, 5, 6), visited);
+        assertEquals(3, source.released);
+    }
+}
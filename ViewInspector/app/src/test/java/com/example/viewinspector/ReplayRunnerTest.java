@@ -0,0 +1,118 @@
+package com.example.viewinspector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReplayRunnerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // 根节点下 buttons 个按钮，每个按钮下一个文本
+    private static ViewSnapshot buildScreen(int buttons) {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        int root = builder.add(0);
+        builder.setStrings(root, "android.widget.LinearLayout", null, null, "app:id/root");
+        builder.setBounds(root, 0, 0, 1080, 1920);
+        for (int i = 0; i < buttons; i++) {
+            int button = builder.add(1);
+            builder.setStrings(button, "android.widget.Button", "button " + i, null, null);
+            builder.setFlag(button, ViewSnapshot.FLAG_CLICKABLE, true);
+            builder.setBounds(button, 0, i * 100, 500, i * 100 + 80);
+            int label = builder.add(2);
+            builder.setStrings(label, "android.widget.TextView", "label " + i, null, null);
+        }
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    @Test
+    public void nodeSource_exposesRecordedStructure() {
+        ViewSnapshot snapshot = buildScreen(3);
+        SnapshotNodeSource source = new SnapshotNodeSource(snapshot);
+
+        assertEquals(Collections.singletonList(0), source.getRoots());
+        assertEquals(3, source.getChildCount(0));
+        assertEquals(Integer.valueOf(1), source.getChild(0, 0));
+        assertEquals(Integer.valueOf(3), source.getChild(0, 1));
+        assertEquals(Integer.valueOf(5), source.getChild(0, 2));
+        assertEquals(1, source.getChildCount(3));
+        assertEquals(0, source.getChildCount(4));
+        assertEquals(1 << ViewSnapshot.FLAG_CLICKABLE, source.getFlags(3));
+
+        int[] bounds = new int[4];
+        source.getBounds(3, bounds);
+        assertArrayEquals(new int[] {0, 100, 500, 180}, bounds);
+    }
+
+    @Test
+    public void retraverse_reproducesSnapshot() {
+        ViewSnapshot snapshot = buildScreen(4);
+        ViewSnapshot replayed = ReplayRunner.retraverse(snapshot, TraversalOptions.unbounded());
+
+        assertEquals(snapshot.size(), replayed.size());
+        assertFalse(replayed.isTruncated());
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(snapshot.getViewInfo(i).toString(), replayed.getViewInfo(i).toString());
+            assertEquals(snapshot.getParent(i), replayed.getParent(i));
+        }
+        assertTrue(replayed.diffFrom(snapshot).isEmpty());
+    }
+
+    @Test
+    public void retraverse_appliesTraversalLimits() {
+        TraversalOptions options = TraversalOptions.unbounded();
+        options.maxDepth = 1;
+        ViewSnapshot replayed = ReplayRunner.retraverse(buildScreen(4), options);
+
+        assertEquals(5, replayed.size());
+        assertEquals(NodeTraverser.Truncation.MAX_DEPTH, replayed.truncation);
+    }
+
+    @Test
+    public void run_processesFilesInParallelAndKeepsOrder() throws Exception {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            File file = new File(folder.getRoot(), String.format("screen-%02d.vis", i));
+            SnapshotFileWriter.write(buildScreen(i + 1), file);
+            files.add(file);
+        }
+        File broken = folder.newFile("broken.vis");
+        files.add(broken);
+
+        SelectorQuery selector = SelectorQuery.compile("Button:clickable");
+        List<ReplayRunner.Outcome<Integer>> outcomes = new ReplayRunner(4).run(files,
+                (file, snapshot) -> SnapshotFilter.collectRows(snapshot, selector, null, false,
+                        new int[snapshot.size()]));
+
+        assertEquals(files.size(), outcomes.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(files.get(i), outcomes.get(i).file);
+            assertNull(outcomes.get(i).error);
+            assertEquals(Integer.valueOf(i + 1), outcomes.get(i).result);
+        }
+        assertTrue(outcomes.get(20).error instanceof IOException);
+        assertNull(outcomes.get(20).result);
+    }
+
+    @Test
+    public void collectFiles_walksDirectoriesInPathOrder() throws IOException {
+        File nested = folder.newFolder("a", "b");
+        SnapshotFileWriter.write(buildScreen(1), new File(nested, "2.vis"));
+        SnapshotFileWriter.write(buildScreen(1), new File(folder.getRoot(), "1.vis"));
+        folder.newFile("notes.txt");
+
+        List<File> files = ReplayRunner.collectFiles(Collections.singletonList(folder.getRoot()));
+        assertEquals(2, files.size());
+        assertEquals("1.vis", files.get(0).getName());
+        assertEquals("2.vis", files.get(1).getName());
+    }
+}
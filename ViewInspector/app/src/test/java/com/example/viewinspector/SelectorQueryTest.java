@@ -0,0 +1,94 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SelectorQueryTest {
+
+    // 0 FrameLayout
+    //   1 LinearLayout #toolbar
+    //     2 Button #ok "OK" clickable [10,10][110,60]
+    //     3 TextView "Title"
+    //   4 LinearLayout #content
+    //     5 FrameLayout
+    //       6 Button #cancel "Cancel" clickable [10,500][200,560]
+    //     7 TextView "Settings" desc "open settings"
+    private static ViewSnapshot sample() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        add(builder, 0, "android.widget.FrameLayout", null, null, null, false, 0, 0, 1080, 1920);
+        add(builder, 1, "android.widget.LinearLayout", null, null, "com.app:id/toolbar", false, 0, 0, 1080, 100);
+        add(builder, 2, "android.widget.Button", "OK", null, "com.app:id/ok", true, 10, 10, 110, 60);
+        add(builder, 2, "android.widget.TextView", "Title", null, null, false, 120, 10, 400, 60);
+        add(builder, 1, "android.widget.LinearLayout", null, null, "com.app:id/content", false, 0, 100, 1080, 1920);
+        add(builder, 2, "android.widget.FrameLayout", null, null, null, false, 0, 100, 1080, 600);
+        add(builder, 3, "android.widget.Button", "Cancel", null, "com.app:id/cancel", true, 10, 500, 200, 560);
+        add(builder, 2, "android.widget.TextView", "Settings", "open settings", null, false, 0, 600, 1080, 700);
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    private static void add(ViewSnapshot.Builder builder, int depth, String className, String text, String desc,
+                            String viewId, boolean clickable, int l, int t, int r, int b) {
+        int index = builder.add(depth);
+        builder.setStrings(index, className, text, desc, viewId);
+        builder.setFlag(index, ViewSnapshot.FLAG_CLICKABLE, clickable);
+        builder.setBounds(index, l, t, r, b);
+    }
+
+    private static int[] query(String selector) {
+        return SelectorQuery.compile(selector).evaluate(sample());
+    }
+
+    @Test
+    public void matchesByClassAndId() {
+        assertArrayEquals(new int[] {2, 6}, query("Button"));
+        assertArrayEquals(new int[] {2, 6}, query("android.widget.Button"));
+        assertArrayEquals(new int[] {6}, query("#cancel"));
+        assertArrayEquals(new int[] {2}, query("Button#com.app:id/ok"));
+        assertArrayEquals(new int[0], query("Button#missing"));
+    }
+
+    @Test
+    public void matchesAttributesAndFlags() {
+        assertArrayEquals(new int[] {7}, query("[desc*=\"settings\"]"));
+        assertArrayEquals(new int[] {3, 7}, query("TextView[text~=/^(title|settings)$/i]"));
+        assertArrayEquals(new int[] {2, 6}, query("*:clickable"));
+        assertArrayEquals(new int[] {3, 7}, query("TextView[clickable=false]"));
+        assertArrayEquals(new int[] {6}, query("Button[width>100]"));
+    }
+
+    @Test
+    public void matchesCombinators() {
+        assertArrayEquals(new int[] {6}, query("#content Button"));
+        assertArrayEquals(new int[0], query("#content > Button"));
+        assertArrayEquals(new int[] {6}, query("#content > FrameLayout > Button"));
+        assertArrayEquals(new int[] {2, 7}, query("#toolbar > Button, LinearLayout TextView[text=Settings]"));
+    }
+
+    @Test
+    public void matchesBoundsPredicates() {
+        assertArrayEquals(new int[] {0, 4, 5, 6}, query(":contains(50,520)"));
+        assertArrayEquals(new int[] {1, 2, 3}, query("*:within(0,0,1080,100)"));
+        assertArrayEquals(new int[] {0, 1, 4, 5, 7}, query(":intersects(500,50,600,650)"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidSelector() {
+        SelectorQuery.compile("Button[text~=/(/]");
+    }
+
+    @Test
+    public void rejectsUnsupportedOperatorsAndFlagValues() {
+        // 数值属性不支持字符串运算符，布尔属性只接受 true 和 false
+        String[] invalid = {"[width*=10]", "[depth^=1]", "[left$=0]", "[clickable=ture]", "[enabled=1]",
+                "[focused!=TRUE]"};
+        for (String selector : invalid) {
+            try {
+                SelectorQuery.compile(selector);
+                fail("应拒绝 " + selector);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        assertArrayEquals(new int[] {2, 6}, query("[clickable!=false]"));
+    }
+}
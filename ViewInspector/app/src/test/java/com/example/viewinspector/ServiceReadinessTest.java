@@ -0,0 +1,100 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ServiceReadinessTest {
+
+    @Test
+    public void whenReady_runsImmediatelyWhenConnected() {
+        ServiceReadiness<String> readiness = new ServiceReadiness<>(Runnable::run);
+        readiness.onConnected("service");
+
+        List<String> received = new ArrayList<>();
+        readiness.whenReady(received::add);
+        assertEquals(1, received.size());
+        assertEquals("service", received.get(0));
+        assertEquals(Boolean.TRUE, readiness.getEnabled());
+    }
+
+    @Test
+    public void whenReady_waitsForConnectionAndFiresOnce() {
+        ServiceReadiness<String> readiness = new ServiceReadiness<>(Runnable::run);
+        List<String> received = new ArrayList<>();
+        ServiceReadiness.Callback<String> callback = received::add;
+        readiness.whenReady(callback);
+        readiness.whenReady(callback);
+        assertTrue(received.isEmpty());
+
+        readiness.onConnected("first");
+        assertEquals(1, received.size());
+
+        readiness.onDisconnected("first");
+        assertFalse(readiness.isReady());
+        assertNull(readiness.getEnabled());
+        readiness.onConnected("second");
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void cancel_dropsWaitingAndQueuedCallbacks() {
+        List<Runnable> queued = new ArrayList<>();
+        ServiceReadiness<String> readiness = new ServiceReadiness<>(queued::add);
+        List<String> received = new ArrayList<>();
+        ServiceReadiness.Callback<String> waiting = received::add;
+        readiness.whenReady(waiting);
+        readiness.cancel(waiting);
+        readiness.onConnected("service");
+        assertTrue(queued.isEmpty());
+
+        ServiceReadiness.Callback<String> queuedCallback = received::add;
+        readiness.whenReady(queuedCallback);
+        readiness.cancel(queuedCallback);
+        for (Runnable runnable : queued) {
+            runnable.run();
+        }
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void delivery_afterDisconnectWaitsForNextConnection() {
+        List<Runnable> queued = new ArrayList<>();
+        ServiceReadiness<String> readiness = new ServiceReadiness<>(queued::add);
+        List<String> received = new ArrayList<>();
+        readiness.onConnected("first");
+        readiness.whenReady(received::add);
+        readiness.onDisconnected("first");
+        queued.remove(0).run();
+        assertTrue(received.isEmpty());
+
+        readiness.onConnected("second");
+        queued.remove(0).run();
+        assertEquals(1, received.size());
+        assertEquals("second", received.get(0));
+    }
+
+    @Test
+    public void awaitReady_returnsWhenConnectedOrTimesOut() throws Exception {
+        ServiceReadiness<String> readiness = new ServiceReadiness<>(Runnable::run);
+        assertNull(readiness.awaitReady(10));
+
+        AtomicReference<String> result = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                result.set(readiness.awaitReady(5000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        Thread.sleep(20);
+        readiness.onConnected("service");
+        waiter.join(5000);
+        assertEquals("service", result.get());
+    }
+}
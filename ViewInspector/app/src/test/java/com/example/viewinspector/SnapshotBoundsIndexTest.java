@@ -0,0 +1,96 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SnapshotBoundsIndexTest {
+
+    // 随机树：节点边界随机重叠，包含全屏容器、屏幕外和面积为 0 的节点
+    private static ViewSnapshot buildRandom(int size, long seed) {
+        Random random = new Random(seed);
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        builder.setStrings(builder.add(0), "FrameLayout", null, null, null);
+        builder.setBounds(0, 0, 0, 1080, 2400);
+        int depth = 0;
+        for (int i = 1; i < size; i++) {
+            depth = 1 + random.nextInt(depth + 1);
+            int index = builder.add(depth);
+            builder.setStrings(index, "View", "n" + i, null, null);
+            int kind = random.nextInt(20);
+            if (kind == 0) {
+                builder.setBounds(index, 0, 0, 1080, 2400);
+            } else if (kind == 1) {
+                builder.setBounds(index, -500, 2600, -100, 3000);
+            } else if (kind == 2) {
+                builder.setBounds(index, 300, 300, 300, 600);
+            } else {
+                int left = random.nextInt(1080);
+                int top = random.nextInt(2400);
+                builder.setBounds(index, left, top, left + 1 + random.nextInt(400), top + 1 + random.nextInt(400));
+            }
+        }
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    private static int bruteForce(ViewSnapshot snapshot, int x, int y, int[] out) {
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.getLeft(i) <= x && x < snapshot.getRight(i) &&
+                    snapshot.getTop(i) <= y && y < snapshot.getBottom(i)) {
+                out[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void nodesAt_matchesBruteForce() {
+        ViewSnapshot snapshot = buildRandom(3000, 42);
+        SnapshotBoundsIndex index = snapshot.getBoundsIndex();
+        assertSame(index, snapshot.getBoundsIndex());
+
+        Random random = new Random(7);
+        int[] expected = new int[snapshot.size()];
+        int[] actual = new int[snapshot.size()];
+        for (int query = 0; query < 2000; query++) {
+            int x = random.nextInt(1800) - 400;
+            int y = random.nextInt(3600) - 400;
+            int expectedCount = bruteForce(snapshot, x, y, expected);
+            int actualCount = index.nodesAt(x, y, actual);
+            assertEquals("(" + x + ", " + y + ")", expectedCount, actualCount);
+            for (int i = 0; i < expectedCount; i++) {
+                assertEquals(expected[i], actual[i]);
+            }
+        }
+    }
+
+    @Test
+    public void deepestAt_prefersDeepestThenLastDrawn() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        builder.setStrings(builder.add(0), "FrameLayout", null, null, null);
+        builder.setBounds(0, 0, 0, 1000, 1000);
+        int list = builder.add(1);
+        builder.setBounds(list, 0, 0, 1000, 500);
+        int first = builder.add(2);
+        builder.setBounds(first, 0, 0, 500, 500);
+        int overlapping = builder.add(2);
+        builder.setBounds(overlapping, 100, 100, 600, 400);
+        ViewSnapshot snapshot = builder.build(NodeTraverser.Truncation.NONE);
+        SnapshotBoundsIndex index = snapshot.getBoundsIndex();
+
+        assertEquals(overlapping, index.deepestAt(200, 200));
+        assertEquals(first, index.deepestAt(50, 50));
+        assertEquals(0, index.deepestAt(500, 800));
+        assertEquals(-1, index.deepestAt(1000, 1000));
+    }
+
+    @Test
+    public void emptySnapshot_hasNoHits() {
+        SnapshotBoundsIndex index = ViewSnapshot.empty().getBoundsIndex();
+        assertEquals(0, index.nodesAt(10, 10, new int[0]));
+        assertEquals(-1, index.deepestAt(10, 10));
+    }
+}
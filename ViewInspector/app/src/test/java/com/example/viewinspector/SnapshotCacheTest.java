@@ -0,0 +1,91 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SnapshotCacheTest {
+
+    private static ViewSnapshot snapshotOf(String className) {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        builder.setStrings(builder.add(0), className, null, null, null);
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    @Test
+    public void publish_incrementsGenerationAndNotifiesListeners() {
+        SnapshotCache cache = new SnapshotCache(Runnable::run);
+        List<SnapshotCache.Entry> received = new ArrayList<>();
+        SnapshotCache.Listener listener = received::add;
+        cache.addListener(listener);
+        cache.addListener(listener);
+
+        Object requester = new Object();
+        ViewSnapshot first = snapshotOf("First");
+        SnapshotCache.Entry entry = cache.publish(first, false, requester);
+
+        assertEquals(1, entry.generation);
+        assertSame(first, cache.getLatest().snapshot);
+        assertEquals(1, received.size());
+        assertSame(requester, received.get(0).requester);
+
+        cache.removeListener(listener);
+        assertEquals(2, cache.publish(snapshotOf("Second"), true, null).generation);
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void delivery_skipsSupersededEntries() {
+        List<Runnable> queued = new ArrayList<>();
+        SnapshotCache cache = new SnapshotCache(queued::add);
+        List<SnapshotCache.Entry> received = new ArrayList<>();
+        cache.addListener(received::add);
+
+        cache.publish(snapshotOf("First"), false, null);
+        cache.publish(snapshotOf("Second"), false, null);
+        for (Runnable runnable : queued) {
+            runnable.run();
+        }
+
+        assertEquals(1, received.size());
+        assertEquals(2, received.get(0).generation);
+        assertEquals("Second", received.get(0).snapshot.getClassName(0));
+    }
+
+    @Test
+    public void getFresh_matchesScopeAndAge() throws InterruptedException {
+        SnapshotCache cache = new SnapshotCache(Runnable::run);
+        assertNull(cache.getFresh(false, 1000));
+
+        cache.publish(snapshotOf("Current"), false, null);
+        assertNotNull(cache.getFresh(false, 1000));
+        assertNull(cache.getFresh(true, 1000));
+
+        Thread.sleep(20);
+        assertNull(cache.getFresh(false, 5));
+
+        cache.clear();
+        assertNull(cache.getLatest());
+        assertEquals(2, cache.getGeneration());
+    }
+
+    @Test
+    public void allWindowsWanted_whileAnyOwnerRegistered() {
+        SnapshotCache cache = new SnapshotCache(Runnable::run);
+        Object main = new Object();
+        Object other = new Object();
+        assertFalse(cache.isAllWindowsWanted());
+
+        cache.setAllWindowsWanted(main, true);
+        cache.setAllWindowsWanted(main, true);
+        cache.setAllWindowsWanted(other, true);
+        cache.setAllWindowsWanted(main, false);
+        assertTrue(cache.isAllWindowsWanted());
+
+        cache.setAllWindowsWanted(other, false);
+        assertFalse(cache.isAllWindowsWanted());
+    }
+}
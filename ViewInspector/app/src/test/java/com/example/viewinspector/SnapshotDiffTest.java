@@ -0,0 +1,78 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SnapshotDiffTest {
+
+    private static int add(ViewSnapshot.Builder builder, int depth, String className, String text, String viewId) {
+        int index = builder.add(depth);
+        builder.setStrings(index, className, text, null, viewId);
+        return index;
+    }
+
+    @Test
+    public void identicalSnapshots_haveNoDifferences() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(4);
+        add(builder, 0, "android.widget.FrameLayout", null, null);
+        add(builder, 1, "android.widget.TextView", "a", null);
+        add(builder, 1, "android.widget.TextView", "b", null);
+        ViewSnapshot first = builder.build(NodeTraverser.Truncation.NONE);
+
+        builder = new ViewSnapshot.Builder(4);
+        add(builder, 0, "android.widget.FrameLayout", null, null);
+        add(builder, 1, "android.widget.TextView", "a", null);
+        add(builder, 1, "android.widget.TextView", "b", null);
+        ViewSnapshot second = builder.build(NodeTraverser.Truncation.NONE);
+
+        SnapshotDiff diff = SnapshotDiff.compute(first, second);
+        assertTrue(diff.isEmpty());
+        assertEquals(2, diff.getOldIndex(2));
+    }
+
+    @Test
+    public void detectsAddedRemovedChangedAndMoved() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(8);
+        add(builder, 0, "android.widget.FrameLayout", null, null);
+        add(builder, 1, "android.widget.LinearLayout", null, "app:id/left");
+        add(builder, 2, "android.widget.Button", "OK", "app:id/ok");
+        add(builder, 3, "android.widget.TextView", "inner", null);
+        add(builder, 1, "android.widget.LinearLayout", null, "app:id/right");
+        add(builder, 2, "android.widget.TextView", "old", null);
+        add(builder, 2, "android.widget.ImageView", null, null);
+        ViewSnapshot before = builder.build(NodeTraverser.Truncation.NONE);
+
+        builder = new ViewSnapshot.Builder(8);
+        add(builder, 0, "android.widget.FrameLayout", null, null);
+        add(builder, 1, "android.widget.LinearLayout", null, "app:id/left");
+        add(builder, 1, "android.widget.LinearLayout", null, "app:id/right");
+        add(builder, 2, "android.widget.TextView", "new", null);
+        // 按钮从 left 移到 right，子节点随之移动但不算移动
+        add(builder, 2, "android.widget.Button", "OK", "app:id/ok");
+        add(builder, 3, "android.widget.TextView", "inner", null);
+        add(builder, 2, "android.widget.CheckBox", null, null);
+        ViewSnapshot after = builder.build(NodeTraverser.Truncation.NONE);
+
+        SnapshotDiff diff = SnapshotDiff.compute(before, after);
+        assertArrayEquals(new int[] {6}, diff.getAdded());
+        assertArrayEquals(new int[] {6}, diff.getRemoved());
+        assertArrayEquals(new int[] {4}, diff.getMoved());
+        assertArrayEquals(new int[] {3}, diff.getChanged());
+        assertEquals(SnapshotDiff.CHANGE_TEXT, diff.getChanges(3));
+        assertEquals(SnapshotDiff.STATUS_UNCHANGED, diff.getStatus(5));
+        assertEquals(3, diff.getOldIndex(5));
+    }
+
+    @Test
+    public void diffFrom_cachesResultForSamePrevious() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(1);
+        add(builder, 0, "android.widget.FrameLayout", null, null);
+        ViewSnapshot first = builder.build(NodeTraverser.Truncation.NONE);
+        builder = new ViewSnapshot.Builder(1);
+        add(builder, 0, "android.widget.FrameLayout", null, null);
+        ViewSnapshot second = builder.build(NodeTraverser.Truncation.NONE);
+
+        assertSame(second.diffFrom(first), second.diffFrom(first));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.viewinspector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SnapshotFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ViewSnapshot buildSample() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(4);
+        int root = builder.add(0);
+        builder.setStrings(root, "android.widget.FrameLayout", null, null, null);
+        builder.setBounds(root, 0, 0, 1080, 1920);
+        builder.setWindowId(root, 7);
+
+        int button = builder.add(1);
+        builder.setStrings(button, "android.widget.Button", "确定", "confirm", "app:id/ok");
+        builder.setFlag(button, ViewSnapshot.FLAG_CLICKABLE, true);
+        builder.setFlag(button, ViewSnapshot.FLAG_FOCUSED, true);
+        builder.setBounds(button, 10, 20, 110, 80);
+        builder.setWindowId(button, 7);
+
+        int label = builder.add(2);
+        builder.setStrings(label, "android.widget.TextView", "label", null, null);
+        builder.setWindowId(label, 7);
+
+        int second = builder.add(1);
+        builder.setStrings(second, "android.widget.Button", "Cancel", null, "app:id/cancel");
+        builder.setWindowId(second, 7);
+
+        ViewSnapshot.WindowEntry window = new ViewSnapshot.WindowEntry();
+        window.windowId = 7;
+        window.type = 1;
+        window.title = "Main";
+        window.nodeCount = 4;
+        builder.addWindow(window);
+        return builder.build(NodeTraverser.Truncation.MAX_NODES);
+    }
+
+    @Test
+    public void roundTrip_preservesNodesAndWindows() throws IOException {
+        ViewSnapshot snapshot = buildSample();
+        File file = folder.newFile("snapshot.vis");
+        SnapshotFileWriter.write(snapshot, file);
+
+        try (SnapshotFileReader reader = SnapshotFileReader.open(file)) {
+            assertEquals(4, reader.size());
+            assertEquals(NodeTraverser.Truncation.MAX_NODES, reader.truncation);
+            assertEquals(1, reader.windows.size());
+            assertEquals("Main", reader.windows.get(0).title);
+
+            assertEquals("确定", reader.getText(1));
+            assertEquals("app:id/ok", reader.getViewId(1));
+            assertNull(reader.getViewId(2));
+            assertTrue(reader.hasFlag(1, ViewSnapshot.FLAG_FOCUSED));
+            assertFalse(reader.hasFlag(3, ViewSnapshot.FLAG_CLICKABLE));
+            assertEquals(110, reader.getRight(1));
+            assertEquals(1, reader.getParent(2));
+            assertEquals(7, reader.getWindowId(3));
+
+            ViewSnapshot restored = reader.toSnapshot();
+            for (int i = 0; i < snapshot.size(); i++) {
+                assertEquals(snapshot.getViewInfo(i).toString(), restored.getViewInfo(i).toString());
+                assertEquals(snapshot.getSubtreeEnd(i), reader.getSubtreeEnd(i));
+            }
+        }
+    }
+
+    @Test
+    public void readSubtree_rebasesDepth() throws IOException {
+        File file = folder.newFile("subtree.vis");
+        SnapshotFileWriter.write(buildSample(), file);
+
+        try (SnapshotFileReader reader = SnapshotFileReader.open(file)) {
+            ViewSnapshot subtree = reader.readSubtree(1);
+            assertEquals(2, subtree.size());
+            assertEquals(0, subtree.getDepth(0));
+            assertEquals("label", subtree.getText(1));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void open_rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other.bin");
+        java.nio.file.Files.write(file.toPath(), new byte[SnapshotFile.HEADER_SIZE]);
+        SnapshotFileReader.open(file);
+    }
+
+    @Test
+    public void open_rejectsFilesOver2Gb() throws IOException {
+        File file = folder.newFile("huge.vis");
+        SnapshotFileWriter.write(buildSample(), file);
+        // 稀疏文件，不实际占用磁盘空间
+        try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(file, "rw")) {
+            raf.setLength(Integer.MAX_VALUE + 1L);
+        }
+        try {
+            SnapshotFileReader.open(file);
+            fail("超过 2GB 的文件应当被拒绝");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("2GB"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void open_rejectsOffsetsOutsideFile() throws IOException {
+        File file = folder.newFile("corrupt.vis");
+        SnapshotFileWriter.write(buildSample(), file);
+        try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(file, "rw")) {
+            java.nio.ByteBuffer offset = java.nio.ByteBuffer.allocate(8).order(SnapshotFile.BYTE_ORDER);
+            offset.putLong(0, file.length() + 1);
+            raf.getChannel().write(offset, SnapshotFile.HEADER_STRING_TABLE);
+        }
+        SnapshotFileReader.open(file);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SnapshotSearchIndexTest {
+
+    private static ViewSnapshot buildSnapshot(String[] texts, String[] descriptions) {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        for (int i = 0; i < texts.length; i++) {
+            int index = builder.add(i == 0 ? 0 : 1);
+            builder.setStrings(index, "android.widget.TextView", texts[i], descriptions[i], null);
+        }
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    private static int linearSearch(ViewSnapshot snapshot, String query, int[] out) {
+        String lower = query.toLowerCase();
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            String text = snapshot.getText(i);
+            String description = snapshot.getContentDescription(i);
+            if ((text != null && text.toLowerCase().contains(lower)) ||
+                    (description != null && description.toLowerCase().contains(lower))) {
+                out[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void search_isCaseInsensitiveAndCoversBothFields() {
+        ViewSnapshot snapshot = buildSnapshot(
+                new String[] {"Settings", null, "Open settings", "OK"},
+                new String[] {null, "SETTINGS button", null, "confirm"});
+        SnapshotSearchIndex index = snapshot.getSearchIndex();
+        int[] out = new int[snapshot.size()];
+
+        assertEquals(3, index.search("setTINGS", out));
+        assertArrayEquals(new int[] {0, 1, 2}, java.util.Arrays.copyOf(out, 3));
+        assertEquals(1, index.search("ok", out));
+        assertEquals(3, out[0]);
+        assertEquals(0, index.search("missing", out));
+        assertEquals(4, index.search("", out));
+    }
+
+    @Test
+    public void search_doesNotMatchAcrossFields() {
+        ViewSnapshot snapshot = buildSnapshot(new String[] {"ab"}, new String[] {"cd"});
+        int[] out = new int[1];
+        assertEquals(0, snapshot.getSearchIndex().search("abc", out));
+        assertEquals(0, snapshot.getSearchIndex().search("bc", out));
+    }
+
+    @Test
+    public void search_matchesLinearScanOnRandomTrees() {
+        Random random = new Random(42);
+        String alphabet = "abcdeABCDE ";
+        int size = 12000;
+        String[] texts = new String[size];
+        String[] descriptions = new String[size];
+        for (int i = 0; i < size; i++) {
+            texts[i] = random.nextInt(4) == 0 ? null : randomString(random, alphabet, 1 + random.nextInt(20));
+            descriptions[i] = random.nextInt(3) == 0 ? randomString(random, alphabet, random.nextInt(10)) : null;
+        }
+        ViewSnapshot snapshot = buildSnapshot(texts, descriptions);
+        SnapshotSearchIndex index = snapshot.getSearchIndex();
+        int[] expected = new int[size];
+        int[] actual = new int[size];
+
+        for (int q = 0; q < 200; q++) {
+            String query = randomString(random, alphabet, 1 + random.nextInt(5));
+            int expectedCount = linearSearch(snapshot, query, expected);
+            int actualCount = index.search(query, actual);
+            assertEquals(query, expectedCount, actualCount);
+            for (int i = 0; i < expectedCount; i++) {
+                assertEquals(query, expected[i], actual[i]);
+            }
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SnapshotTimelineTest {
+
+    // 一个列表：根节点下 rows 行，每行一个文本；offset 模拟滚动
+    private static ViewSnapshot buildList(int rows, int offset, String changedText) {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(rows + 1);
+        int root = builder.add(0);
+        builder.setStrings(root, "androidx.recyclerview.widget.RecyclerView", null, null, "app:id/list");
+        for (int i = 0; i < rows; i++) {
+            int row = builder.add(1);
+            String text = i == 0 && changedText != null ? changedText : "row " + i;
+            builder.setStrings(row, "android.widget.TextView", text, null, null);
+            builder.setBounds(row, 0, i * 100 - offset, 1080, i * 100 + 100 - offset);
+        }
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    private static void assertSameContent(ViewSnapshot expected, ViewSnapshot actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getViewInfo(i).toString(), actual.getViewInfo(i).toString());
+        }
+    }
+
+    @Test
+    public void deltaFrames_restoreExactly() {
+        SnapshotTimeline timeline = new SnapshotTimeline(100, Long.MAX_VALUE, 10);
+        ViewSnapshot[] recorded = new ViewSnapshot[5];
+        for (int i = 0; i < recorded.length; i++) {
+            recorded[i] = buildList(20, 0, i % 2 == 0 ? null : "changed " + i);
+            timeline.append(i * 100L, recorded[i]);
+        }
+        assertTrue(timeline.isKeyframe(0));
+        assertFalse(timeline.isKeyframe(3));
+        // 倒序、跳跃访问都应还原出相同的内容
+        for (int i = recorded.length - 1; i >= 0; i--) {
+            assertSameContent(recorded[i], timeline.getFrame(i));
+        }
+        assertSameContent(recorded[4], timeline.getFrame(4));
+        assertEquals(300L, timeline.getFrameTime(3));
+    }
+
+    @Test
+    public void largeChanges_storeKeyframe() {
+        SnapshotTimeline timeline = new SnapshotTimeline(100, Long.MAX_VALUE, 10);
+        timeline.append(0, buildList(20, 0, null));
+        // 滚动后所有行的边界都改变
+        timeline.append(1, buildList(20, 50, null));
+        assertTrue(timeline.isKeyframe(1));
+    }
+
+    @Test
+    public void frameLimit_dropsOldestAndPromotesKeyframe() {
+        SnapshotTimeline timeline = new SnapshotTimeline(3, Long.MAX_VALUE, 10);
+        ViewSnapshot last = null;
+        for (int i = 0; i < 5; i++) {
+            last = buildList(10, 0, "frame " + i);
+            timeline.append(i, last);
+        }
+        assertEquals(3, timeline.getFrameCount());
+        assertEquals(2, timeline.getDroppedFrames());
+        assertTrue(timeline.isKeyframe(0));
+        assertEquals(2L, timeline.getFrameTime(0));
+        assertSameContent(last, timeline.getFrame(2));
+    }
+
+    @Test
+    public void memoryCap_isRespected() {
+        // 关键帧间隔为 1，每帧都是关键帧，上限恰好容纳两帧
+        long cap = buildList(100, 0, "frame 0").estimateBytes() * 2;
+        SnapshotTimeline timeline = new SnapshotTimeline(1000, cap, 1);
+        for (int i = 0; i < 10; i++) {
+            timeline.append(i, buildList(100, 0, "frame " + i));
+            assertTrue(timeline.getMemoryBytes() <= cap);
+        }
+        assertEquals(2, timeline.getFrameCount());
+    }
+
+    @Test
+    public void oversizedFrame_isRejected() {
+        ViewSnapshot small = buildList(5, 0, null);
+        ViewSnapshot large = buildList(200, 0, null);
+        long cap = small.estimateBytes() * 3;
+        SnapshotTimeline timeline = new SnapshotTimeline(100, cap, 10);
+        assertTrue(timeline.append(0, small));
+        assertFalse(timeline.append(1, large));
+        // 已保存的帧不会为放不下的帧让位
+        assertEquals(1, timeline.getFrameCount());
+        assertEquals(1, timeline.getRejectedFrames());
+        assertEquals(0, timeline.getDroppedFrames());
+        assertTrue(timeline.getMemoryBytes() <= cap);
+    }
+
+    @Test
+    public void memoryCap_countsDeltaBaseAndCache() {
+        // 差量帧很小，但上一帧的完整快照和还原缓存也要计入上限
+        long frameBytes = buildList(100, 0, "frame 0").estimateBytes();
+        long cap = frameBytes * 3;
+        SnapshotTimeline timeline = new SnapshotTimeline(1000, cap, 20);
+        ViewSnapshot[] recorded = new ViewSnapshot[40];
+        for (int i = 0; i < recorded.length; i++) {
+            recorded[i] = buildList(100, 0, "frame " + i);
+            assertTrue(timeline.append(i, recorded[i]));
+            assertTrue(timeline.getMemoryBytes() <= cap);
+            int count = timeline.getFrameCount();
+            timeline.getFrame(count / 2);
+            assertTrue(timeline.getMemoryBytes() <= cap);
+        }
+        int count = timeline.getFrameCount();
+        int first = recorded.length - count;
+        for (int i = 0; i < count; i++) {
+            assertSameContent(recorded[first + i], timeline.getFrame(i));
+            assertTrue(timeline.getMemoryBytes() <= cap);
+        }
+    }
+}
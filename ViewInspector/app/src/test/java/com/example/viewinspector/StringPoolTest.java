@@ -0,0 +1,68 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StringPoolTest {
+
+    @Test
+    public void intern_returnsSharedInstanceAndCountsHits() {
+        StringPool pool = new StringPool(16);
+        String first = pool.intern(new String("android.widget.Button"));
+        String second = pool.intern(new String("android.widget.Button"));
+
+        assertSame(first, second);
+        assertNull(pool.intern(null));
+        assertEquals(1, pool.size());
+        assertEquals(2, pool.getLookups());
+        assertEquals(1, pool.getHits());
+        assertEquals(0.5, pool.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void symbolOf_isStableWhileStringIsHeld() {
+        StringPool pool = new StringPool(16);
+        String button = pool.intern("android.widget.Button");
+        int buttonSymbol = pool.symbolOf(new String(button));
+        int textSymbol = pool.symbolOf("android.widget.TextView");
+
+        assertNotEquals(StringPool.NO_SYMBOL, buttonSymbol);
+        assertNotEquals(buttonSymbol, textSymbol);
+        assertEquals(buttonSymbol, pool.symbolOf(button));
+        assertEquals(StringPool.NO_SYMBOL, pool.symbolOf(null));
+    }
+
+    @Test
+    public void full_poolReturnsValueUnchanged() {
+        StringPool pool = new StringPool(2);
+        String a = pool.intern("a");
+        String b = pool.intern("b");
+        String c = new String("c");
+
+        assertSame(c, pool.intern(c));
+        assertEquals(StringPool.NO_SYMBOL, pool.symbolOf("c"));
+        assertEquals(2, pool.getRejected());
+        // 已入池的字符串照常命中
+        assertSame(a, pool.intern(new String("a")));
+        assertSame(b, pool.intern(new String("b")));
+    }
+
+    @Test
+    public void snapshots_shareClassNameAndViewIdInstances() {
+        ViewSnapshot first = buildSnapshot();
+        ViewSnapshot second = buildSnapshot();
+
+        assertSame(first.getClassName(0), second.getClassName(0));
+        assertSame(first.getViewId(0), second.getViewId(0));
+        // 文本不经过共享池
+        assertNotSame(first.getText(0), second.getText(0));
+    }
+
+    private static ViewSnapshot buildSnapshot() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        builder.setStrings(builder.add(0), new String("android.widget.Button"), new String("OK"), null,
+                new String("com.example:id/ok"));
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+}
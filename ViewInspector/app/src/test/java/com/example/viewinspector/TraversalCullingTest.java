@@ -0,0 +1,145 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TraversalCullingTest {
+
+    private static final int[] SCREEN = {0, 0, 1000, 2000};
+
+    // 0 FrameLayout
+    //   1 LinearLayout（空包装）> 2 LinearLayout（空包装）> 3 Button "ok"
+    //   4 View "offscreen"（屏幕外）> 5 TextView "inner"
+    //   6 View "zero"（面积为 0）
+    //   7 TextView "hidden"（不可见）
+    private static ViewSnapshot buildScreen() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        builder.setStrings(builder.add(0), "FrameLayout", null, null, null);
+        builder.setBounds(0, 0, 0, 1000, 2000);
+        for (int depth = 1; depth <= 2; depth++) {
+            int wrapper = builder.add(depth);
+            builder.setStrings(wrapper, "LinearLayout", null, null, null);
+            builder.setBounds(wrapper, 0, 0, 1000, 500);
+        }
+        int button = builder.add(3);
+        builder.setStrings(button, "Button", "ok", null, null);
+        builder.setBounds(button, 0, 0, 500, 500);
+        builder.setFlag(button, ViewSnapshot.FLAG_CLICKABLE, true);
+
+        int offscreen = builder.add(1);
+        builder.setStrings(offscreen, "View", "offscreen", null, null);
+        builder.setBounds(offscreen, 0, 2500, 1000, 3000);
+        int inner = builder.add(2);
+        builder.setStrings(inner, "TextView", "inner", null, null);
+        builder.setBounds(inner, 0, 2500, 1000, 2600);
+
+        int zero = builder.add(1);
+        builder.setStrings(zero, "View", "zero", null, null);
+        builder.setBounds(zero, 100, 100, 100, 100);
+
+        int hidden = builder.add(1);
+        builder.setStrings(hidden, "TextView", "hidden", null, null);
+        builder.setBounds(hidden, 0, 1000, 1000, 1100);
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    // 快照本身不记录可见性，这里把文本为 "hidden" 的节点当作不可见
+    private static class HidingSource extends SnapshotNodeSource {
+        HidingSource(ViewSnapshot snapshot) {
+            super(snapshot);
+        }
+
+        @Override
+        public boolean isVisibleToUser(Integer node) {
+            return !"hidden".equals(getText(node));
+        }
+    }
+
+    private static ViewSnapshot capture(NodeSource<Integer> source, TraversalOptions options,
+                                        NodeTraverser.Result[] resultOut) {
+        final ViewSnapshot.Builder builder = new ViewSnapshot.Builder();
+        NodeTraverser.Result result = new NodeTraverser<>(source, options, null, null, false)
+                .traverse(0, 0, null, (node, depth, parent) -> {
+                    builder.add(source, node, depth);
+                    return null;
+                });
+        resultOut[0] = result;
+        return builder.build(result.truncation);
+    }
+
+    @Test
+    public void defaults_keepEveryNode() {
+        NodeTraverser.Result[] result = new NodeTraverser.Result[1];
+        ViewSnapshot snapshot = capture(new HidingSource(buildScreen()), TraversalOptions.unbounded(), result);
+
+        assertEquals(8, snapshot.size());
+        assertEquals(0, result[0].culledSubtrees);
+        assertEquals(0, result[0].collapsedNodes);
+    }
+
+    @Test
+    public void collapseWrappers_movesOnlyChildUp() {
+        TraversalOptions options = TraversalOptions.unbounded();
+        options.collapseWrappers = true;
+        NodeTraverser.Result[] result = new NodeTraverser.Result[1];
+        ViewSnapshot snapshot = capture(new HidingSource(buildScreen()), options, result);
+
+        assertEquals(6, snapshot.size());
+        assertEquals(2, result[0].collapsedNodes);
+        assertEquals("ok", snapshot.getText(1));
+        assertEquals(0, snapshot.getParent(1));
+    }
+
+    @Test
+    public void collapseWrappers_keepsContainersWithOtherActions() {
+        // 第二个包装节点没有文本和点击标志，但有其他操作（例如可滚动），不能折叠
+        NodeSource<Integer> source = new HidingSource(buildScreen()) {
+            @Override
+            public boolean hasActions(Integer node) {
+                return node == 2 || super.hasActions(node);
+            }
+        };
+        TraversalOptions options = TraversalOptions.unbounded();
+        options.collapseWrappers = true;
+        NodeTraverser.Result[] result = new NodeTraverser.Result[1];
+        ViewSnapshot snapshot = capture(source, options, result);
+
+        assertEquals(7, snapshot.size());
+        assertEquals(1, result[0].collapsedNodes);
+        assertEquals("LinearLayout", snapshot.getClassName(1));
+        assertEquals(0, snapshot.getParent(1));
+        assertEquals("ok", snapshot.getText(2));
+        assertEquals(1, snapshot.getParent(2));
+    }
+
+    @Test
+    public void clipBounds_cullsOffscreenAndEmptySubtrees() {
+        TraversalOptions options = TraversalOptions.unbounded();
+        options.clipBounds = SCREEN;
+        NodeTraverser.Result[] result = new NodeTraverser.Result[1];
+        ViewSnapshot snapshot = capture(new HidingSource(buildScreen()), options, result);
+
+        assertEquals(5, snapshot.size());
+        assertEquals(2, result[0].culledSubtrees);
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertNotEquals("inner", snapshot.getText(i));
+            assertNotEquals("zero", snapshot.getText(i));
+        }
+    }
+
+    @Test
+    public void compact_combinesAllRules() {
+        TraversalOptions options = TraversalOptions.compact(SCREEN);
+        NodeTraverser.Result[] result = new NodeTraverser.Result[1];
+        ViewSnapshot snapshot = capture(new HidingSource(buildScreen()), options, result);
+
+        assertEquals(2, snapshot.size());
+        assertEquals("FrameLayout", snapshot.getClassName(0));
+        assertEquals("ok", snapshot.getText(1));
+        assertEquals(3, result[0].culledSubtrees);
+        assertEquals(2, result[0].collapsedNodes);
+        // 精简前的节点数下限：被剔除的屏幕外子树只计根节点
+        assertEquals(7, result[0].nodeCount + result[0].culledSubtrees + result[0].collapsedNodes);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.viewinspector;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ViewSnapshotTest {
+
+    private static ViewSnapshot buildSample() {
+        ViewSnapshot.Builder builder = new ViewSnapshot.Builder(1);
+        int root = builder.add(0);
+        builder.setStrings(root, "android.widget.FrameLayout", null, null, null);
+        builder.setFlag(root, ViewSnapshot.FLAG_ENABLED, true);
+        builder.setBounds(root, 0, 0, 1080, 1920);
+
+        int button = builder.add(1);
+        builder.setStrings(button, "android.widget.Button", "OK", "confirm", "app:id/ok");
+        builder.setFlag(button, ViewSnapshot.FLAG_CLICKABLE, true);
+        builder.setBounds(button, 10, 20, 110, 80);
+
+        int label = builder.add(2);
+        builder.setStrings(label, "android.widget.TextView", "label", null, null);
+
+        int second = builder.add(1);
+        builder.setStrings(second, "android.widget.Button", "Cancel", null, "app:id/cancel");
+        builder.setFlag(second, ViewSnapshot.FLAG_CLICKABLE, true);
+        return builder.build(NodeTraverser.Truncation.NONE);
+    }
+
+    @Test
+    public void builder_derivesParentsFromDepth() {
+        ViewSnapshot snapshot = buildSample();
+        assertEquals(4, snapshot.size());
+        assertEquals(ViewSnapshot.NO_PARENT, snapshot.getParent(0));
+        assertEquals(0, snapshot.getParent(1));
+        assertEquals(1, snapshot.getParent(2));
+        assertEquals(0, snapshot.getParent(3));
+        assertEquals(3, snapshot.getSubtreeEnd(1));
+        assertEquals(4, snapshot.getSubtreeEnd(0));
+    }
+
+    @Test
+    public void classNamesAreStoredOnceInDictionary() {
+        ViewSnapshot snapshot = buildSample();
+        assertEquals(3, snapshot.getClassNames().size());
+        assertEquals(snapshot.getClassNameId(1), snapshot.getClassNameId(3));
+        assertEquals(StringDictionary.NONE, snapshot.getViewIdId(0));
+        assertEquals("app:id/cancel", snapshot.getViewId(3));
+    }
+
+    @Test
+    public void cursor_readsColumns() {
+        ViewSnapshot snapshot = buildSample();
+        ViewSnapshot.Cursor cursor = snapshot.cursor();
+        int clickable = 0;
+        while (cursor.moveToNext()) {
+            if (cursor.isClickable()) {
+                clickable++;
+            }
+        }
+        assertEquals(2, clickable);
+        assertEquals(snapshot.countFlag(ViewSnapshot.FLAG_CLICKABLE), clickable);
+
+        cursor.moveTo(1);
+        assertEquals("OK", cursor.getText());
+        assertEquals("confirm", cursor.getContentDescription());
+        assertEquals(10, cursor.getLeft());
+        assertEquals(80, cursor.getBottom());
+        assertFalse(cursor.isEnabled());
+    }
+
+    @Test
+    public void appendAll_remapsParentsAndDictionaries() {
+        ViewSnapshot.Builder merged = new ViewSnapshot.Builder();
+        merged.appendAll(buildSample());
+        merged.appendAll(buildSample());
+        ViewSnapshot snapshot = merged.build(NodeTraverser.Truncation.NONE);
+
+        assertEquals(8, snapshot.size());
+        assertEquals(ViewSnapshot.NO_PARENT, snapshot.getParent(4));
+        assertEquals(5, snapshot.getParent(6));
+        assertEquals(3, snapshot.getClassNames().size());
+
+        List<ViewInfo> viewInfos = snapshot.toViewInfos();
+        assertEquals("Cancel", viewInfos.get(7).text);
+        assertTrue(viewInfos.get(7).isClickable);
+    }
+}